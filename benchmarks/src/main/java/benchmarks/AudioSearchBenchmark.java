@@ -0,0 +1,100 @@
+package benchmarks;
+
+import model.AudioFeatureStore;
+import model.AudioFeatureStrategy;
+import model.AudioFeatures;
+import model.HnswIndex;
+import model.Track;
+import service.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest audio-feature neighbours over a synthetic catalog: the exact scan of
+ * AudioFeatureStrategy (both metrics) against HNSW queries at several efSearch values
+ * Recall of the index is checked by HnswIndexTest, this only measures time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class AudioSearchBenchmark {
+    private static final int K = 20;
+    private static final float[] WEIGHTS = Config.AUDIO_FEATURE_WEIGHTS;
+
+    @Param({"200000"})
+    public int tracks;
+
+    private AudioFeatureStrategy euclidean;
+    private AudioFeatureStrategy cosine;
+    private AudioFeatureStore store;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        store = new AudioFeatureStore();
+        for (int i = 0; i < tracks; i++) {
+            AudioFeatures features = new AudioFeatures(null);
+            features.setDanceability(random.nextDouble());
+            features.setEnergy(random.nextDouble());
+            features.setValence(random.nextDouble());
+            features.setTempo(60 + random.nextDouble() * 140);
+            features.setAcousticness(random.nextDouble());
+            store.put(new Track("Song " + i, "Artist " + i % 997), features);
+        }
+        euclidean = new AudioFeatureStrategy(store, null, AudioFeatureStore.Metric.EUCLIDEAN, WEIGHTS);
+        cosine = new AudioFeatureStrategy(store, null, AudioFeatureStore.Metric.COSINE, WEIGHTS);
+    }
+
+    /** The HNSW index over the same catalog, queried with efSearch candidates */
+    @State(Scope.Benchmark)
+    public static class Index {
+        @Param({"20", "64", "200"})
+        public int efSearch;
+
+        private HnswIndex index;
+
+        @Setup
+        public void setUp(AudioSearchBenchmark catalog) {
+            index = new HnswIndex(AudioFeatureStore.DIMENSIONS, Config.HNSW_M, Config.HNSW_EF_CONSTRUCTION,
+                    efSearch, WEIGHTS, 42);
+            catalog.store.indexInto(index);
+        }
+    }
+
+    private List<Track> randomSeed() {
+        int seed = random.nextInt(tracks);
+        return List.of(new Track("Song " + seed, "Artist " + seed % 997));
+    }
+
+    @Benchmark
+    public List<Track> exactEuclidean() {
+        return euclidean.recommend(randomSeed(), K);
+    }
+
+    @Benchmark
+    public List<Track> exactCosine() {
+        return cosine.recommend(randomSeed(), K);
+    }
+
+    @Benchmark
+    public HnswIndex.Result hnsw(Index hnsw) {
+        return hnsw.index.search(hnsw.index.vector(random.nextInt(tracks)), K, hnsw.efSearch);
+    }
+}
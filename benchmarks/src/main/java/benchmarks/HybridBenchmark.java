@@ -0,0 +1,85 @@
+package benchmarks;
+
+import model.AudioFeatureStore;
+import model.AudioFeatures;
+import model.HybridStrategy;
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HybridStrategy.rerank on candidate pools of poolSize tracks (50 is the production
+ * pool, SIMILAR_FETCH_LIMIT), about 10% of them without audio features
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class HybridBenchmark {
+    private static final int CATALOG = 200_000;
+    private static final int POOLS = 16;
+    private static final int COUNT = 20;
+
+    @Param({"50", "1000", "5000"})
+    public int poolSize;
+
+    private HybridStrategy hybrid;
+    private List<List<Track>> pools;
+    private List<List<Track>> seeds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        AudioFeatureStore store = new AudioFeatureStore();
+        for (int i = 0; i < CATALOG; i++) {
+            AudioFeatures features = new AudioFeatures(null);
+            features.setDanceability(random.nextDouble());
+            features.setEnergy(random.nextDouble());
+            features.setValence(random.nextDouble());
+            features.setTempo(60 + random.nextDouble() * 140);
+            features.setAcousticness(random.nextDouble());
+            store.put(new Track("Song " + i, "Artist " + i % 997), features);
+        }
+        hybrid = new HybridStrategy(null, store, 0, 0.6, 0.15, 0.25);
+
+        pools = new ArrayList<>(POOLS);
+        seeds = new ArrayList<>(POOLS);
+        for (int p = 0; p < POOLS; p++) {
+            List<Track> pool = new ArrayList<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                int id = random.nextInt(CATALOG + CATALOG / 10);
+                Track track = new Track("Song " + id, "Artist " + id % 997);
+                track.setMatchScore(random.nextDouble());
+                track.setListeners(random.nextInt(5_000_000));
+                pool.add(track);
+            }
+            pools.add(pool);
+            int seed = random.nextInt(CATALOG);
+            seeds.add(List.of(new Track("Song " + seed, "Artist " + seed % 997)));
+        }
+    }
+
+    @Benchmark
+    public List<Track> rerank() {
+        int i = next;
+        next = (i + 1) % POOLS;
+        return hybrid.rerank(seeds.get(i), pools.get(i), COUNT);
+    }
+}
@@ -0,0 +1,157 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.HttpTransport;
+import service.LastFmAPIClient;
+import service.MusicRecommendationServer;
+import service.ServerConnection;
+import service.TransportSettings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end round trips ServerConnection -> MusicRecommendationServer over loopback
+ * Last.fm is an in-process stub serving the recorded payloads, and every query is
+ * warmed first, so the numbers are the server, protocol and encoding path rather
+ * than the upstream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark {
+    private static final int PIPELINE_DEPTH = 16;
+
+    @Param({MusicRecommendationServer.MODE_NIO, MusicRecommendationServer.MODE_POOLED})
+    public String serverMode;
+
+    @Param({"json", "binary"})
+    public String wireFormat;
+
+    private HttpServer stub;
+    private LastFmAPIClient apiClient;
+    private MusicRecommendationServer server;
+    private ServerConnection connection;
+    private ServerConnection pipelined;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] search = Payloads.load(Payloads.SEARCH);
+        byte[] similar = Payloads.load(Payloads.SIMILAR);
+        byte[] info = Payloads.load(Payloads.INFO);
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/2.0/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            byte[] body = query.contains("method=track.search") ? search
+                    : query.contains("method=track.getSimilar") ? similar
+                    : info;
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        stub.start();
+        apiClient = new LastFmAPIClient(new HttpTransport(new TransportSettings()),
+                "http://localhost:" + stub.getAddress().getPort() + "/2.0/");
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new MusicRecommendationServer(port, serverMode, apiClient);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "benchmark-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        connection = connect(port);
+        pipelined = connect(port);
+        pipelined.enablePipelining();
+        if ("binary".equals(wireFormat)) {
+            connection.useBinaryFormat();
+            pipelined.useBinaryFormat();
+        }
+
+        // Fill the response cache and the similarity graph
+        connection.searchTracks("fireflies");
+        connection.getRecommendations("Fireflies", "Owl City");
+    }
+
+    // The server thread needs a moment to bind
+    private static ServerConnection connect(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            ServerConnection candidate = new ServerConnection("localhost", port);
+            try {
+                candidate.connect();
+                return candidate;
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connection.disconnect();
+        pipelined.disconnect();
+        server.shutdown();
+        apiClient.close();
+        stub.stop(0);
+    }
+
+    @Benchmark
+    public List<Track> searchRoundTrip() throws IOException {
+        return connection.searchTracks("fireflies");
+    }
+
+    @Benchmark
+    public List<Track> recommendRoundTrip() throws IOException {
+        return connection.getRecommendations("Fireflies", "Owl City");
+    }
+
+    // PIPELINE_DEPTH searches outstanding on one socket, reported per request
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public int pipelinedSearches() {
+        List<CompletableFuture<List<Track>>> futures = new ArrayList<>(PIPELINE_DEPTH);
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            futures.add(pipelined.searchTracksAsync("fireflies"));
+        }
+        int total = 0;
+        for (CompletableFuture<List<Track>> future : futures) {
+            total += future.join().size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import model.PersonalizedPageRankStrategy;
+import model.SimilarityGraph;
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Personalized PageRank for 5 random seeds over a synthetic similarity graph of
+ * seeds x degree edges, through the strategy so each walk runs on the subgraph the
+ * server would build (PPR_MAX_HOPS, PPR_MAX_NODES)
+ * Low ids are linked far more often, like real listening data
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PageRankBenchmark {
+    private static final int COUNT = 20;
+
+    @Param({"40000"})
+    public int seeds;
+
+    @Param({"50"})
+    public int degree;
+
+    private PersonalizedPageRankStrategy strategy;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        SimilarityGraph graph = new SimilarityGraph(seeds * 2);
+        for (int seed = 0; seed < seeds; seed++) {
+            List<Track> similar = new ArrayList<>(degree);
+            for (int e = 0; e < degree; e++) {
+                int target = (int) (Math.pow(random.nextDouble(), 2) * seeds * 1.5);
+                Track track = new Track("Song " + target, "Artist " + target % 997);
+                track.setMatchScore(random.nextDouble());
+                similar.add(track);
+            }
+            graph.addSimilar("Song " + seed, "Artist " + seed % 997, degree, similar);
+        }
+        strategy = new PersonalizedPageRankStrategy(graph, null);
+    }
+
+    @Benchmark
+    public List<Track> recommend() {
+        List<Track> userTracks = new ArrayList<>(5);
+        for (int s = 0; s < 5; s++) {
+            int seed = random.nextInt(seeds);
+            userTracks.add(new Track("Song " + seed, "Artist " + seed % 997));
+        }
+        return strategy.recommend(userTracks, COUNT);
+    }
+}
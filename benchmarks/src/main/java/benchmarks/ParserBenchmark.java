@@ -0,0 +1,63 @@
+package benchmarks;
+
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import service.LastFmResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LastFmResponseParser on recorded search, similar and info bodies
+ * Measures the streaming parse LastFmAPIClient runs on every cache miss
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private byte[] search;
+    private byte[] similar;
+    private byte[] info;
+
+    @Setup
+    public void load() {
+        search = Payloads.load(Payloads.SEARCH);
+        similar = Payloads.load(Payloads.SIMILAR);
+        info = Payloads.load(Payloads.INFO);
+    }
+
+    @Benchmark
+    public List<Track> parseSearch() {
+        return LastFmResponseParser.parseSearch(new ByteArrayInputStream(search));
+    }
+
+    @Benchmark
+    public List<Track> parseSimilar() {
+        return LastFmResponseParser.parseSimilar(new ByteArrayInputStream(similar));
+    }
+
+    // Tracks go straight to a consumer, no result list
+    @Benchmark
+    public void parseSimilarToSink(Blackhole blackhole) {
+        LastFmResponseParser.parseSimilar(new ByteArrayInputStream(similar), blackhole::consume);
+    }
+
+    @Benchmark
+    public Track parseTrackInfo() {
+        return LastFmResponseParser.parseTrackInfo(new ByteArrayInputStream(info));
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Last.fm response bodies bundled with the benchmarks (src/main/resources/payloads)
+ * Same shape as the real API: a 30-result track.search page, a 100-track
+ * track.getSimilar list and a track.getInfo body with album, tags and wiki
+ */
+final class Payloads {
+    static final String SEARCH = "search.json";
+    static final String SIMILAR = "similar.json";
+    static final String INFO = "info.json";
+
+    private Payloads() {
+    }
+
+    static byte[] load(String name) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing payload " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.LastFmResponseParser;
+import service.WireCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding a RECOMMEND response on the server and decoding it on the client,
+ * as a Gson JSON line and as a WireCodec binary frame
+ * The JSON side follows the same steps as ClientSession.encode / ServerConnection
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+    @Param({"10", "50", "100"})
+    public int trackCount;
+
+    private final Gson gson = new Gson();
+    private List<Track> tracks;
+    private byte[] jsonLine;
+    private byte[] binaryFrame;
+
+    @Setup
+    public void setUp() {
+        List<Track> similar = LastFmResponseParser.parseSimilar(
+                new ByteArrayInputStream(Payloads.load(Payloads.SIMILAR)));
+        tracks = similar.subList(0, Math.min(trackCount, similar.size()));
+        jsonLine = encodeJsonLine();
+        binaryFrame = encodeBinaryFrame();
+    }
+
+    private JsonObject fields() {
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "success");
+        response.addProperty("action", "RECOMMEND");
+        response.addProperty("tier", "graph");
+        response.addProperty("partial", false);
+        response.addProperty("requestId", 42);
+        response.addProperty("version", 2);
+        return response;
+    }
+
+    @Benchmark
+    public byte[] encodeJsonLine() {
+        JsonObject response = fields();
+        response.add("data", gson.toJsonTree(tracks));
+        return (gson.toJson(response) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryFrame() {
+        return WireCodec.encode(fields(), tracks);
+    }
+
+    @Benchmark
+    public Track[] decodeJsonLine() {
+        JsonObject response = gson.fromJson(new String(jsonLine, StandardCharsets.UTF_8), JsonObject.class);
+        return gson.fromJson(response.get("data"), Track[].class);
+    }
+
+    @Benchmark
+    public Track[] decodeBinaryFrame() throws IOException {
+        JsonObject response = WireCodec.readFrame(new DataInputStream(new ByteArrayInputStream(binaryFrame)));
+        return gson.fromJson(response.get("data"), Track[].class);
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import model.RandomStrategy;
+import model.SimilarityBasedStrategy;
+import model.Track;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.SessionHistory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RandomStrategy over a session history of seenTracks tracks (next to the
+ * copy-and-shuffle it replaced), and SimilarityBasedStrategy against a stubbed
+ * client (no network)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+    private static final int COUNT = 10;
+
+    @Param({"100", "2000", "100000"})
+    public int seenTracks;
+
+    private SessionHistory history;
+    private RandomStrategy random;
+    private SimilarityBasedStrategy similarity;
+    private List<Track> seeds;
+
+    @Setup
+    public void setUp() {
+        history = new SessionHistory(seenTracks);
+        for (int i = 0; i < seenTracks; i++) {
+            history.add(new Track("Song " + i, "Artist " + (i % 97)));
+        }
+        random = new RandomStrategy(history);
+        similarity = new SimilarityBasedStrategy(new StubLastFmClient());
+        seeds = List.of(new Track("Fireflies", "Owl City"));
+    }
+
+    @Benchmark
+    public List<Track> randomRecommend() {
+        return random.recommend(seeds, COUNT);
+    }
+
+    @Benchmark
+    public List<Track> randomCopyAndShuffle() {
+        List<Track> copy = new ArrayList<>(history);
+        Collections.shuffle(copy);
+        return copy.subList(0, Math.min(COUNT, copy.size()));
+    }
+
+    @Benchmark
+    public List<Track> similarityRecommend() {
+        return similarity.recommend(seeds, COUNT);
+    }
+
+    @Benchmark
+    public List<Track> similarityRecommendAsync() {
+        return similarity.recommendAsync(seeds, COUNT).join();
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import model.Track;
+import service.LastFmAPIClient;
+import service.LastFmResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LastFmAPIClient that answers getSimilarTracks from the recorded payload without any I/O
+ * Returns fresh copies like a cache hit does, so strategies pay the same allocation
+ */
+class StubLastFmClient extends LastFmAPIClient {
+    private final List<Track> similar;
+
+    StubLastFmClient() {
+        super(null, "http://localhost/2.0/");
+        this.similar = LastFmResponseParser.parseSimilar(new ByteArrayInputStream(Payloads.load(Payloads.SIMILAR)));
+    }
+
+    @Override
+    public List<Track> getSimilarTracks(String trackName, String artistName, int limit) {
+        List<Track> copy = new ArrayList<>(Math.min(limit, similar.size()));
+        for (Track track : similar.subList(0, Math.min(limit, similar.size()))) {
+            copy.add(new Track(track));
+        }
+        return copy;
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> getSimilarTracksAsync(String trackName, String artistName, int limit) {
+        return CompletableFuture.completedFuture(getSimilarTracks(trackName, artistName, limit));
+    }
+
+    List<Track> getSimilar() {
+        return similar;
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import model.CompactTrack;
+import model.Track;
+import model.TrackInterner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.LastFmResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of making, copying and interning Track objects, the allocations every
+ * cache hit, strategy result and session history entry pays for
+ * Run with -prof gc to see bytes per operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackAllocationBenchmark {
+    private Track[] tracks;
+    private CompactTrack[] compact;
+    private TrackInterner interner;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Track> similar = LastFmResponseParser.parseSimilar(
+                new ByteArrayInputStream(Payloads.load(Payloads.SIMILAR)));
+        tracks = similar.toArray(new Track[0]);
+        interner = new TrackInterner(tracks.length * 2);
+        compact = new CompactTrack[tracks.length];
+        for (int i = 0; i < tracks.length; i++) {
+            compact[i] = interner.intern(tracks[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == tracks.length ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public Track newTrack() {
+        Track source = tracks[nextIndex()];
+        Track track = new Track(source.getName(), source.getArtist());
+        track.setUrl(source.getUrl());
+        track.setImageUrl(source.getImageUrl());
+        track.setMbid(source.getMbid());
+        track.setListeners(source.getListeners());
+        track.setMatchScore(source.getMatchScore());
+        return track;
+    }
+
+    @Benchmark
+    public Track copyTrack() {
+        return new Track(tracks[nextIndex()]);
+    }
+
+    // Already interned, so this is the lookup a repeated cache put pays
+    @Benchmark
+    public CompactTrack internHit() {
+        return interner.intern(tracks[nextIndex()]);
+    }
+
+    // Rebuilding a Track from the compact form, as every cache hit does
+    @Benchmark
+    public Track compactToTrack() {
+        int i = nextIndex();
+        return compact[i].toTrack(tracks[i].getMatchScore());
+    }
+}
@@ -0,0 +1,435 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Audio features for many tracks, stored column by column in primitive float arrays
+ * Row i of every column belongs to the track with TrackId ids[i]. Tempo is kept
+ * divided by TEMPO_SCALE so every column is roughly 0..1 and no dimension
+ * dominates a distance. Nearest-neighbour search walks one column at a time
+ * over blocks of rows, a tight loop over contiguous floats that the JIT can
+ * turn into SIMD instructions
+ */
+public class AudioFeatureStore {
+    public static final int DANCEABILITY = 0;
+    public static final int ENERGY = 1;
+    public static final int VALENCE = 2;
+    public static final int TEMPO = 3;
+    public static final int ACOUSTICNESS = 4;
+    public static final int DIMENSIONS = 5;
+
+    static final float TEMPO_SCALE = 200f;
+    private static final int INITIAL_ROWS = 1024;
+    // Rows scored per pass, small enough that the partial sums stay in L1/L2
+    private static final int BLOCK = 2048;
+
+    public enum Metric { EUCLIDEAN, COSINE }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<TrackId, Integer> rows = new HashMap<>();
+    private TrackId[] ids = new TrackId[INITIAL_ROWS];
+    private String[] names = new String[INITIAL_ROWS];
+    private String[] artists = new String[INITIAL_ROWS];
+    private final float[][] columns = new float[DIMENSIONS][INITIAL_ROWS];
+    private int size;
+
+    /**
+     * Add or replace the features of a track
+     */
+    public void put(Track track, AudioFeatures features) {
+        lock.writeLock().lock();
+        try {
+            TrackId id = TrackId.of(track);
+            Integer row = rows.get(id);
+            if (row == null) {
+                if (size == ids.length) {
+                    grow();
+                }
+                row = size++;
+                rows.put(id, row);
+                ids[row] = id;
+                names[row] = track.getName();
+                artists[row] = track.getArtist();
+            }
+            columns[DANCEABILITY][row] = (float) features.getDanceability();
+            columns[ENERGY][row] = (float) features.getEnergy();
+            columns[VALENCE][row] = (float) features.getValence();
+            columns[TEMPO][row] = (float) features.getTempo() / TEMPO_SCALE;
+            columns[ACOUSTICNESS][row] = (float) features.getAcousticness();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored features, or null if the track is unknown
+     */
+    public AudioFeatures get(Track track) {
+        lock.readLock().lock();
+        try {
+            Integer row = rows.get(TrackId.of(track));
+            if (row == null) {
+                return null;
+            }
+            AudioFeatures features = new AudioFeatures(ids[row].toString());
+            features.setDanceability(columns[DANCEABILITY][row]);
+            features.setEnergy(columns[ENERGY][row]);
+            features.setValence(columns[VALENCE][row]);
+            features.setTempo(columns[TEMPO][row] * TEMPO_SCALE);
+            features.setAcousticness(columns[ACOUSTICNESS][row]);
+            return features;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load rows from a CSV file with a header line:
+     * name,artist,mbid,danceability,energy,valence,tempo,acousticness
+     * Fields may be double-quoted; malformed lines are skipped
+     *
+     * @return number of tracks loaded
+     */
+    public int loadCsv(Path file) throws IOException {
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // header
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = splitCsv(line);
+                if (fields.size() < 8) {
+                    System.err.println("Skipping audio features line " + lineNumber + ": expected 8 fields");
+                    continue;
+                }
+                try {
+                    Track track = new Track(fields.get(0), fields.get(1));
+                    track.setMbid(fields.get(2).isEmpty() ? null : fields.get(2));
+                    AudioFeatures features = new AudioFeatures(fields.get(2));
+                    features.setDanceability(Double.parseDouble(fields.get(3)));
+                    features.setEnergy(Double.parseDouble(fields.get(4)));
+                    features.setValence(Double.parseDouble(fields.get(5)));
+                    features.setTempo(Double.parseDouble(fields.get(6)));
+                    features.setAcousticness(Double.parseDouble(fields.get(7)));
+                    put(track, features);
+                    loaded++;
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping audio features line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Row of a track, or -1 if it has no features
+     */
+    int rowOf(Track track) {
+        lock.readLock().lock();
+        try {
+            Integer row = rows.get(TrackId.of(track));
+            return row == null ? -1 : row;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rows of several tracks under one lock, -1 for tracks without features
+     */
+    int[] rowsOf(List<Track> tracks) {
+        int[] result = new int[tracks.size()];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < result.length; i++) {
+                Integer row = rows.get(TrackId.of(tracks.get(i)));
+                result[i] = row == null ? -1 : row;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Average (scaled) feature vector of the given rows, ignoring -1 entries
+     *
+     * @return null if no row is valid
+     */
+    float[] centroid(int[] rowIds) {
+        lock.readLock().lock();
+        try {
+            float[] sum = new float[DIMENSIONS];
+            int n = 0;
+            for (int row : rowIds) {
+                if (row < 0) {
+                    continue;
+                }
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    sum[d] += columns[d][row];
+                }
+                n++;
+            }
+            if (n == 0) {
+                return null;
+            }
+            for (int d = 0; d < DIMENSIONS; d++) {
+                sum[d] /= n;
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Weighted Euclidean distance from query to each row, NaN for -1 entries
+     */
+    float[] distances(int[] rowIds, float[] query, float[] weights) {
+        float[] result = new float[rowIds.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < rowIds.length; i++) {
+                int row = rowIds[i];
+                if (row < 0) {
+                    result[i] = Float.NaN;
+                    continue;
+                }
+                float sum = 0;
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    float diff = columns[d][row] - query[d];
+                    sum += weights[d] * diff * diff;
+                }
+                result[i] = (float) Math.sqrt(sum);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of one row's (scaled) feature vector
+     */
+    float[] vector(int row) {
+        lock.readLock().lock();
+        try {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = columns[d][row];
+            }
+            return vector;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Track (name and artist) stored in a row
+     */
+    Track track(int row) {
+        lock.readLock().lock();
+        try {
+            return new Track(names[row], artists[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert every row the index does not have yet, in row order so node id == row
+     * Rows whose features were replaced after indexing keep their old vector
+     *
+     * @return number of rows added
+     */
+    public int indexInto(HnswIndex index) {
+        synchronized (index) {
+            int added = 0;
+            for (int row = index.size(); row < getSize(); row++) {
+                index.add(vector(row));
+                added++;
+            }
+            return added;
+        }
+    }
+
+    /**
+     * Whether an index (e.g. loaded from disk) was built from these rows
+     * Compares up to 16 evenly spaced rows instead of the whole store
+     */
+    public boolean isIndexedBy(HnswIndex index) {
+        int indexed = index.size();
+        if (indexed > getSize()) {
+            return false;
+        }
+        for (int i = 0; i < 16 && indexed > 0; i++) {
+            int row = (int) ((long) i * (indexed - 1) / 15);
+            if (!Arrays.equals(vector(row), index.vector(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The k rows closest to query, best first, skipping the excluded rows
+     *
+     * @param query   scaled feature vector (tempo divided by TEMPO_SCALE)
+     * @param weights per-dimension weight
+     * @return tracks with matchScore = 1 / (1 + distance) for EUCLIDEAN,
+     *         cosine similarity for COSINE
+     */
+    public List<Track> nearest(float[] query, float[] weights, Metric metric, int k, int[] exclude) {
+        lock.readLock().lock();
+        try {
+            int count = Math.max(0, Math.min(k, size));
+            int[] best = new int[count];
+            float[] bestDistance = new float[count];
+            int found = 0;
+
+            float queryNorm = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                queryNorm += weights[d] * query[d] * query[d];
+            }
+            queryNorm = (float) Math.sqrt(queryNorm);
+
+            float[] acc = new float[BLOCK];
+            float[] norm = new float[BLOCK];
+            for (int start = 0; start < size && count > 0; start += BLOCK) {
+                int n = Math.min(BLOCK, size - start);
+                Arrays.fill(acc, 0, n, 0f);
+                if (metric == Metric.EUCLIDEAN) {
+                    for (int d = 0; d < DIMENSIONS; d++) {
+                        float[] column = columns[d];
+                        float q = query[d];
+                        float w = weights[d];
+                        for (int i = 0; i < n; i++) {
+                            float diff = column[start + i] - q;
+                            acc[i] += w * diff * diff;
+                        }
+                    }
+                } else {
+                    Arrays.fill(norm, 0, n, 0f);
+                    for (int d = 0; d < DIMENSIONS; d++) {
+                        float[] column = columns[d];
+                        float wq = weights[d] * query[d];
+                        float w = weights[d];
+                        for (int i = 0; i < n; i++) {
+                            float x = column[start + i];
+                            acc[i] += wq * x;
+                            norm[i] += w * x * x;
+                        }
+                    }
+                    // Cosine distance = 1 - similarity, so lower is better in both metrics
+                    for (int i = 0; i < n; i++) {
+                        float denominator = queryNorm * (float) Math.sqrt(norm[i]);
+                        acc[i] = denominator > 0 ? 1 - acc[i] / denominator : 1;
+                    }
+                }
+
+                for (int i = 0; i < n; i++) {
+                    float distance = acc[i];
+                    if (found == count && distance >= bestDistance[count - 1]) {
+                        continue;
+                    }
+                    int row = start + i;
+                    if (contains(exclude, row)) {
+                        continue;
+                    }
+                    int pos = found < count ? found++ : count - 1;
+                    while (pos > 0 && bestDistance[pos - 1] > distance) {
+                        best[pos] = best[pos - 1];
+                        bestDistance[pos] = bestDistance[pos - 1];
+                        pos--;
+                    }
+                    best[pos] = row;
+                    bestDistance[pos] = distance;
+                }
+            }
+
+            List<Track> result = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                Track track = new Track(names[best[i]], artists[best[i]]);
+                float distance = bestDistance[i];
+                track.setMatchScore(metric == Metric.EUCLIDEAN
+                        ? 1 / (1 + Math.sqrt(distance))
+                        : 1 - distance);
+                result.add(track);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Excluded rows are the handful of seeds, a linear scan beats a set
+    private static boolean contains(int[] rows, int row) {
+        for (int r : rows) {
+            if (r == row) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        artists = Arrays.copyOf(artists, capacity);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            columns[d] = Arrays.copyOf(columns[d], capacity);
+        }
+    }
+
+    // Comma separated, double quotes around fields that contain commas ("" is a literal quote)
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Recommends the tracks that sound most like the seeds, using only the local AudioFeatureStore
+ * The query is the average feature vector of the seeds the store knows, and
+ * the result is its k nearest neighbours by weighted Euclidean or cosine
+ * distance. No Last.fm calls are made unless a fallback is given and none of
+ * the seeds have features
+ * Demonstrates Polymorphism - implements RecommendationStrategy
+ */
+public class AudioFeatureStrategy implements RecommendationStrategy {
+    private final AudioFeatureStore store;
+    private final RecommendationStrategy fallback;
+    private final AudioFeatureStore.Metric metric;
+    private final float[] weights;
+
+    public AudioFeatureStrategy(AudioFeatureStore store) {
+        this(store, null);
+    }
+
+    /**
+     * @param fallback used when no seed has features, or null to return nothing
+     */
+    public AudioFeatureStrategy(AudioFeatureStore store, RecommendationStrategy fallback) {
+        this(store, fallback, AudioFeatureStore.Metric.valueOf(Config.AUDIO_FEATURE_METRIC), Config.AUDIO_FEATURE_WEIGHTS);
+    }
+
+    public AudioFeatureStrategy(AudioFeatureStore store, RecommendationStrategy fallback,
+                                AudioFeatureStore.Metric metric, float[] weights) {
+        if (weights.length != AudioFeatureStore.DIMENSIONS) {
+            throw new IllegalArgumentException("Expected " + AudioFeatureStore.DIMENSIONS + " weights");
+        }
+        this.store = store;
+        this.fallback = fallback;
+        this.metric = metric;
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        List<Track> local = nearest(userTracks, count);
+        if (local != null) {
+            return local;
+        }
+        return fallback != null ? fallback.recommend(userTracks, count) : new ArrayList<>();
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        List<Track> local = nearest(userTracks, count);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
+        }
+        return fallback != null ? fallback.recommendAsync(userTracks, count)
+                : CompletableFuture.completedFuture(new ArrayList<>());
+    }
+
+    /**
+     * @return nearest tracks, or null if none of the seeds have features
+     */
+    List<Track> nearest(List<Track> userTracks, int count) {
+        int[] seedRows = store.rowsOf(userTracks);
+        float[] query = store.centroid(seedRows);
+        if (query == null) {
+            return null;
+        }
+        return search(query, Arrays.stream(seedRows).filter(row -> row >= 0).toArray(), count);
+    }
+
+    /**
+     * Nearest rows to the (scaled) query vector, excluding the seed rows
+     * This one is an exact scan over the whole store
+     */
+    List<Track> search(float[] query, int[] seedRows, int count) {
+        return store.nearest(query, weights, metric, count, seedRows);
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Audio Feature Recommendations (offline)";
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+import service.LastFmAPIClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers only from similar-track responses already in the client's memory cache
+ * Never blocks on Last.fm, so it is the cheapest tier of a fallback chain
+ * Demonstrates Polymorphism - implements RecommendationStrategy
+ */
+public class CachedSimilarityStrategy implements RecommendationStrategy {
+    private final LastFmAPIClient apiClient;
+
+    public CachedSimilarityStrategy(LastFmAPIClient apiClient) {
+        this.apiClient = apiClient;
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        if (userTracks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Track seedTrack = userTracks.get(0);
+        List<Track> cached = apiClient.getCachedSimilarTracks(seedTrack.getName(), seedTrack.getArtist(), count);
+        return cached != null ? cached : new ArrayList<>();
+    }
+
+    // Only reads the memory cache
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Cached Similarity Recommendations (no network)";
+    }
+}
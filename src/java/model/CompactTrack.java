@@ -0,0 +1,190 @@
+package model;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Immutable, memory-lean form of a Track for long-lived storage (caches, session history)
+ * Strings are shared through a TrackInterner, the Last.fm page URL is rebuilt
+ * from artist and name when it follows the usual template, the mbid is kept as
+ * a UUID and image URLs as a shared folder plus the file's hex hash. The match
+ * score is per response, so it is not part of this record
+ */
+public final class CompactTrack {
+    private static final String PAGE_PREFIX = "https://www.last.fm/music/";
+    private static final String PAGE_SEPARATOR = "/_/";
+    private static final int HASH_HEX_LENGTH = 32;
+
+    private final TrackId id;
+    private final String name;
+    private final String artist;
+    private final int listeners;
+    private final UUID mbid;          // null if missing or not a UUID (see mbidText)
+    private final String mbidText;
+    private final String url;         // null when derivable from the template
+    private final boolean templateUrl;
+    private final String imageFolder; // everything up to the last '/'
+    private final boolean imageHashed;
+    private final long imageHashHigh;
+    private final long imageHashLow;
+    private final String imageFile;   // ".<ext>" when hashed, else the whole file name
+
+    CompactTrack(Track track, TrackInterner strings) {
+        this.id = TrackId.of(track);
+        this.name = strings.intern(track.getName());
+        this.artist = strings.intern(track.getArtist());
+        this.listeners = track.getListeners();
+
+        UUID parsed = parseUuid(track.getMbid());
+        this.mbid = parsed;
+        this.mbidText = parsed == null ? track.getMbid() : null;
+
+        String pageUrl = track.getUrl();
+        this.templateUrl = pageUrl != null && name != null && artist != null && pageUrl.equals(pageUrl(artist, name));
+        this.url = templateUrl ? null : pageUrl;
+
+        String image = track.getImageUrl();
+        if (image == null) {
+            imageFolder = null;
+            imageHashed = false;
+            imageHashHigh = 0;
+            imageHashLow = 0;
+            imageFile = null;
+        } else {
+            int cut = image.lastIndexOf('/') + 1;
+            String file = image.substring(cut);
+            imageFolder = strings.intern(image.substring(0, cut));
+            imageHashed = isHexHash(file);
+            if (imageHashed) {
+                imageHashHigh = Long.parseUnsignedLong(file.substring(0, 16), 16);
+                imageHashLow = Long.parseUnsignedLong(file.substring(16, HASH_HEX_LENGTH), 16);
+                imageFile = strings.intern(file.substring(HASH_HEX_LENGTH));
+            } else {
+                imageHashHigh = 0;
+                imageHashLow = 0;
+                imageFile = file;
+            }
+        }
+    }
+
+    public TrackId getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public int getListeners() {
+        return listeners;
+    }
+
+    public String getMbid() {
+        return mbid != null ? mbid.toString() : mbidText;
+    }
+
+    public String getUrl() {
+        return templateUrl ? pageUrl(artist, name) : url;
+    }
+
+    public String getImageUrl() {
+        if (imageFolder == null) {
+            return null;
+        }
+        if (imageHashed) {
+            return imageFolder + hex(imageHashHigh) + hex(imageHashLow) + imageFile;
+        }
+        return imageFolder + imageFile;
+    }
+
+    /**
+     * Mutable Track for callers and the wire, with the given match score
+     */
+    public Track toTrack(double matchScore) {
+        Track track = new Track(name, artist);
+        track.setMbid(getMbid());
+        track.setUrl(getUrl());
+        track.setListeners(listeners);
+        track.setImageUrl(getImageUrl());
+        track.setMatchScore(matchScore);
+        return track;
+    }
+
+    /**
+     * Same metadata as the given track (the match score is ignored)
+     */
+    boolean matches(Track track) {
+        return listeners == track.getListeners()
+                && equal(name, track.getName())
+                && equal(artist, track.getArtist())
+                && equal(getMbid(), track.getMbid())
+                && equal(getUrl(), track.getUrl())
+                && equal(getImageUrl(), track.getImageUrl());
+    }
+
+    /**
+     * Rough heap footprint not counting interned strings, which are shared
+     */
+    long estimateBytes() {
+        long bytes = 80;
+        if (mbid != null) {
+            bytes += 32;
+        } else if (mbidText != null) {
+            bytes += 40 + 2L * mbidText.length();
+        }
+        if (url != null) {
+            bytes += 40 + 2L * url.length();
+        }
+        if (imageFile != null && !imageHashed) {
+            bytes += 40 + 2L * imageFile.length();
+        }
+        return bytes;
+    }
+
+    // Last.fm track page: artist and name form-encoded (spaces as '+')
+    private static String pageUrl(String artist, String name) {
+        return PAGE_PREFIX + URLEncoder.encode(artist, StandardCharsets.UTF_8)
+                + PAGE_SEPARATOR + URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    private static UUID parseUuid(String mbid) {
+        if (mbid == null || mbid.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(mbid);
+            // Only keep it as a UUID if it prints back exactly the same
+            return uuid.toString().equals(mbid) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // <32 lower-case hex digits>.<ext>, the shape of Last.fm image file names
+    private static boolean isHexHash(String file) {
+        if (file.length() <= HASH_HEX_LENGTH || file.charAt(HASH_HEX_LENGTH) != '.') {
+            return false;
+        }
+        for (int i = 0; i < HASH_HEX_LENGTH; i++) {
+            char c = file.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
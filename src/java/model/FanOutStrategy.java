@@ -0,0 +1,229 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs a single-seed strategy for every seed concurrently and merges the answers
+ * At most maxParallel lookups are in flight and each one has its own deadline,
+ * so total latency is about one upstream round trip for a handful of seeds.
+ * A track's score is the seed-weighted sum of its match scores, duplicates
+ * (same mbid, or same artist + name) are merged and the top N are kept in a
+ * bounded heap. Only when every lookup fails does the whole call fail
+ * Demonstrates Composition - wraps another RecommendationStrategy
+ */
+public class FanOutStrategy implements RecommendationStrategy {
+    private final RecommendationStrategy perSeed;
+    private final int maxParallel;
+    private final long deadlineMillis;
+
+    public FanOutStrategy(RecommendationStrategy perSeed) {
+        this(perSeed, Config.FANOUT_MAX_PARALLEL, Config.FANOUT_DEADLINE_MILLIS);
+    }
+
+    public FanOutStrategy(RecommendationStrategy perSeed, int maxParallel, long deadlineMillis) {
+        this.perSeed = perSeed;
+        this.maxParallel = Math.max(1, maxParallel);
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        return recommendAsync(userTracks, count).join();
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        return recommendAsync(userTracks, count, tracks -> {});
+    }
+
+    /**
+     * Progress gets the merge of the lookups answered so far, after each one
+     */
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count,
+                                                         Consumer<List<Track>> progress) {
+        if (userTracks.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<List<Track>> answered = new ArrayList<>();
+        return fetchAll(userTracks, count, tracks -> {
+            List<Track> best;
+            synchronized (answered) {
+                answered.add(tracks);
+                best = merge(userTracks, answered, count);
+            }
+            progress.accept(best);
+        }).thenApply(results -> merge(userTracks, results, count));
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return perSeed.isNonBlocking();
+    }
+
+    /**
+     * Start lookups as earlier ones finish, keeping at most maxParallel in flight
+     * A lookup that fails or misses its deadline contributes nothing
+     */
+    private CompletableFuture<List<List<Track>>> fetchAll(List<Track> seeds, int count, Consumer<List<Track>> onAnswer) {
+        int n = seeds.size();
+        List<CompletableFuture<List<Track>>> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            results.add(new CompletableFuture<>());
+        }
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable launch = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i >= n) {
+                    return;
+                }
+                CompletableFuture<List<Track>> lookup;
+                try {
+                    lookup = perSeed.recommendAsync(List.of(seeds.get(i)), count);
+                } catch (RuntimeException e) {
+                    lookup = CompletableFuture.failedFuture(e);
+                }
+                lookup.orTimeout(deadlineMillis, TimeUnit.MILLISECONDS)
+                        .whenComplete((tracks, error) -> {
+                            if (error != null) {
+                                System.err.println("Seed lookup failed for " + seeds.get(i) + ": " + error);
+                                firstError.compareAndSet(null, error);
+                                failed.incrementAndGet();
+                            } else if (tracks != null && !tracks.isEmpty()) {
+                                onAnswer.accept(tracks);
+                            }
+                            results.get(i).complete(error == null && tracks != null ? tracks : List.of());
+                            run();
+                        });
+            }
+        };
+        for (int i = 0; i < Math.min(maxParallel, n); i++) {
+            launch.run();
+        }
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    if (failed.get() == n) {
+                        Throwable error = firstError.get();
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    List<List<Track>> all = new ArrayList<>(n);
+                    for (CompletableFuture<List<Track>> result : results) {
+                        all.add(result.join());
+                    }
+                    return all;
+                });
+    }
+
+    /**
+     * Weighted merge with dedup, then top N by score (ties keep first-seen order)
+     */
+    static List<Track> merge(List<Track> seeds, List<List<Track>> results, int count) {
+        Set<String> seedKeys = new HashSet<>();
+        for (Track seed : seeds) {
+            String key = nameKey(seed);
+            if (key != null) {
+                seedKeys.add(key);
+            }
+        }
+
+        double seedWeight = 1.0 / seeds.size();
+        Map<String, Candidate> byName = new HashMap<>();
+        Map<String, Candidate> byMbid = new HashMap<>();
+        List<Candidate> candidates = new ArrayList<>();
+        for (List<Track> tracks : results) {
+            for (Track track : tracks) {
+                String name = nameKey(track);
+                String mbid = track.getMbid();
+                if (name == null ? mbid == null : seedKeys.contains(name)) {
+                    continue;
+                }
+                Candidate candidate = name != null ? byName.get(name) : null;
+                if (candidate == null && mbid != null) {
+                    candidate = byMbid.get(mbid);
+                }
+                if (candidate == null) {
+                    candidate = new Candidate(new Track(track), candidates.size());
+                    candidates.add(candidate);
+                }
+                candidate.score += seedWeight * track.getMatchScore();
+                if (name != null) {
+                    byName.putIfAbsent(name, candidate);
+                }
+                if (mbid != null) {
+                    byMbid.putIfAbsent(mbid, candidate);
+                }
+            }
+        }
+
+        // Min-heap of the best `count` so far: the root is the weakest kept result
+        Comparator<Candidate> ranking = Comparator.comparingDouble((Candidate c) -> c.score)
+                .thenComparing(c -> -c.order);
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(Math.max(1, count), ranking);
+        for (Candidate candidate : candidates) {
+            if (heap.size() < count) {
+                heap.add(candidate);
+            } else if (count > 0 && ranking.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        List<Track> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Candidate candidate = heap.poll();
+            candidate.track.setMatchScore(candidate.score);
+            top.add(candidate.track);
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    /**
+     * Artist + name key, or null when either is missing (such tracks only match by mbid)
+     */
+    private static String nameKey(Track track) {
+        if (track.getArtist() == null || track.getName() == null) {
+            return null;
+        }
+        return track.getArtist().trim().toLowerCase(Locale.ROOT) + '\u0000' + track.getName().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Candidate {
+        final Track track;
+        final int order;
+        double score;
+
+        Candidate(Track track, int order) {
+            this.track = track;
+            this.order = order;
+        }
+    }
+
+    @Override
+    public String getStrategyName() {
+        return perSeed.getStrategyName() + " (all seeds)";
+    }
+}
@@ -0,0 +1,100 @@
+package model;
+
+import service.Config;
+import service.LastFmAPIClient;
+import org.apache.hc.core5.http.ParseException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Recommends from the local SimilarityGraph when the seed has been seen before,
+ * and only asks Last.fm (then records the answer in the graph) when it hasn't
+ * Without an API client it answers from the graph only, returning nothing for unknown seeds
+ * Demonstrates Polymorphism - implements RecommendationStrategy
+ */
+public class GraphSimilarityStrategy implements RecommendationStrategy {
+    private final SimilarityGraph graph;
+    private final LastFmAPIClient apiClient;
+
+    public GraphSimilarityStrategy(SimilarityGraph graph, LastFmAPIClient apiClient) {
+        this.graph = graph;
+        this.apiClient = apiClient;
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        if (userTracks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Track seedTrack = userTracks.get(0);
+        List<Track> local = graph.recommend(seedTrack.getName(), seedTrack.getArtist(), count);
+        if (local != null) {
+            return local;
+        }
+        if (apiClient == null) {
+            return new ArrayList<>();
+        }
+
+        try {
+            int limit = Math.max(count, Config.SIMILAR_FETCH_LIMIT);
+            List<Track> similar = apiClient.getSimilarTracks(seedTrack.getName(), seedTrack.getArtist(), limit);
+            learn(seedTrack, limit, similar);
+            return firstN(similar, count);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } catch (ParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        if (userTracks.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        Track seedTrack = userTracks.get(0);
+        List<Track> local = graph.recommend(seedTrack.getName(), seedTrack.getArtist(), count);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
+        }
+        if (apiClient == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        int limit = Math.max(count, Config.SIMILAR_FETCH_LIMIT);
+        return apiClient.getSimilarTracksAsync(seedTrack.getName(), seedTrack.getArtist(), limit)
+                .thenApply(similar -> {
+                    learn(seedTrack, limit, similar);
+                    return firstN(similar, count);
+                });
+    }
+
+    // A graph lookup is a few array reads, anything slower is handed to the async client
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    // Cached answers (e.g. from the disk tier after a restart) never reach the
+    // client's listener, so record whatever the fallback returned
+    private void learn(Track seedTrack, int count, List<Track> similar) {
+        if (!similar.isEmpty()) {
+            graph.addSimilar(seedTrack.getName(), seedTrack.getArtist(), count, similar);
+        }
+    }
+
+    private static List<Track> firstN(List<Track> tracks, int count) {
+        return tracks.size() <= count ? tracks : new ArrayList<>(tracks.subList(0, count));
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Graph Similarity Recommendations (local graph, Last.fm fallback)";
+    }
+}
@@ -0,0 +1,64 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AudioFeatureStrategy backed by an HnswIndex instead of a full scan
+ * Answers in roughly logarithmic time for catalogs far too big to scan per
+ * request, at the price of occasionally missing one of the true nearest
+ * tracks (see getEfSearch/setEfSearch on the index). Rows added to the store
+ * after the index was built are inserted before the next query
+ * Demonstrates Inheritance - reuses the seed handling of AudioFeatureStrategy
+ */
+public class HnswAudioFeatureStrategy extends AudioFeatureStrategy {
+    private final AudioFeatureStore store;
+    private final HnswIndex index;
+
+    public HnswAudioFeatureStrategy(AudioFeatureStore store, HnswIndex index) {
+        this(store, index, null);
+    }
+
+    /**
+     * @param fallback used when no seed has features, or null to return nothing
+     */
+    public HnswAudioFeatureStrategy(AudioFeatureStore store, HnswIndex index, RecommendationStrategy fallback) {
+        super(store, fallback, AudioFeatureStore.Metric.EUCLIDEAN, Config.AUDIO_FEATURE_WEIGHTS);
+        this.store = store;
+        this.index = index;
+    }
+
+    @Override
+    List<Track> search(float[] query, int[] seedRows, int count) {
+        store.indexInto(index);
+        HnswIndex.Result nearest = index.search(query, count + seedRows.length);
+
+        List<Track> result = new ArrayList<>(count);
+        for (int i = 0; i < nearest.ids.length && result.size() < count; i++) {
+            int row = nearest.ids[i];
+            if (isSeed(seedRows, row)) {
+                continue;
+            }
+            Track track = store.track(row);
+            track.setMatchScore(1 / (1 + Math.sqrt(nearest.distances[i])));
+            result.add(track);
+        }
+        return result;
+    }
+
+    private static boolean isSeed(int[] seedRows, int row) {
+        for (int seed : seedRows) {
+            if (seed == row) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Audio Feature Recommendations (HNSW index)";
+    }
+}
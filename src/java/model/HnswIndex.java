@@ -0,0 +1,596 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour search
+ * Node ids are dense (0, 1, 2, ... in insertion order) so they can be the row
+ * numbers of an AudioFeatureStore. Each node links to its closest neighbours on
+ * layer 0 (up to 2M links) and on a random number of sparser upper layers (up
+ * to M links); a query walks greedily down the upper layers and then runs a
+ * best-first search with efSearch candidates on layer 0. Distance is weighted
+ * squared Euclidean. Inserts take the write lock, queries share the read lock
+ *
+ * Everything lives in flat primitive arrays, which is also the on-disk layout:
+ * save() writes them out and load() memory-maps the file and bulk-copies them back
+ */
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 8;
+
+    private final int dims;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final float[] weights;
+    private final double levelMultiplier;
+    private final Random random;
+    private volatile int efSearch;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;  // node * dims
+    private int[] levels;
+    private int[] layer0;     // node * (maxM0 + 1): link count, then the links
+    private int[][] upper;    // upper[node]: (layer - 1) * (m + 1), same shape per upper layer
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param m              links per node on upper layers (layer 0 gets 2m)
+     * @param efConstruction candidate list size while inserting; higher builds a better graph, slower
+     * @param efSearch       default candidate list size for queries; higher gives better recall, slower
+     * @param weights        per-dimension weights of the distance
+     */
+    public HnswIndex(int dims, int m, int efConstruction, int efSearch, float[] weights, long seed) {
+        if (weights.length != dims) {
+            throw new IllegalArgumentException("Expected " + dims + " weights");
+        }
+        this.dims = dims;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.weights = weights.clone();
+        this.levelMultiplier = 1 / Math.log(this.m);
+        this.random = new Random(seed);
+        allocate(1024);
+    }
+
+    /**
+     * Search results, closest first
+     */
+    public static final class Result {
+        public final int[] ids;
+        public final float[] distances; // weighted squared Euclidean
+
+        Result(int[] ids, float[] distances) {
+            this.ids = ids;
+            this.distances = distances;
+        }
+    }
+
+    /**
+     * Insert a vector
+     *
+     * @return its node id, always the previous size()
+     */
+    public int add(float[] vector) {
+        if (vector.length != dims) {
+            throw new IllegalArgumentException("Expected " + dims + " dimensions");
+        }
+        lock.writeLock().lock();
+        try {
+            if (size == levels.length) {
+                allocate(size * 2);
+            }
+            int node = size;
+            System.arraycopy(vector, 0, vectors, node * dims, dims);
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            levels[node] = level;
+            upper[node] = level > 0 ? new int[level * (m + 1)] : null;
+            layer0[node * (maxM0 + 1)] = 0;
+            size++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            int current = entryPoint;
+            float currentDistance = distance(vector, current);
+            for (int layer = maxLevel; layer > level; layer--) {
+                current = greedy(vector, current, layer);
+                currentDistance = distance(vector, current);
+            }
+
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                NodeHeap found = searchLayer(vector, current, currentDistance, efConstruction, layer);
+                int count = found.size();
+                int[] ids = new int[count];
+                float[] distances = new float[count];
+                for (int i = count - 1; i >= 0; i--) {
+                    distances[i] = found.peekKey();
+                    ids[i] = found.pop();
+                }
+
+                int[] selected = selectNeighbours(node, ids, distances, count, m);
+                setLinks(node, layer, selected, selected.length);
+                for (int neighbour : selected) {
+                    link(neighbour, node, layer);
+                }
+                current = ids[0];
+                currentDistance = distances[0];
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k approximate nearest neighbours of query using the default efSearch
+     */
+    public Result search(float[] query, int k) {
+        return search(query, k, efSearch);
+    }
+
+    public Result search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (size == 0 || k <= 0) {
+                return new Result(new int[0], new float[0]);
+            }
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedy(query, current, layer);
+            }
+            NodeHeap found = searchLayer(query, current, distance(query, current), Math.max(ef, k), 0);
+            while (found.size() > k) {
+                found.pop();
+            }
+            int count = found.size();
+            int[] ids = new int[count];
+            float[] distances = new float[count];
+            for (int i = count - 1; i >= 0; i--) {
+                distances[i] = found.peekKey();
+                ids[i] = found.pop();
+            }
+            return new Result(ids, distances);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walk to the closest neighbour until none is closer (upper layers use ef = 1)
+    private int greedy(float[] query, int current, int layer) {
+        float currentDistance = distance(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] links = links(current, layer);
+            int base = base(current, layer);
+            for (int i = 1; i <= links[base]; i++) {
+                int candidate = links[base + i];
+                float d = distance(query, candidate);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer
+     *
+     * @return max-heap of the ef closest nodes found
+     */
+    private NodeHeap searchLayer(float[] query, int entry, float entryDistance, int ef, int layer) {
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap results = new NodeHeap(ef + 1, true);
+        IntSet visited = new IntSet(ef * 4);
+        visited.add(entry);
+        candidates.push(entry, entryDistance);
+        results.push(entry, entryDistance);
+
+        while (candidates.size() > 0) {
+            float closest = candidates.peekKey();
+            if (results.size() >= ef && closest > results.peekKey()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] links = links(current, layer);
+            int base = base(current, layer);
+            for (int i = 1; i <= links[base]; i++) {
+                int neighbour = links[base + i];
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, neighbour);
+                if (results.size() < ef || d < results.peekKey()) {
+                    candidates.push(neighbour, d);
+                    results.push(neighbour, d);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the
+     * node than to every neighbour already kept, which spreads links in different
+     * directions; top up with the closest rejected ones if there is room
+     */
+    private int[] selectNeighbours(int node, int[] ids, float[] distances, int count, int max) {
+        int[] selected = new int[Math.min(max, count)];
+        int kept = 0;
+        boolean[] used = new boolean[count];
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            boolean good = true;
+            for (int j = 0; j < kept; j++) {
+                if (distance(ids[i], selected[j]) < distances[i]) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                selected[kept++] = ids[i];
+                used[i] = true;
+            }
+        }
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            if (!used[i]) {
+                selected[kept++] = ids[i];
+            }
+        }
+        return selected;
+    }
+
+    // Add a back-link from node to target, re-selecting node's links when full
+    private void link(int node, int target, int layer) {
+        int[] links = links(node, layer);
+        int base = base(node, layer);
+        int count = links[base];
+        int capacity = layer == 0 ? maxM0 : m;
+        if (count < capacity) {
+            links[base + 1 + count] = target;
+            links[base] = count + 1;
+            return;
+        }
+
+        int[] ids = new int[count + 1];
+        float[] distances = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            ids[i] = links[base + 1 + i];
+            distances[i] = distance(node, ids[i]);
+        }
+        ids[count] = target;
+        distances[count] = distance(node, target);
+        sortByDistance(ids, distances);
+        int[] selected = selectNeighbours(node, ids, distances, ids.length, capacity);
+        setLinks(node, layer, selected, selected.length);
+    }
+
+    private void setLinks(int node, int layer, int[] selected, int count) {
+        int[] links = links(node, layer);
+        int base = base(node, layer);
+        links[base] = count;
+        System.arraycopy(selected, 0, links, base + 1, count);
+    }
+
+    private int[] links(int node, int layer) {
+        return layer == 0 ? layer0 : upper[node];
+    }
+
+    private int base(int node, int layer) {
+        return layer == 0 ? node * (maxM0 + 1) : (layer - 1) * (m + 1);
+    }
+
+    private float distance(float[] query, int node) {
+        int offset = node * dims;
+        float sum = 0;
+        for (int d = 0; d < dims; d++) {
+            float diff = vectors[offset + d] - query[d];
+            sum += weights[d] * diff * diff;
+        }
+        return sum;
+    }
+
+    private float distance(int a, int b) {
+        int offsetA = a * dims;
+        int offsetB = b * dims;
+        float sum = 0;
+        for (int d = 0; d < dims; d++) {
+            float diff = vectors[offsetA + d] - vectors[offsetB + d];
+            sum += weights[d] * diff * diff;
+        }
+        return sum;
+    }
+
+    // Insertion sort, lists are at most 2M + 1 long
+    private static void sortByDistance(int[] ids, float[] distances) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float d = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > d) {
+                ids[j + 1] = ids[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            distances[j + 1] = d;
+        }
+    }
+
+    private void allocate(int capacity) {
+        vectors = vectors == null ? new float[capacity * dims] : Arrays.copyOf(vectors, capacity * dims);
+        levels = levels == null ? new int[capacity] : Arrays.copyOf(levels, capacity);
+        layer0 = layer0 == null ? new int[capacity * (maxM0 + 1)] : Arrays.copyOf(layer0, capacity * (maxM0 + 1));
+        upper = upper == null ? new int[capacity][] : Arrays.copyOf(upper, capacity);
+    }
+
+    /**
+     * Write the index to a file (via a temp file, so a crash never leaves half an index)
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dims);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(size);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (float weight : weights) {
+                    out.writeFloat(weight);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(levels[i]);
+                }
+                for (int i = 0; i < size * dims; i++) {
+                    out.writeFloat(vectors[i]);
+                }
+                for (int i = 0; i < size * (maxM0 + 1); i++) {
+                    out.writeInt(layer0[i]);
+                }
+                for (int node = 0; node < size; node++) {
+                    if (upper[node] != null) {
+                        for (int link : upper[node]) {
+                            out.writeInt(link);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Map a file written by save() and copy its arrays in bulk
+     */
+    public static HnswIndex load(Path file, int efSearch) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_INTS * 4 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not an HNSW index file: " + file);
+            }
+            int dims = buffer.getInt();
+            int m = buffer.getInt();
+            int efConstruction = buffer.getInt();
+            int size = buffer.getInt();
+            int entryPoint = buffer.getInt();
+            int maxLevel = buffer.getInt();
+            float[] weights = new float[dims];
+            for (int d = 0; d < dims; d++) {
+                weights[d] = buffer.getFloat();
+            }
+
+            HnswIndex index = new HnswIndex(dims, m, efConstruction, efSearch, weights, size);
+            index.allocate(Math.max(size, 1024));
+            try {
+                readInts(buffer, index.levels, size);
+                readFloats(buffer, index.vectors, size * dims);
+                readInts(buffer, index.layer0, size * (index.maxM0 + 1));
+                for (int node = 0; node < size; node++) {
+                    int level = index.levels[node];
+                    if (level > 0) {
+                        index.upper[node] = new int[level * (index.m + 1)];
+                        readInts(buffer, index.upper[node], index.upper[node].length);
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt HNSW index file: " + file, e);
+            }
+            index.size = size;
+            index.entryPoint = entryPoint;
+            index.maxLevel = maxLevel;
+            return index;
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] target, int count) {
+        buffer.slice().asIntBuffer().get(target, 0, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    private static void readFloats(ByteBuffer buffer, float[] target, int count) {
+        buffer.slice().asFloatBuffer().get(target, 0, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    /**
+     * Copy of a node's vector
+     */
+    public float[] vector(int node) {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOfRange(vectors, node * dims, node * dims + dims);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Binary heap of (distance, node) pairs in parallel primitive arrays
+     */
+    private static final class NodeHeap {
+        private final boolean max;
+        private float[] keys;
+        private int[] nodes;
+        private int size;
+
+        NodeHeap(int capacity, boolean max) {
+            this.max = max;
+            this.keys = new float[Math.max(4, capacity)];
+            this.nodes = new int[keys.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekKey() {
+            return keys[0];
+        }
+
+        void push(int node, float key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(key, keys[parent])) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            float key = keys[size];
+            int node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && above(keys[child + 1], keys[child])) {
+                    child++;
+                }
+                if (!above(keys[child], key)) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            return top;
+        }
+
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Open-addressing set of node ids, sized for one search
+     */
+    private static final class IntSet {
+        private int[] table;
+        private int size;
+
+        IntSet(int expected) {
+            table = new int[Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1];
+            Arrays.fill(table, -1);
+        }
+
+        boolean add(int value) {
+            if (size * 2 >= table.length) {
+                int[] old = table;
+                table = new int[old.length * 2];
+                Arrays.fill(table, -1);
+                size = 0;
+                for (int v : old) {
+                    if (v >= 0) {
+                        add(v);
+                    }
+                }
+            }
+            int mask = table.length - 1;
+            int slot = (value * 0x9E3779B9) >>> 7 & mask;
+            while (table[slot] >= 0) {
+                if (table[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+            size++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Re-ranks a pool of candidates from another strategy by a weighted blend of signals:
+ * - match: the candidate's matchScore from the source strategy (Last.fm similarity)
+ * - popularity: log(1 + listeners), relative to the most listened candidate
+ * - audio: 1 / (1 + distance) between the candidate's audio features and the
+ *   seeds' average, when both are in the AudioFeatureStore
+ * A signal a candidate has no data for is left out and the remaining weights
+ * are rescaled, so tracks without audio features are not pushed down
+ * Demonstrates Composition - wraps another RecommendationStrategy
+ */
+public class HybridStrategy implements RecommendationStrategy {
+    // Below this many candidates one thread beats the fork/join overhead
+    private static final int PARALLEL_CANDIDATE_THRESHOLD = 4096;
+
+    private final RecommendationStrategy candidates;
+    private final AudioFeatureStore audioFeatures;
+    private final int poolSize;
+    private final double matchWeight;
+    private final double popularityWeight;
+    private final double audioWeight;
+    private final float[] audioWeights;
+
+    public HybridStrategy(RecommendationStrategy candidates, AudioFeatureStore audioFeatures) {
+        this(candidates, audioFeatures, Config.HYBRID_POOL_SIZE, Config.HYBRID_MATCH_WEIGHT,
+                Config.HYBRID_POPULARITY_WEIGHT, Config.HYBRID_AUDIO_WEIGHT);
+    }
+
+    /**
+     * @param poolSize how many candidates to ask the source strategy for
+     */
+    public HybridStrategy(RecommendationStrategy candidates, AudioFeatureStore audioFeatures, int poolSize,
+                          double matchWeight, double popularityWeight, double audioWeight) {
+        this.candidates = candidates;
+        this.audioFeatures = audioFeatures;
+        this.poolSize = poolSize;
+        this.matchWeight = matchWeight;
+        this.popularityWeight = popularityWeight;
+        this.audioWeight = audioWeight;
+        this.audioWeights = Config.AUDIO_FEATURE_WEIGHTS.clone();
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        return rerank(userTracks, candidates.recommend(userTracks, Math.max(count, poolSize)), count);
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        return candidates.recommendAsync(userTracks, Math.max(count, poolSize))
+                .thenApply(pool -> rerank(userTracks, pool, count));
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return candidates.isNonBlocking();
+    }
+
+    /**
+     * Score every candidate and keep the best count, best first
+     * Returned tracks are copies with matchScore set to the blended score
+     */
+    public List<Track> rerank(List<Track> userTracks, List<Track> pool, int count) {
+        int n = pool.size();
+        if (n == 0 || count <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Audio distances for the whole pool in one pass under the store's lock
+        float[] audioDistance = null;
+        if (audioWeight > 0 && audioFeatures != null) {
+            float[] query = audioFeatures.centroid(audioFeatures.rowsOf(userTracks));
+            if (query != null) {
+                audioDistance = audioFeatures.distances(audioFeatures.rowsOf(pool), query, audioWeights);
+            }
+        }
+
+        int maxListeners = 0;
+        for (Track track : pool) {
+            maxListeners = Math.max(maxListeners, track.getListeners());
+        }
+        double popularityScale = maxListeners > 0 ? 1 / Math.log1p(maxListeners) : 0;
+
+        double[] scores = new double[n];
+        float[] distances = audioDistance;
+        IntStream indices = IntStream.range(0, n);
+        (n >= PARALLEL_CANDIDATE_THRESHOLD ? indices.parallel() : indices).forEach(i -> {
+            Track track = pool.get(i);
+            double weighted = matchWeight * track.getMatchScore();
+            double weights = matchWeight;
+            if (popularityScale > 0) {
+                weighted += popularityWeight * Math.log1p(Math.max(0, track.getListeners())) * popularityScale;
+                weights += popularityWeight;
+            }
+            if (distances != null && !Float.isNaN(distances[i])) {
+                weighted += audioWeight / (1 + distances[i]);
+                weights += audioWeight;
+            }
+            scores[i] = weights > 0 ? weighted / weights : 0;
+        });
+
+        // Min-heap of the best count so far: the root is the weakest kept result
+        Comparator<Integer> ranking = Comparator.comparingDouble((Integer i) -> scores[i])
+                .thenComparing(i -> -i);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(count, n) + 1, ranking);
+        for (int i = 0; i < n; i++) {
+            if (heap.size() < count) {
+                heap.add(i);
+            } else if (ranking.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+
+        Track[] top = new Track[heap.size()];
+        for (int slot = top.length - 1; slot >= 0; slot--) {
+            int i = heap.poll();
+            Track track = new Track(pool.get(i));
+            track.setMatchScore(scores[i]);
+            top[slot] = track;
+        }
+        return new ArrayList<>(List.of(top));
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Hybrid Recommendations (" + candidates.getStrategyName() + " re-ranked)";
+    }
+}
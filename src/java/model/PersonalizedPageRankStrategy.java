@@ -0,0 +1,163 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Multi-seed recommendations by random walk with restart over the local SimilarityGraph
+ * Every track in userTracks is a restart point; a walker follows similarity
+ * edges (weighted by match score) and jumps back to a seed with probability
+ * alpha at each step. Tracks where the walk spends the most time are
+ * recommended. Runs on a bounded k-hop subgraph, so no upstream calls are made
+ * Demonstrates Polymorphism - implements RecommendationStrategy
+ */
+public class PersonalizedPageRankStrategy implements RecommendationStrategy {
+    private final SimilarityGraph graph;
+    private final RecommendationStrategy fallback;
+    private final float alpha;
+    private final int maxIterations;
+    private final float epsilon;
+    private final int maxHops;
+    private final int maxNodes;
+
+    /**
+     * @param fallback used when none of the seeds are in the graph yet
+     */
+    public PersonalizedPageRankStrategy(SimilarityGraph graph, RecommendationStrategy fallback) {
+        this(graph, fallback, Config.PPR_RESTART_PROBABILITY, Config.PPR_MAX_ITERATIONS,
+                Config.PPR_EPSILON, Config.PPR_MAX_HOPS, Config.PPR_MAX_NODES);
+    }
+
+    public PersonalizedPageRankStrategy(SimilarityGraph graph, RecommendationStrategy fallback, float alpha,
+                                        int maxIterations, float epsilon, int maxHops, int maxNodes) {
+        this.graph = graph;
+        this.fallback = fallback;
+        this.alpha = alpha;
+        this.maxIterations = maxIterations;
+        this.epsilon = epsilon;
+        this.maxHops = maxHops;
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public List<Track> recommend(List<Track> userTracks, int count) {
+        List<Track> local = rank(userTracks, count);
+        return local != null ? local : fallback.recommend(userTracks, count);
+    }
+
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        List<Track> local = rank(userTracks, count);
+        return local != null ? CompletableFuture.completedFuture(local) : fallback.recommendAsync(userTracks, count);
+    }
+
+    /**
+     * @return ranked tracks, or null if the seeds have no edges in the graph
+     */
+    List<Track> rank(List<Track> userTracks, int count) {
+        if (userTracks.isEmpty()) {
+            return null;
+        }
+        SimilarityGraph.Subgraph subgraph = graph.subgraph(userTracks, maxHops, maxNodes);
+        if (subgraph.edgeCount() == 0) {
+            return null;
+        }
+
+        float[] scores = solve(subgraph, alpha, maxIterations, epsilon);
+
+        // Seeds are what the user already has, never recommend them back
+        for (int seed : subgraph.seeds) {
+            scores[seed] = -1;
+        }
+        int[] best = topIndices(scores, count);
+
+        float top = best.length > 0 ? scores[best[0]] : 0;
+        List<Track> result = new ArrayList<>(best.length);
+        for (int local : best) {
+            Track track = graph.track(subgraph, local);
+            if (track == null) {
+                // Compacted while we were ranking, the ids no longer match
+                return null;
+            }
+            // Relative to the best result so scores read like Last.fm match values
+            track.setMatchScore(top > 0 ? scores[local] / top : 0.0);
+            result.add(track);
+        }
+        return result;
+    }
+
+    /**
+     * Power iteration for r = (1 - alpha) * P^T r + alpha * restart
+     * Dangling nodes send their mass back to the restart set
+     * Single-threaded: the subgraph is capped at maxNodes (PPR_MAX_NODES), far too
+     * small for fork/join to pay off
+     */
+    static float[] solve(SimilarityGraph.Subgraph g, float alpha, int maxIterations, float epsilon) {
+        int n = g.size();
+        float[] restart = new float[n];
+        for (int seed : g.seeds) {
+            restart[seed] = 1.0f / g.seeds.length;
+        }
+        float[] rank = restart.clone();
+        float[] next = new float[n];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            float danglingMass = 0;
+            for (int u = 0; u < n; u++) {
+                if (g.dangling[u]) {
+                    danglingMass += rank[u];
+                }
+            }
+            float walk = 1 - alpha;
+            float jump = alpha + walk * danglingMass;
+
+            float delta = 0;
+            for (int v = 0; v < n; v++) {
+                float sum = 0;
+                for (int e = g.inOffsets[v]; e < g.inOffsets[v + 1]; e++) {
+                    sum += rank[g.inSources[e]] * g.inProbability[e];
+                }
+                next[v] = walk * sum + jump * restart[v];
+                delta += Math.abs(next[v] - rank[v]);
+            }
+            float[] swap = rank;
+            rank = next;
+            next = swap;
+            if (delta < epsilon) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    // Indices of the largest positive scores, best first
+    private static int[] topIndices(float[] scores, int count) {
+        int k = Math.max(0, count);
+        if (k == 0) {
+            return new int[0];
+        }
+        int[] best = new int[k];
+        int size = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] <= 0 || (size == k && scores[i] <= scores[best[k - 1]])) {
+                continue;
+            }
+            int pos = size < k ? size++ : k - 1;
+            while (pos > 0 && scores[best[pos - 1]] < scores[i]) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = i;
+        }
+        return size == k ? best : Arrays.copyOf(best, size);
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Personalized PageRank Recommendations (local graph)";
+    }
+}
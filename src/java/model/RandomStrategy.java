@@ -1,35 +1,59 @@
 package model;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomStrategy implements RecommendationStrategy{
     private final List<Track> allTracks;
-    private final Random rndm = new Random();
 
     public RandomStrategy(List<Track> allTracks) {
         this.allTracks = allTracks;
     }
 
+    /**
+     * Picks count distinct tracks with Floyd's sampling, so the work is O(count)
+     * however many tracks have been seen. Returns copies with the match score
+     * cleared instead of touching the shared tracks
+     */
     @Override
     public List<Track> recommend(List<Track> userTracks, int count) {
-        if (allTracks == null || allTracks.isEmpty()) {
+        if (allTracks == null || allTracks.isEmpty() || count <= 0) {
             return Collections.emptyList();
         }
 
-        List<Track> copy = new ArrayList<>(allTracks);
-        Collections.shuffle(copy);
-
-        List<Track> result = copy.subList(0,Math.min(count, copy.size()));
-
-        //Make sure the match score is only displayed in the case that
-        // we are using the similarity based recommendation mode
-        for(Track t : result){
-            t.setMatchScore(0.0);
+        // Hold the list's lock (synchronized lists and SessionHistory both lock on
+        // themselves) so the size stays valid while the picks are read
+        List<Track> result;
+        synchronized (allTracks) {
+            int n = allTracks.size();
+            int k = Math.min(count, n);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            // Floyd: for j in n-k..n-1 take a random t <= j, or j itself if t is taken
+            Set<Integer> picked = new HashSet<>(k * 2);
+            result = new ArrayList<>(k);
+            for (int j = n - k; j < n; j++) {
+                int t = random.nextInt(j + 1);
+                int index = picked.add(t) ? t : j;
+                if (index == j) {
+                    picked.add(j);
+                }
+                result.add(scoreless(allTracks.get(index)));
+            }
         }
-
+        // Floyd picks a uniform set but not a uniform order
+        Collections.shuffle(result, ThreadLocalRandom.current());
         return result;
     }
 
+    //Make sure the match score is only displayed in the case that
+    // we are using the similarity based recommendation mode
+    private static Track scoreless(Track track) {
+        Track copy = new Track(track);
+        copy.setMatchScore(0.0);
+        return copy;
+    }
+
     @Override
     public String getStrategyName() {
         return "Random Recommendation";
@@ -1,24 +1,401 @@
 package model;
 
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Main recommendation engine that uses different strategies
  * Demonstrates Composition and Strategy Pattern
+ *
+ * Strategies are arranged in a fallback chain of tiers (e.g. cache, local
+ * graph, live API, random), each with its own latency budget. Tiers run in
+ * order until enough tracks are collected; whatever a tier returns is kept
+ * and the next tier only has to fill the gap. A tier that fails or misses its
+ * budget is skipped (keeping what it had found by then), so a slow upstream
+ * costs at most its budget. The whole chain has a deadline too, and when it
+ * passes or the last tier runs out the caller gets the partial result
  */
 public class RecommendationEngine {
-    private RecommendationStrategy strategy;
+    // Strategies that compute on the calling thread run here, so their budget can give up on them.
+    // Bounded with no queue: when a slow upstream ties up every thread, tiers are skipped
+    // instead of piling up more threads
+    private static final ExecutorService TIER_EXECUTOR = newTierExecutor(Config.TIER_MAX_THREADS);
+
+    private final ExecutorService tierExecutor;
+    private volatile List<Tier> tiers;
+    private volatile long deadlineMillis = Config.RECOMMEND_DEADLINE_MILLIS;
+
+    /**
+     * One step of the fallback chain
+     */
+    public static class Tier {
+        private final String name;
+        private final RecommendationStrategy strategy;
+        private final long budgetMillis;
+        private final boolean lastResort;
+
+        // Counters (read by the stats endpoint)
+        private final AtomicLong answered = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        /**
+         * @param budgetMillis how long to wait for this tier, 0 for no limit
+         */
+        public Tier(String name, RecommendationStrategy strategy, long budgetMillis) {
+            this(name, strategy, budgetMillis, false);
+        }
+
+        /**
+         * @param lastResort only ask this tier if no earlier one found anything,
+         *                   instead of using it to top up a short answer
+         */
+        public Tier(String name, RecommendationStrategy strategy, long budgetMillis, boolean lastResort) {
+            this.name = name;
+            this.strategy = strategy;
+            this.budgetMillis = budgetMillis;
+            this.lastResort = lastResort;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public RecommendationStrategy getStrategy() {
+            return strategy;
+        }
+
+        public long getBudgetMillis() {
+            return budgetMillis;
+        }
+
+        public boolean isLastResort() {
+            return lastResort;
+        }
+
+        public long getAnswered() {
+            return answered.get();
+        }
+
+        public long getTimeouts() {
+            return timeouts.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * Times the tier was skipped because every tier thread was busy
+         */
+        public long getRejected() {
+            return rejected.get();
+        }
+    }
+
+    /**
+     * Tracks plus which tiers produced them
+     */
+    public static class Result {
+        private final List<Track> tracks;
+        private final String tier;
+        private final boolean partial;
+
+        Result(List<Track> tracks, String tier, boolean partial) {
+            this.tracks = tracks;
+            this.tier = tier;
+            this.partial = partial;
+        }
+
+        public List<Track> getTracks() {
+            return tracks;
+        }
+
+        /**
+         * Name of the tier that answered, "a+b" if several contributed, "none" if nothing did
+         */
+        public String getTier() {
+            return tier;
+        }
+
+        /**
+         * True if fewer tracks than requested were found before the chain ran out
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+    }
 
     public RecommendationEngine(RecommendationStrategy strategy) {
-        this.strategy = strategy;
+        this.tiers = single(strategy);
+        this.tierExecutor = TIER_EXECUTOR;
+    }
+
+    public RecommendationEngine(List<Tier> tiers) {
+        this(tiers, TIER_EXECUTOR);
+    }
+
+    // The executor is injectable so saturation can be tested
+    RecommendationEngine(List<Tier> tiers, ExecutorService tierExecutor) {
+        this.tiers = checked(tiers);
+        this.tierExecutor = tierExecutor;
     }
 
+    static ExecutorService newTierExecutor(int maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-tier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Use a single strategy with no budget or fallback
+     */
     public void setStrategy(RecommendationStrategy strategy) {
-        this.strategy = strategy;
+        this.tiers = single(strategy);
+    }
+
+    public void setTiers(List<Tier> tiers) {
+        this.tiers = checked(tiers);
+    }
+
+    private static List<Tier> single(RecommendationStrategy strategy) {
+        return List.of(new Tier("primary", strategy, 0));
+    }
+
+    private static List<Tier> checked(List<Tier> tiers) {
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("At least one tier is required");
+        }
+        return List.copyOf(tiers);
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * @param deadlineMillis time allowed for the whole chain, 0 for no limit
+     */
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
     }
 
     public List<Track> getRecommendations(List<Track> userTracks, int count) {
-        System.out.println("Using strategy: " + strategy.getStrategyName());
-        return strategy.recommend(userTracks, count);
+        return recommend(userTracks, count).join().getTracks();
+    }
+
+    public CompletableFuture<List<Track>> getRecommendationsAsync(List<Track> userTracks, int count) {
+        return recommend(userTracks, count).thenApply(Result::getTracks);
+    }
+
+    /**
+     * Walk the fallback chain without blocking the calling thread
+     */
+    public CompletableFuture<Result> recommend(List<Track> userTracks, int count) {
+        return recommend(userTracks, count, null);
+    }
+
+    /**
+     * @param onTracks gets the tracks each tier adds to the answer as soon as that tier
+     *                 is done, in final order, so they can be sent before later tiers run
+     */
+    public CompletableFuture<Result> recommend(List<Track> userTracks, int count, Consumer<List<Track>> onTracks) {
+        List<Tier> chain = tiers;
+        System.out.println("Using strategy: " + chain.get(0).strategy.getStrategyName());
+        long deadline = deadlineMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : 0;
+        return runTier(chain, 0, userTracks, count, new Collected(userTracks, count, onTracks), deadline);
+    }
+
+    private CompletableFuture<Result> runTier(List<Tier> chain, int index, List<Track> userTracks, int count,
+                                              Collected collected, long deadline) {
+        if (index == chain.size() || collected.size() >= count) {
+            return CompletableFuture.completedFuture(collected.toResult(count));
+        }
+
+        Tier tier = chain.get(index);
+        if (tier.lastResort && collected.size() > 0) {
+            return runTier(chain, index + 1, userTracks, count, collected, deadline);
+        }
+        long budgetMillis = tier.budgetMillis;
+        if (deadline != 0) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                System.err.println("Recommendation deadline passed before tier " + tier.name);
+                return CompletableFuture.completedFuture(collected.toResult(count));
+            }
+            budgetMillis = budgetMillis > 0 ? Math.min(budgetMillis, remainingMillis) : remainingMillis;
+        }
+
+        AtomicReference<List<Track>> bestSoFar = new AtomicReference<>();
+        CompletableFuture<List<Track>> attempt = start(tier.strategy, userTracks, count, bestSoFar::set);
+        if (budgetMillis > 0) {
+            attempt = attempt.orTimeout(budgetMillis, TimeUnit.MILLISECONDS);
+        }
+
+        long budget = budgetMillis;
+        return attempt
+                .handle((tracks, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            tier.rejected.incrementAndGet();
+                            System.err.println("Tier " + tier.name + " skipped, all tier threads are busy");
+                        } else if (cause instanceof TimeoutException) {
+                            tier.timeouts.incrementAndGet();
+                            System.err.println("Tier " + tier.name + " missed its " + budget + " ms budget");
+                            // Keep whatever it had found by then
+                            List<Track> partial = bestSoFar.get();
+                            if (partial != null) {
+                                collected.add(tier.name, partial);
+                            }
+                        } else {
+                            tier.failures.incrementAndGet();
+                            System.err.println("Tier " + tier.name + " failed: " + cause);
+                        }
+                    } else if (tracks != null && collected.add(tier.name, tracks) > 0) {
+                        tier.answered.incrementAndGet();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> runTier(chain, index + 1, userTracks, count, collected, deadline));
+    }
+
+    /**
+     * Call the strategy directly if it answers asynchronously, otherwise on the tier
+     * executor so that a budget can cut off a strategy that computes on the caller's thread
+     * A strategy still running when its budget (or the deadline) runs out is interrupted
+     */
+    private CompletableFuture<List<Track>> start(RecommendationStrategy strategy, List<Track> userTracks,
+                                                 int count, Consumer<List<Track>> progress) {
+        if (!strategy.isNonBlocking()) {
+            CompletableFuture<List<Track>> result = new CompletableFuture<>();
+            // The thread inside the strategy, if any; later tiers may continue on it once it is done
+            AtomicReference<Thread> runner = new AtomicReference<>();
+            try {
+                tierExecutor.execute(() -> {
+                    runner.set(Thread.currentThread());
+                    try {
+                        strategy.recommendAsync(userTracks, count, progress).whenComplete((tracks, error) -> {
+                            runner.set(null);
+                            if (error != null) {
+                                result.completeExceptionally(error);
+                            } else {
+                                result.complete(tracks);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        runner.set(null);
+                        result.completeExceptionally(e);
+                    } finally {
+                        runner.set(null);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            result.whenComplete((tracks, error) -> {
+                Thread thread = runner.get();
+                if (error instanceof TimeoutException && thread != null) {
+                    thread.interrupt();
+                }
+            });
+            return result;
+        }
+        try {
+            return strategy.recommendAsync(userTracks, count, progress);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Results gathered along the chain, without duplicates or seeds, in tier order
+     */
+    private static class Collected {
+        private final Set<TrackId> seeds = new HashSet<>();
+        private final Map<TrackId, Track> tracks = new LinkedHashMap<>();
+        private final List<String> contributors = new ArrayList<>();
+        private final int count;
+        private final Consumer<List<Track>> onTracks;
+
+        Collected(List<Track> userTracks, int count, Consumer<List<Track>> onTracks) {
+            for (Track seed : userTracks) {
+                seeds.add(TrackId.of(seed));
+            }
+            this.count = count;
+            this.onTracks = onTracks;
+        }
+
+        // Tiers run one after another, but on whichever thread completed the last one
+        synchronized int add(String tier, List<Track> found) {
+            int added = 0;
+            List<Track> answered = new ArrayList<>();
+            for (Track track : found) {
+                TrackId id = TrackId.of(track);
+                if (!seeds.contains(id) && tracks.putIfAbsent(id, track) == null) {
+                    added++;
+                    // Only what will be part of the result, which keeps the first count
+                    if (tracks.size() <= count) {
+                        answered.add(track);
+                    }
+                }
+            }
+            if (added > 0) {
+                contributors.add(tier);
+            }
+            if (onTracks != null && !answered.isEmpty()) {
+                try {
+                    onTracks.accept(answered);
+                } catch (RuntimeException e) {
+                    // A broken listener must not fail the request
+                    e.printStackTrace();
+                }
+            }
+            return added;
+        }
+
+        synchronized int size() {
+            return tracks.size();
+        }
+
+        synchronized Result toResult(int count) {
+            List<Track> result = new ArrayList<>(Math.min(count, tracks.size()));
+            for (Track track : tracks.values()) {
+                if (result.size() == count) {
+                    break;
+                }
+                result.add(track);
+            }
+            String tier = contributors.isEmpty() ? "none" : String.join("+", contributors);
+            return new Result(result, tier, result.size() < count);
+        }
     }
-}
\ No newline at end of file
+}
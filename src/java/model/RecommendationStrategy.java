@@ -1,6 +1,8 @@
 package model;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Strategy interface for different recommendation algorithms
@@ -9,4 +11,30 @@ import java.util.List;
 public interface RecommendationStrategy {
     List<Track> recommend(List<Track> userTracks, int count);
     String getStrategyName();
+
+    /**
+     * Non-blocking variant of recommend
+     * Strategies backed by remote calls override this so no thread waits on I/O
+     */
+    default CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        return CompletableFuture.completedFuture(recommend(userTracks, count));
+    }
+
+    /**
+     * recommendAsync that also hands progress the best answer so far while it is
+     * still working, so a caller that stops waiting can keep what was found
+     */
+    default CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count,
+                                                          Consumer<List<Track>> progress) {
+        return recommendAsync(userTracks, count);
+    }
+
+    /**
+     * True if recommendAsync returns at once and does its slow work elsewhere
+     * The fallback chain runs every other strategy on its own executor, so a
+     * tier budget can give up on it
+     */
+    default boolean isNonBlocking() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.apache.hc.core5.http.ParseException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Recommends tracks based on Last.fm's similarity algorithm
@@ -36,6 +37,22 @@ public class SimilarityBasedStrategy implements RecommendationStrategy {
         }
     }
 
+    @Override
+    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+        if (userTracks.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        // Failures are passed on, so a fallback chain can tell them from "nothing similar"
+        Track seedTrack = userTracks.get(0);
+        return apiClient.getSimilarTracksAsync(seedTrack.getName(), seedTrack.getArtist(), count);
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
     @Override
     public String getStrategyName() {
         return "Similarity-Based Recommendations (Last.fm)";
@@ -0,0 +1,536 @@
+package model;
+
+import service.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process track similarity graph built from getSimilarTracks responses
+ * Every response is a set of weighted edges seed -> similar track (weight =
+ * Last.fm match score). Tracks are interned to int ids and each node keeps
+ * its out-edges in primitive int[]/float[] arrays, so answering a known seed
+ * is an array scan instead of an HTTP round trip
+ *
+ * A seed's edges expire with the Last.fm response they came from (ttlMillis).
+ * When the graph is full it is compacted: expired edges are dropped first, then
+ * the oldest expansions, and nodes nothing points to any more are removed and
+ * the rest renumbered
+ */
+public class SimilarityGraph {
+    private static final int INITIAL_NODES = 1024;
+    private static final int INITIAL_DEGREE = 8;
+
+    private final int maxNodes;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Track> nodes = new ArrayList<>();
+    private int[][] edgeTargets = new int[INITIAL_NODES][];
+    private float[][] edgeWeights = new float[INITIAL_NODES][];
+    private int[] degree = new int[INITIAL_NODES];
+    // Largest limit Last.fm was asked for when this node was a seed, 0 = never expanded
+    private int[] expandedLimit = new int[INITIAL_NODES];
+    // When the node's out-edges were last replaced by a response
+    private long[] updatedAt = new long[INITIAL_NODES];
+    private long edgeCount;
+    // Bumped by every compaction, which renumbers the nodes
+    private int generation;
+
+    // Stats
+    private long compactions;
+    private long evictedNodes;
+
+    public SimilarityGraph(int maxNodes) {
+        this(maxNodes, Config.SIMILAR_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    public SimilarityGraph(int maxNodes, long ttlMillis, LongSupplier clock) {
+        this.maxNodes = maxNodes;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Record one getSimilarTracks response
+     * A response at least as large as the current expansion (or arriving after it
+     * expired) replaces the seed's edges, a smaller one only updates weights
+     *
+     * @param limit the limit the response was requested with, so the graph
+     *              knows which later requests it can answer by itself
+     */
+    public void addSimilar(String trackName, String artistName, int limit, List<Track> similar) {
+        lock.writeLock().lock();
+        try {
+            long now = clock.getAsLong();
+            // Make room up front, compacting renumbers nodes so it cannot happen halfway
+            if (nodes.size() + similar.size() + 1 > maxNodes) {
+                compact(now, similar.size() + 1);
+            }
+            int seed = intern(new Track(trackName, artistName));
+            if (seed < 0) {
+                return;
+            }
+            boolean replace = !isFresh(seed, now) || limit >= expandedLimit[seed];
+            if (replace) {
+                edgeCount -= degree[seed];
+                degree[seed] = 0;
+                updatedAt[seed] = now;
+            }
+            boolean complete = true;
+            for (Track track : similar) {
+                int target = intern(track);
+                if (target < 0) {
+                    complete = false;
+                } else if (target != seed) {
+                    putEdge(seed, target, (float) track.getMatchScore());
+                }
+            }
+            if (replace) {
+                // Neighbours that did not fit would be missing from every answer
+                expandedLimit[seed] = complete ? limit : 0;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Answer from the graph if this seed was expanded with at least count results
+     *
+     * @return the strongest neighbours as Track copies (matchScore = edge weight),
+     *         or null if the graph cannot answer for this seed
+     */
+    public List<Track> recommend(String trackName, String artistName, int count) {
+        lock.readLock().lock();
+        try {
+            Integer seed = ids.get(key(trackName, artistName));
+            if (seed == null || expandedLimit[seed] < count || !isFresh(seed, clock.getAsLong())) {
+                return null;
+            }
+            return topNeighbours(seed, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isKnown(String trackName, String artistName) {
+        lock.readLock().lock();
+        try {
+            Integer seed = ids.get(key(trackName, artistName));
+            return seed != null && expandedLimit[seed] > 0 && isFresh(seed, clock.getAsLong());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bounded neighbourhood of some seeds in compressed sparse row form
+     * Edges are grouped by target (in-edges) and carry the probability of a
+     * random walk at the source stepping along them, which is what a
+     * pull-style PageRank iteration reads
+     */
+    static class Subgraph {
+        final int[] nodes;          // local id -> graph id
+        final int[] seeds;          // local ids of the seeds found in the graph
+        final int[] inOffsets;      // in-edges of v are inOffsets[v] until inOffsets[v + 1]
+        final int[] inSources;
+        final float[] inProbability;
+        final boolean[] dangling;   // no out-edge inside the subgraph
+        final int generation;       // graph ids in nodes are only valid while this matches
+
+        Subgraph(int[] nodes, int[] seeds, int[] inOffsets, int[] inSources, float[] inProbability, boolean[] dangling,
+                 int generation) {
+            this.generation = generation;
+            this.nodes = nodes;
+            this.seeds = seeds;
+            this.inOffsets = inOffsets;
+            this.inSources = inSources;
+            this.inProbability = inProbability;
+            this.dangling = dangling;
+        }
+
+        int size() {
+            return nodes.length;
+        }
+
+        int edgeCount() {
+            return inSources.length;
+        }
+    }
+
+    /**
+     * Collect everything within maxHops out-edges of the seeds, at most maxNodes nodes
+     * Seeds that are not in the graph are ignored, expired edges are not followed
+     */
+    Subgraph subgraph(List<Track> seedTracks, int maxHops, int maxNodes) {
+        lock.readLock().lock();
+        try {
+            long now = clock.getAsLong();
+            int[] localOf = new int[nodes.size()]; // local id + 1, 0 = not collected
+            int[] order = new int[Math.min(maxNodes, Math.max(16, nodes.size()))];
+            int size = 0;
+
+            for (Track seed : seedTracks) {
+                Integer id = ids.get(key(seed.getName(), seed.getArtist()));
+                if (id != null && localOf[id] == 0 && size < maxNodes) {
+                    order[size] = id;
+                    localOf[id] = ++size;
+                }
+            }
+            int[] seeds = new int[size];
+            for (int i = 0; i < size; i++) {
+                seeds[i] = i;
+            }
+
+            // Breadth-first, one hop at a time
+            int layerStart = 0;
+            for (int hop = 0; hop < maxHops && layerStart < size && size < maxNodes; hop++) {
+                int layerEnd = size;
+                for (int i = layerStart; i < layerEnd && size < maxNodes; i++) {
+                    int from = order[i];
+                    int[] targets = edgeTargets[from];
+                    int out = liveDegree(from, now);
+                    for (int e = 0; e < out && size < maxNodes; e++) {
+                        int to = targets[e];
+                        if (localOf[to] == 0) {
+                            order[size] = to;
+                            localOf[to] = ++size;
+                        }
+                    }
+                }
+                layerStart = layerEnd;
+            }
+
+            // One pass over the scattered per-node arrays: copy the edges that stay
+            // inside into flat arrays, summing out-weight and counting in-degree
+            int[] edgeFrom = new int[1024];
+            int[] edgeTo = new int[1024];
+            float[] edgeWeight = new float[1024];
+            int edges = 0;
+            float[] outWeight = new float[size];
+            int[] inOffsets = new int[size + 1];
+            for (int u = 0; u < size; u++) {
+                int from = order[u];
+                int[] targets = edgeTargets[from];
+                float[] weights = edgeWeights[from];
+                int out = liveDegree(from, now);
+                for (int e = 0; e < out; e++) {
+                    int v = localOf[targets[e]] - 1;
+                    if (v < 0 || weights[e] <= 0) {
+                        continue;
+                    }
+                    if (edges == edgeFrom.length) {
+                        edgeFrom = Arrays.copyOf(edgeFrom, edges * 2);
+                        edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+                        edgeWeight = Arrays.copyOf(edgeWeight, edges * 2);
+                    }
+                    edgeFrom[edges] = u;
+                    edgeTo[edges] = v;
+                    edgeWeight[edges] = weights[e];
+                    edges++;
+                    outWeight[u] += weights[e];
+                    inOffsets[v + 1]++;
+                }
+            }
+            for (int v = 0; v < size; v++) {
+                inOffsets[v + 1] += inOffsets[v];
+            }
+
+            // Counting sort by target
+            int[] inSources = new int[edges];
+            float[] inProbability = new float[edges];
+            int[] fill = Arrays.copyOf(inOffsets, size);
+            for (int e = 0; e < edges; e++) {
+                int slot = fill[edgeTo[e]]++;
+                inSources[slot] = edgeFrom[e];
+                inProbability[slot] = edgeWeight[e] / outWeight[edgeFrom[e]];
+            }
+            boolean[] dangling = new boolean[size];
+            for (int u = 0; u < size; u++) {
+                dangling[u] = outWeight[u] == 0;
+            }
+
+            return new Subgraph(Arrays.copyOf(order, size), seeds, inOffsets, inSources, inProbability, dangling,
+                    generation);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of the track metadata of a subgraph node
+     *
+     * @return null if the graph was compacted since the subgraph was taken
+     */
+    Track track(Subgraph subgraph, int local) {
+        lock.readLock().lock();
+        try {
+            return subgraph.generation == generation ? new Track(nodes.get(subgraph.nodes[local])) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isFresh(int id, long now) {
+        return now - updatedAt[id] < ttlMillis;
+    }
+
+    // Out-edges a query may follow: none once the response they came from expired
+    private int liveDegree(int id, long now) {
+        return isFresh(id, now) ? degree[id] : 0;
+    }
+
+    /**
+     * Free at least a quarter of the graph (and at least needed nodes) if possible
+     * Caller holds the write lock. Expired edges go first, then the oldest
+     * expansions; a node is removed once it has no edges left in either direction
+     * and is not a live seed. The survivors are renumbered in their current order
+     */
+    private void compact(long now, int needed) {
+        int n = nodes.size();
+        int wanted = Math.min(maxNodes, Math.max(needed, maxNodes / 4));
+
+        int[] inDegree = new int[n];
+        for (int i = 0; i < n; i++) {
+            if ((degree[i] > 0 || expandedLimit[i] > 0) && !isFresh(i, now)) {
+                dropEdges(i, null);
+            }
+            for (int e = 0; e < degree[i]; e++) {
+                inDegree[edgeTargets[i][e]]++;
+            }
+        }
+        int removable = 0;
+        for (int i = 0; i < n; i++) {
+            if (isRemovable(i, inDegree)) {
+                removable++;
+            }
+        }
+
+        if (maxNodes - n + removable < wanted) {
+            List<Integer> seeds = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (degree[i] > 0 || expandedLimit[i] > 0) {
+                    seeds.add(i);
+                }
+            }
+            seeds.sort((a, b) -> Long.compare(updatedAt[a], updatedAt[b]));
+            for (int i = 0; i < seeds.size() && maxNodes - n + removable < wanted; i++) {
+                int seed = seeds.get(i);
+                int[] targets = edgeTargets[seed];
+                int out = degree[seed];
+                dropEdges(seed, inDegree);
+                for (int e = 0; e < out; e++) {
+                    if (isRemovable(targets[e], inDegree)) {
+                        removable++;
+                    }
+                }
+                if (isRemovable(seed, inDegree)) {
+                    removable++;
+                }
+            }
+        }
+        if (removable == 0) {
+            return;
+        }
+
+        // Slide the survivors down; every edge points at a survivor (in-degree > 0)
+        int[] newId = new int[n];
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (isRemovable(i, inDegree)) {
+                newId[i] = -1;
+                continue;
+            }
+            newId[i] = kept;
+            nodes.set(kept, nodes.get(i));
+            edgeTargets[kept] = edgeTargets[i];
+            edgeWeights[kept] = edgeWeights[i];
+            degree[kept] = degree[i];
+            expandedLimit[kept] = expandedLimit[i];
+            updatedAt[kept] = updatedAt[i];
+            kept++;
+        }
+        for (int i = kept; i < n; i++) {
+            edgeTargets[i] = null;
+            edgeWeights[i] = null;
+            degree[i] = 0;
+            expandedLimit[i] = 0;
+            updatedAt[i] = 0;
+        }
+        nodes.subList(kept, n).clear();
+        ids.clear();
+        for (int i = 0; i < kept; i++) {
+            int[] targets = edgeTargets[i];
+            for (int e = 0; e < degree[i]; e++) {
+                targets[e] = newId[targets[e]];
+            }
+            Track node = nodes.get(i);
+            ids.put(key(node.getName(), node.getArtist()), i);
+        }
+        generation++;
+        compactions++;
+        evictedNodes += n - kept;
+    }
+
+    private boolean isRemovable(int id, int[] inDegree) {
+        return degree[id] == 0 && inDegree[id] == 0 && expandedLimit[id] == 0;
+    }
+
+    // Forget a node's out-edges and its expansion, keeping inDegree (if given) in step
+    private void dropEdges(int id, int[] inDegree) {
+        if (inDegree != null) {
+            for (int e = 0; e < degree[id]; e++) {
+                inDegree[edgeTargets[id][e]]--;
+            }
+        }
+        edgeCount -= degree[id];
+        degree[id] = 0;
+        expandedLimit[id] = 0;
+    }
+
+    // Partial insertion sort: degree is small (the Last.fm limit), count smaller still
+    private List<Track> topNeighbours(int seed, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        int n = degree[seed];
+        int[] targets = edgeTargets[seed];
+        float[] weights = edgeWeights[seed];
+        int k = Math.min(count, n);
+        int[] best = new int[k];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (size == k && weights[i] <= weights[best[k - 1]]) {
+                continue;
+            }
+            int pos = size < k ? size++ : k - 1;
+            while (pos > 0 && weights[best[pos - 1]] < weights[i]) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = i;
+        }
+
+        List<Track> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Track track = new Track(nodes.get(targets[best[i]]));
+            track.setMatchScore(weights[best[i]]);
+            result.add(track);
+        }
+        return result;
+    }
+
+    // Caller holds the write lock, returns -1 once the graph is full
+    private int intern(Track track) {
+        String key = key(track.getName(), track.getArtist());
+        Integer id = ids.get(key);
+        if (id != null) {
+            refresh(nodes.get(id), track);
+            return id;
+        }
+        if (nodes.size() >= maxNodes) {
+            return -1;
+        }
+
+        int newId = nodes.size();
+        if (newId == degree.length) {
+            int capacity = Math.min(maxNodes, degree.length * 2);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+            expandedLimit = Arrays.copyOf(expandedLimit, capacity);
+            updatedAt = Arrays.copyOf(updatedAt, capacity);
+        }
+        Track node = new Track(track);
+        node.setMatchScore(0.0);
+        nodes.add(node);
+        ids.put(key, newId);
+        degree[newId] = 0;
+        expandedLimit[newId] = 0;
+        return newId;
+    }
+
+    // Keep the richest metadata seen for a node (seeds arrive with name and artist only)
+    private static void refresh(Track node, Track seen) {
+        if (node.getUrl() == null) {
+            node.setUrl(seen.getUrl());
+        }
+        if (node.getImageUrl() == null) {
+            node.setImageUrl(seen.getImageUrl());
+        }
+        if (node.getMbid() == null) {
+            node.setMbid(seen.getMbid());
+        }
+        node.setListeners(Math.max(node.getListeners(), seen.getListeners()));
+    }
+
+    private void putEdge(int from, int to, float weight) {
+        int[] targets = edgeTargets[from];
+        int n = degree[from];
+        for (int i = 0; i < n; i++) {
+            if (targets[i] == to) {
+                edgeWeights[from][i] = weight; // newer response wins
+                return;
+            }
+        }
+        if (targets == null || n == targets.length) {
+            int capacity = targets == null ? INITIAL_DEGREE : targets.length * 2;
+            edgeTargets[from] = targets == null ? new int[capacity] : Arrays.copyOf(targets, capacity);
+            edgeWeights[from] = targets == null ? new float[capacity] : Arrays.copyOf(edgeWeights[from], capacity);
+        }
+        edgeTargets[from][n] = to;
+        edgeWeights[from][n] = weight;
+        degree[from] = n + 1;
+        edgeCount++;
+    }
+
+    private static String key(String trackName, String artistName) {
+        return artistName.trim().toLowerCase(Locale.ROOT) + '\u0000' + trackName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Stats getters
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCompactions() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEvictedNodes() {
+        lock.readLock().lock();
+        try {
+            return evictedNodes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
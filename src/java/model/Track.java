@@ -19,6 +19,17 @@ public class Track {
         this.artist = artist;
     }
 
+    // Copy constructor so shared/cached tracks are never mutated by callers
+    public Track(Track other) {
+        this.name = other.name;
+        this.artist = other.artist;
+        this.mbid = other.mbid;
+        this.url = other.url;
+        this.listeners = other.listeners;
+        this.imageUrl = other.imageUrl;
+        this.matchScore = other.matchScore;
+    }
+
     // Getters and Setters (Encapsulation)
     public String getName() {
         return name;
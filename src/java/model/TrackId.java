@@ -0,0 +1,47 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * Canonical identity of a track: its MusicBrainz id when Last.fm has one,
+ * otherwise the trimmed, lower-cased artist and name
+ */
+public final class TrackId {
+    private final String key;
+    private final int hash;
+
+    private TrackId(String key) {
+        this.key = key;
+        this.hash = key.hashCode();
+    }
+
+    public static TrackId of(Track track) {
+        return of(track.getName(), track.getArtist(), track.getMbid());
+    }
+
+    public static TrackId of(String name, String artist, String mbid) {
+        if (mbid != null && !mbid.isBlank()) {
+            return new TrackId("mbid:" + mbid.trim().toLowerCase(Locale.ROOT));
+        }
+        return new TrackId(normalize(artist) + '\u0000' + normalize(name));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TrackId && hash == ((TrackId) o).hash && key.equals(((TrackId) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return key.replace('\u0000', '/');
+    }
+}
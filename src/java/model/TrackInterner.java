@@ -0,0 +1,91 @@
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one CompactTrack per TrackId across caches and sessions
+ * The track table keeps at most maxTracks entries in least-recently-used
+ * order; evicted tracks stay valid for whoever still holds them, the next
+ * sighting just creates a fresh one. Names, artists and URL folders are
+ * interned in a weak table, so a string lives only while some track uses it
+ */
+public class TrackInterner {
+    private final int maxTracks;
+    private final LinkedHashMap<TrackId, CompactTrack> tracks;
+    private final WeakHashMap<String, WeakReference<String>> strings = new WeakHashMap<>();
+    private long trackBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TrackInterner(int maxTracks) {
+        this.maxTracks = maxTracks;
+        this.tracks = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Canonical compact form of this track's metadata
+     * A track whose metadata changed (new listener count, ...) replaces the old entry
+     */
+    public synchronized CompactTrack intern(Track track) {
+        TrackId id = TrackId.of(track);
+        CompactTrack existing = tracks.get(id);
+        if (existing != null && existing.matches(track)) {
+            hits.incrementAndGet();
+            return existing;
+        }
+        misses.incrementAndGet();
+
+        CompactTrack compact = new CompactTrack(track, this);
+        tracks.put(id, compact);
+        trackBytes += compact.estimateBytes() - (existing == null ? 0 : existing.estimateBytes());
+        if (tracks.size() > maxTracks) {
+            Map.Entry<TrackId, CompactTrack> eldest = tracks.entrySet().iterator().next();
+            trackBytes -= eldest.getValue().estimateBytes();
+            tracks.remove(eldest.getKey());
+        }
+        return compact;
+    }
+
+    // Caller holds the lock (only called while building a CompactTrack)
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> ref = strings.get(value);
+        String canonical = ref == null ? null : ref.get();
+        if (canonical == null) {
+            strings.put(value, new WeakReference<>(value));
+            canonical = value;
+        }
+        return canonical;
+    }
+
+    // Stats getters
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int getSize() {
+        return tracks.size();
+    }
+
+    public synchronized int getStringCount() {
+        return strings.size();
+    }
+
+    /**
+     * Estimated heap held by the track table, strings not included
+     */
+    public synchronized long getBytes() {
+        return trackBytes;
+    }
+}
@@ -0,0 +1,20 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * A Last.fm call refused before it was sent, by the circuit breaker or the rate limiter
+ * Thrown on the hot path while Last.fm is unhealthy, so it skips the stack trace
+ */
+public class CallNotPermittedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,208 @@
+package service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around Last.fm calls
+ * CLOSED: calls go through and their outcomes fill a sliding window of the last
+ * windowSize calls. Once the window holds minimumCalls and the share of failed or
+ * slow calls reaches its threshold the breaker opens. OPEN: calls are refused
+ * without touching the network until openMillis have passed. HALF_OPEN: a few
+ * probe calls are let through; if they all succeed in time the breaker closes,
+ * any failed or slow probe opens it again
+ */
+public class CircuitBreaker {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    // Ring of recent outcomes (FAILED | SLOW bits), only used while CLOSED
+    private final byte[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+    private int windowSlow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesIssued;
+    private int probesPassed;
+
+    private long calls;
+    private long failures;
+    private long slowCalls;
+    private long rejected;
+    private long opened;
+
+    public CircuitBreaker() {
+        this(Config.BREAKER_WINDOW_SIZE, Config.BREAKER_MINIMUM_CALLS, Config.BREAKER_FAILURE_RATE,
+                Config.BREAKER_SLOW_CALL_RATE, Config.BREAKER_SLOW_CALL_MILLIS, Config.BREAKER_OPEN_MILLIS,
+                Config.BREAKER_HALF_OPEN_PROBES, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond clock, replaced by a fake one in tests
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis, int halfOpenProbes, LongSupplier clock) {
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallMillis * NANOS_PER_MILLI;
+        this.openNanos = openMillis * NANOS_PER_MILLI;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.clock = clock;
+    }
+
+    /**
+     * Ask to make a call; every permitted call must end in onSuccess, onFailure or release
+     *
+     * @return false if the breaker is open (or all half-open probes are out)
+     */
+    public synchronized boolean tryAcquire() {
+        advance(clock.getAsLong());
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probesIssued < halfOpenProbes) {
+                    probesIssued++;
+                    return true;
+                }
+                rejected++;
+                return false;
+            default:
+                rejected++;
+                return false;
+        }
+    }
+
+    /**
+     * Give back a permission that was not used (e.g. the rate limiter refused the call)
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesIssued > probesPassed) {
+            probesIssued--;
+        }
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos >= slowCallNanos);
+    }
+
+    public synchronized void onFailure(long durationNanos) {
+        record(true, durationNanos >= slowCallNanos);
+    }
+
+    private void record(boolean failed, boolean slow) {
+        calls++;
+        if (failed) {
+            failures++;
+        }
+        if (slow) {
+            slowCalls++;
+        }
+
+        switch (state) {
+            case HALF_OPEN:
+                if (failed || slow) {
+                    open();
+                } else if (++probesPassed >= halfOpenProbes) {
+                    close();
+                }
+                break;
+            case CLOSED:
+                addToWindow((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+                if (windowCount >= minimumCalls
+                        && (windowFailures >= failureRateThreshold * windowCount
+                        || windowSlow >= slowCallRateThreshold * windowCount)) {
+                    open();
+                }
+                break;
+            default:
+                // A call that started before the breaker opened, nothing to decide
+                break;
+        }
+    }
+
+    private void addToWindow(byte outcome) {
+        if (windowCount == window.length) {
+            byte oldest = window[windowNext];
+            windowFailures -= oldest & FAILED;
+            windowSlow -= (oldest & SLOW) >> 1;
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = outcome;
+        windowNext = (windowNext + 1) % window.length;
+        windowFailures += outcome & FAILED;
+        windowSlow += (outcome & SLOW) >> 1;
+    }
+
+    private void advance(long now) {
+        if (state == State.OPEN && now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probesIssued = 0;
+            probesPassed = 0;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        opened++;
+        clearWindow();
+        System.err.println("Circuit breaker opened for " + openNanos / NANOS_PER_MILLI + " ms");
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        clearWindow();
+        System.out.println("Circuit breaker closed");
+    }
+
+    private void clearWindow() {
+        windowNext = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        windowSlow = 0;
+    }
+
+    public synchronized State getState() {
+        advance(clock.getAsLong());
+        return state;
+    }
+
+    // Stats getters
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized long getSlowCalls() {
+        return slowCalls;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized long getOpened() {
+        return opened;
+    }
+}
@@ -1,22 +1,11 @@
 package service;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import model.Track;
-import org.apache.hc.core5.http.ParseException;
-import model.RecommendationEngine;
-import model.SimilarityBasedStrategy;
-import model.RandomStrategy;
-
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.Socket;
-import java.util.List;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
 
 /**
  * Handles individual client connections in separate threads
@@ -24,21 +13,11 @@ import java.util.ArrayList;
  */
 public class ClientHandler implements Runnable {
     private final Socket clientSocket;
-    private final LastFmAPIClient apiClient;
-    private final Gson gson;
-    private final List<Track> tracksSeen = new ArrayList<>();
-    private RecommendationEngine recommendationEngine;
-    private SimilarityBasedStrategy similarityStrategy;
-    private RandomStrategy randomStrategy;
+    private final ClientSession session;
 
     public ClientHandler(Socket socket, LastFmAPIClient apiClient) {
         this.clientSocket = socket;
-        this.apiClient = apiClient;
-        this.gson = new Gson();
-        this.similarityStrategy = new SimilarityBasedStrategy(apiClient);
-        this.randomStrategy = new RandomStrategy(tracksSeen);
-        this.recommendationEngine = new RecommendationEngine(new SimilarityBasedStrategy(apiClient));
-        //this.recommendationEngine = new RecommendationEngine(new RandomStrategy(tracksSeen));
+        this.session = new ClientSession(apiClient);
     }
 
     @Override
@@ -50,15 +29,15 @@ public class ClientHandler implements Runnable {
                 //FileWriter fw = new FileWriter(fileName, true);
                 BufferedReader in = new BufferedReader(
                         new InputStreamReader(clientSocket.getInputStream()));
-                PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)
+                OutputStream out = new BufferedOutputStream(clientSocket.getOutputStream())
         ) {
             String request;
             while ((request = in.readLine()) != null) {
                 System.out.println("Received request: " + request);
                 //fw.write(request + System.lineSeparator());
                 //fw.flush();
-                String response = handleRequest(request);
-                out.println(response);
+                // Responses may be written from other threads; the session hands them over one at a time
+                session.dispatch(request, response -> send(out, response));
             }
         } catch (IOException e) {
             System.err.println("Error handling client: " + e.getMessage());
@@ -72,113 +51,12 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    /**
-     * Process client requests and return JSON responses
-     */
-    private String handleRequest(String request) {
+    private void send(OutputStream out, byte[] response) {
         try {
-            JsonObject jsonRequest = gson.fromJson(request, JsonObject.class);
-            String action = jsonRequest.get("action").getAsString();
-
-            switch (action) {
-                case "SEARCH":
-                    return handleSearch(jsonRequest);
-
-                case "RECOMMEND":
-                    return handleRecommend(jsonRequest);
-
-                case "SET_STRATEGY":
-                    return handleSetStrategy(jsonRequest);
-
-                default:
-                    return createErrorResponse("Unknown action: " + action);
-            }
-        } catch (Exception e) {
-            return createErrorResponse("Error processing request: " + e.getMessage());
-        }
-    }
-
-    private String handleSearch(JsonObject request) {
-        try {
-            String query = request.get("query").getAsString();
-            int limit = request.has("limit") ? request.get("limit").getAsInt() : 10;
-
-            List<Track> tracks = apiClient.searchTracks(query, limit);
-            tracksSeen.addAll(tracks);
-
-            JsonObject response = new JsonObject();
-            response.addProperty("status", "success");
-            response.addProperty("action", "SEARCH");
-            response.add("data", gson.toJsonTree(tracks));
-
-            return gson.toJson(response);
+            out.write(response);
+            out.flush();
         } catch (IOException e) {
-            return createErrorResponse("Search failed: " + e.getMessage());
+            System.err.println("Error writing response: " + e.getMessage());
         }
     }
-
-    private String handleRecommend(JsonObject request) {
-        try {
-            String trackName = request.get("trackName").getAsString();
-            String artistName = request.get("artistName").getAsString();
-            int count = request.has("count") ? request.get("count").getAsInt() : 5;
-
-            // Get similar tracks using Last.fm API
-            //List<Track> recommendations = apiClient.getSimilarTracks(trackName, artistName, count);
-            List<Track> recommendations = recommendationEngine.getRecommendations(List.of(new Track(trackName, artistName)), count);
-
-            tracksSeen.addAll(recommendations);
-
-            JsonObject response = new JsonObject();
-            response.addProperty("status", "success");
-            response.addProperty("action", "RECOMMEND");
-            response.add("data", gson.toJsonTree(recommendations));
-
-            return gson.toJson(response);
-        }catch(Exception e){
-            return createErrorResponse("Recommendation failed: " + e.getMessage());
-        }
-        //} catch (IOException | ParseException e) {
-            //return createErrorResponse("Recommendation failed: " + e.getMessage());
-        //}
-    }
-
-    private String handleSetStrategy(JsonObject request){
-        if(!request.has("strategy")){
-            return createErrorResponse("There is no strategy field");
-        }
-
-        try {
-            String strategy = request.get("strategy").getAsString().toLowerCase();
-
-            switch (strategy) {
-                case "similarity":
-                    recommendationEngine.setStrategy(new SimilarityBasedStrategy(apiClient));
-                    break;
-
-                case "random":
-                    recommendationEngine.setStrategy(new RandomStrategy(tracksSeen));
-                    break;
-
-                default:
-                    return createErrorResponse("Unrecognized strategy: " + strategy);
-            }
-
-            JsonObject response = new JsonObject();
-            response.addProperty("status", "success");
-            response.addProperty("message", "strategy switched to " + strategy);
-
-            return gson.toJson(response);
-
-        } catch (Exception e) {
-            return createErrorResponse("Failed to set strategy: " + e.getMessage());
-        }
-    }
-
-    private String createErrorResponse(String message) {
-        JsonObject response = new JsonObject();
-        response.addProperty("status", "error");
-        response.addProperty("message", message);
-        return gson.toJson(response);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,630 @@
+package service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import model.Track;
+import org.apache.hc.core5.pool.PoolStats;
+import model.AudioFeatureStrategy;
+import model.CachedSimilarityStrategy;
+import model.FanOutStrategy;
+import model.GraphSimilarityStrategy;
+import model.HnswAudioFeatureStrategy;
+import model.HybridStrategy;
+import model.PersonalizedPageRankStrategy;
+import model.RecommendationEngine;
+import model.RecommendationStrategy;
+import model.SimilarityGraph;
+import model.SimilarityBasedStrategy;
+import model.TrackInterner;
+import model.RandomStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Per-connection state and request handling, independent of how the
+ * connection is served (blocking ClientHandler thread or NIO event loop)
+ */
+public class ClientSession {
+    private final LastFmAPIClient apiClient;
+    private final Gson gson;
+    private static final String REQUEST_ID = "requestId";
+    private static final int PIPELINED_VERSION = 2;
+
+    private final SessionHistory tracksSeen;
+    private RecommendationEngine recommendationEngine;
+    private SimilarityBasedStrategy similarityStrategy;
+    private RandomStrategy randomStrategy;
+    private final TrackEnricher enricher;
+
+    // Chain that keeps legacy (un-tagged) responses in request order
+    private CompletableFuture<Void> legacyTail = CompletableFuture.completedFuture(null);
+
+    // Responses are encoded and handed to the responder under this lock, so a
+    // SET_FORMAT switch lands exactly between two responses on the wire
+    private final Object writeLock = new Object();
+    private String format = WireCodec.FORMAT_JSON;
+
+    /**
+     * A response before it is put on the wire: top-level fields plus the track
+     * payload, kept as Tracks so each wire format can encode them its own way
+     */
+    static class Reply {
+        final JsonObject fields;
+        final List<Track> tracks;
+        String switchToFormat;
+
+        Reply(JsonObject fields, List<Track> tracks) {
+            this.fields = fields;
+            this.tracks = tracks;
+        }
+
+        Reply(JsonObject fields) {
+            this(fields, null);
+        }
+    }
+
+    public ClientSession(LastFmAPIClient apiClient) {
+        this.apiClient = apiClient;
+        this.gson = new Gson();
+        this.tracksSeen = new SessionHistory(Config.SESSION_HISTORY_MAX_TRACKS, apiClient.getCache().getInterner());
+        this.similarityStrategy = new SimilarityBasedStrategy(apiClient);
+        this.randomStrategy = new RandomStrategy(tracksSeen);
+        this.enricher = new TrackEnricher(apiClient);
+        // Default is Last.fm similarity, looking up every seed of a multi-seed request in parallel
+        this.recommendationEngine = new RecommendationEngine(withFallbacks("similarity",
+                new FanOutStrategy(similarityStrategy), true));
+        //this.recommendationEngine = new RecommendationEngine(new RandomStrategy(tracksSeen));
+    }
+
+    /**
+     * Entry point for one request line from the connection
+     * Requests carrying a "requestId" (protocol version 2) are processed
+     * concurrently and answered as soon as they complete, tagged with the same
+     * id. Requests without one keep the original strict one-request,
+     * one-response ordering. The responder gets fully encoded responses (a JSON
+     * line or a binary frame) one at a time and must be safe to call from any thread
+     */
+    void dispatch(String line, Consumer<byte[]> responder) {
+        JsonObject request;
+        try {
+            request = gson.fromJson(line, JsonObject.class);
+        } catch (Exception e) {
+            request = null;
+        }
+
+        if (request != null && request.has(REQUEST_ID)) {
+            JsonElement requestId = request.get(REQUEST_ID);
+            // Bad streaming options get an error answer like any other bad field
+            Integer chunkSize = positiveInt(request, "chunkSize", Config.STREAM_CHUNK_TRACKS);
+            if (request.has("stream") && !isBoolean(request.get("stream")) || chunkSize == null) {
+                Reply invalid = createErrorResponse(chunkSize == null
+                        ? "chunkSize must be a positive integer" : "stream must be true or false");
+                tag(invalid, requestId);
+                respond(invalid, responder);
+                return;
+            }
+            ChunkWriter chunks = request.has("stream") && request.get("stream").getAsBoolean()
+                    ? new ChunkWriter(request, requestId, chunkSize, responder)
+                    : null;
+            handleRequest(request, chunks).thenAccept(reply -> {
+                Reply last = chunks != null ? chunks.finish(reply) : reply;
+                tag(last, requestId);
+                respond(last, responder);
+            });
+            return;
+        }
+
+        JsonObject legacyRequest = request;
+        legacyTail = legacyTail
+                .thenCompose(ignored -> legacyRequest != null
+                        ? handleRequest(legacyRequest)
+                        : CompletableFuture.completedFuture(createErrorResponse("Error processing request: malformed JSON")))
+                .thenAccept(reply -> respond(reply, responder));
+    }
+
+    private static void tag(Reply reply, JsonElement requestId) {
+        reply.fields.add(REQUEST_ID, requestId);
+        reply.fields.addProperty("version", PIPELINED_VERSION);
+    }
+
+    /**
+     * Streaming mode of a tagged request ("stream": true): the tracks go out as a
+     * series of chunk responses ("chunk": n, up to chunkSize tracks each) and the
+     * request ends with a response carrying "done": true and the total "count"
+     * instead of data. Each chunk is its own JSON line or binary frame, so the
+     * client can show the first tracks before the rest are ready or encoded
+     */
+    private class ChunkWriter {
+        private final String action;
+        private final int chunkSize;
+        private final JsonElement requestId;
+        private final Consumer<byte[]> responder;
+        private final List<Track> buffer = new ArrayList<>();
+        private int taken;
+        private int chunkCount;
+        private boolean holding;
+
+        ChunkWriter(JsonObject request, JsonElement requestId, int chunkSize, Consumer<byte[]> responder) {
+            JsonElement action = request.get("action");
+            this.action = action != null && action.isJsonPrimitive() ? action.getAsString() : "";
+            this.chunkSize = chunkSize;
+            this.requestId = requestId;
+            this.responder = responder;
+        }
+
+        /**
+         * Queue a track; it goes out right away unless hold() is batching a burst
+         */
+        synchronized void add(Track track) {
+            buffer.add(track);
+            taken++;
+            if (!holding || buffer.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        // Tracks added until release() are only sent in full chunks
+        synchronized void hold() {
+            holding = true;
+        }
+
+        synchronized void release() {
+            holding = false;
+            flush();
+        }
+
+        private void flush() {
+            for (int from = 0; from < buffer.size(); from += chunkSize) {
+                JsonObject response = new JsonObject();
+                response.addProperty("status", "success");
+                response.addProperty("action", action);
+                response.addProperty("chunk", chunkCount++);
+                Reply chunk = new Reply(response,
+                        new ArrayList<>(buffer.subList(from, Math.min(buffer.size(), from + chunkSize))));
+                tag(chunk, requestId);
+                respond(chunk, responder);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Stream whatever tracks of the final reply the handler has not streamed
+         * itself and turn the reply into the closing "done" response
+         */
+        synchronized Reply finish(Reply reply) {
+            if (reply.tracks == null || !"success".equals(reply.fields.get("status").getAsString())) {
+                return reply;
+            }
+            int streamed = taken;
+            for (Track track : reply.tracks.subList(Math.min(streamed, reply.tracks.size()), reply.tracks.size())) {
+                buffer.add(track);
+                taken++;
+                if (buffer.size() >= chunkSize) {
+                    flush();
+                }
+            }
+            flush();
+            reply.fields.addProperty("done", true);
+            reply.fields.addProperty("count", taken);
+            return new Reply(reply.fields);
+        }
+    }
+
+    private void respond(Reply reply, Consumer<byte[]> responder) {
+        synchronized (writeLock) {
+            responder.accept(encode(reply, format));
+            if (reply.switchToFormat != null) {
+                format = reply.switchToFormat;
+            }
+        }
+    }
+
+    /**
+     * Encode a reply as a newline-terminated JSON line or a binary frame
+     */
+    byte[] encode(Reply reply, String wireFormat) {
+        if (WireCodec.FORMAT_BINARY.equals(wireFormat)) {
+            return WireCodec.encode(reply.fields, reply.tracks);
+        }
+        return (toJson(reply) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String toJson(Reply reply) {
+        if (reply.tracks != null) {
+            reply.fields.add("data", gson.toJsonTree(reply.tracks));
+        }
+        return gson.toJson(reply.fields);
+    }
+
+    /**
+     * Process a single request line and return its JSON response
+     */
+    CompletableFuture<String> handleRequest(String request) {
+        try {
+            return handleRequest(gson.fromJson(request, JsonObject.class)).thenApply(this::toJson);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    toJson(createErrorResponse("Error processing request: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * Process client requests and build JSON responses
+     * SEARCH and RECOMMEND complete asynchronously once Last.fm answers
+     */
+    private CompletableFuture<Reply> handleRequest(JsonObject jsonRequest) {
+        return handleRequest(jsonRequest, null);
+    }
+
+    /**
+     * @param chunks where a streaming request sends tracks that are ready early, or null
+     */
+    private CompletableFuture<Reply> handleRequest(JsonObject jsonRequest, ChunkWriter chunks) {
+        try {
+            String action = jsonRequest.get("action").getAsString();
+
+            switch (action) {
+                case "SEARCH":
+                    return handleSearch(jsonRequest, chunks);
+
+                case "RECOMMEND":
+                    return handleRecommend(jsonRequest, chunks);
+
+                case "SET_STRATEGY":
+                    return CompletableFuture.completedFuture(handleSetStrategy(jsonRequest));
+
+                case "SET_FORMAT":
+                    return CompletableFuture.completedFuture(handleSetFormat(jsonRequest));
+
+                case "STATS":
+                    return CompletableFuture.completedFuture(handleStats());
+
+                default:
+                    return CompletableFuture.completedFuture(createErrorResponse("Unknown action: " + action));
+            }
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(createErrorResponse("Error processing request: " + e.getMessage()));
+        }
+    }
+
+    private CompletableFuture<Reply> handleSearch(JsonObject request, ChunkWriter chunks) {
+        String query = request.get("query").getAsString();
+        int limit = request.has("limit") ? request.get("limit").getAsInt() : 10;
+        boolean enrich = request.has("enrich") && request.get("enrich").getAsBoolean();
+
+        // "enrich": fill in track.getInfo details (image, mbid, listeners) for the whole page
+        return apiClient.searchTracksAsync(query, limit)
+                .thenCompose(tracks -> !enrich ? CompletableFuture.completedFuture(tracks)
+                        : chunks == null ? enricher.enrichAll(tracks)
+                        : streamEnriched(tracks, chunks))
+                .thenApply(tracks -> {
+                    tracksSeen.addAll(tracks);
+
+                    JsonObject response = new JsonObject();
+                    response.addProperty("status", "success");
+                    response.addProperty("action", "SEARCH");
+
+                    return new Reply(response, tracks);
+                })
+                .exceptionally(e -> createErrorResponse("Search failed: " + causeOf(e).getMessage()));
+    }
+
+    /**
+     * Enrich a page and stream each track as its lookup completes: the cache hits
+     * go out together, then one chunk per lookup
+     *
+     * @return the enriched tracks in the order they were streamed
+     */
+    private CompletableFuture<List<Track>> streamEnriched(List<Track> tracks, ChunkWriter chunks) {
+        List<Track> streamed = new ArrayList<>();
+        chunks.hold();
+        CompletableFuture<Integer> done = enricher.enrich(tracks, track -> {
+            streamed.add(track);
+            chunks.add(track);
+        });
+        chunks.release();
+        return done.thenApply(count -> streamed);
+    }
+
+    private CompletableFuture<Reply> handleRecommend(JsonObject request, ChunkWriter chunks) {
+        Integer count = positiveInt(request, "count", 5);
+        if (count == null) {
+            return CompletableFuture.completedFuture(createErrorResponse("count must be a positive integer"));
+        }
+
+        // Walk the fallback chain without blocking this thread. When streaming, each
+        // tier's tracks go out as soon as it answers, before the next tier runs
+        Consumer<List<Track>> onTracks = chunks == null ? null : tracks -> {
+            chunks.hold();
+            tracks.forEach(chunks::add);
+            chunks.release();
+        };
+        return recommendationEngine.recommend(seedsOf(request), count, onTracks)
+                .thenApply(result -> {
+                    List<Track> recommendations = result.getTracks();
+                    tracksSeen.addAll(recommendations);
+
+                    JsonObject response = new JsonObject();
+                    response.addProperty("status", "success");
+                    response.addProperty("action", "RECOMMEND");
+                    response.addProperty("tier", result.getTier());
+                    response.addProperty("partial", result.isPartial());
+
+                    return new Reply(response, recommendations);
+                })
+                .exceptionally(e -> createErrorResponse("Recommendation failed: " + causeOf(e).getMessage()));
+    }
+
+    /**
+     * Seed tracks of a RECOMMEND request: a "seeds" array of {name, artist}
+     * objects for multi-seed strategies, or the single trackName/artistName pair
+     */
+    private List<Track> seedsOf(JsonObject request) {
+        List<Track> seeds = new ArrayList<>();
+        if (request.has("seeds") && request.get("seeds").isJsonArray()) {
+            for (Track seed : gson.fromJson(request.get("seeds"), Track[].class)) {
+                if (seed != null && seed.getName() != null && seed.getArtist() != null) {
+                    seeds.add(new Track(seed.getName(), seed.getArtist()));
+                }
+            }
+        }
+        if (seeds.isEmpty()) {
+            seeds.add(new Track(request.get("trackName").getAsString(), request.get("artistName").getAsString()));
+        }
+        return seeds;
+    }
+
+    /**
+     * An optional positive int field, the default when absent, null when it is anything else
+     */
+    private static Integer positiveInt(JsonObject request, String field, int defaultValue) {
+        if (!request.has(field)) {
+            return defaultValue;
+        }
+        JsonElement value = request.get(field);
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            return null;
+        }
+        double number = value.getAsDouble();
+        if (number < 1 || number > Integer.MAX_VALUE || number != Math.rint(number)) {
+            return null;
+        }
+        return (int) number;
+    }
+
+    private static boolean isBoolean(JsonElement value) {
+        return value.isJsonPrimitive() && value.getAsJsonPrimitive().isBoolean();
+    }
+
+    // Unwrap the CompletionException added by future composition
+    private static Throwable causeOf(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * Fallback chain around the selected strategy, each tier with its latency budget:
+     * memory cache, then the local graph (for Last.fm similarity strategies), then the
+     * selected strategy itself. A random pick from tracks this session has seen is only
+     * the last resort when none of them found anything, never padding for a short answer
+     */
+    private List<RecommendationEngine.Tier> withFallbacks(String name, RecommendationStrategy live, boolean similarityBased) {
+        List<RecommendationEngine.Tier> tiers = new ArrayList<>();
+        if (similarityBased) {
+            tiers.add(new RecommendationEngine.Tier("cache",
+                    new FanOutStrategy(new CachedSimilarityStrategy(apiClient)), Config.TIER_CACHE_BUDGET_MILLIS));
+            tiers.add(new RecommendationEngine.Tier("local",
+                    new FanOutStrategy(new GraphSimilarityStrategy(apiClient.getSimilarityGraph(), null)),
+                    Config.TIER_LOCAL_BUDGET_MILLIS));
+        }
+        tiers.add(new RecommendationEngine.Tier(name, live, Config.TIER_LIVE_BUDGET_MILLIS));
+        tiers.add(new RecommendationEngine.Tier("random", randomStrategy, Config.TIER_RANDOM_BUDGET_MILLIS, true));
+        return tiers;
+    }
+
+    private Reply handleSetStrategy(JsonObject request){
+        if(!request.has("strategy")){
+            return createErrorResponse("There is no strategy field");
+        }
+
+        try {
+            String strategy = request.get("strategy").getAsString().toLowerCase();
+
+            switch (strategy) {
+                case "similarity":
+                    recommendationEngine.setTiers(withFallbacks(strategy,
+                            new FanOutStrategy(new SimilarityBasedStrategy(apiClient)), true));
+                    break;
+
+                case "random":
+                    recommendationEngine.setTiers(List.of(
+                            new RecommendationEngine.Tier("random", new RandomStrategy(tracksSeen), 0)));
+                    break;
+
+                case "graph":
+                    recommendationEngine.setTiers(withFallbacks(strategy, new FanOutStrategy(
+                            new GraphSimilarityStrategy(apiClient.getSimilarityGraph(), apiClient)), true));
+                    break;
+
+                case "audio":
+                    recommendationEngine.setTiers(withFallbacks(strategy,
+                            new AudioFeatureStrategy(apiClient.getAudioFeatureStore()), false));
+                    break;
+
+                case "audio-ann":
+                    recommendationEngine.setTiers(withFallbacks(strategy, new HnswAudioFeatureStrategy(
+                            apiClient.getAudioFeatureStore(), apiClient.getAudioIndex()), false));
+                    break;
+
+                case "hybrid":
+                    recommendationEngine.setTiers(withFallbacks(strategy, new HybridStrategy(
+                            new FanOutStrategy(new GraphSimilarityStrategy(apiClient.getSimilarityGraph(), apiClient)),
+                            apiClient.getAudioFeatureStore()), false));
+                    break;
+
+                case "pagerank":
+                    recommendationEngine.setTiers(withFallbacks(strategy, new PersonalizedPageRankStrategy(apiClient.getSimilarityGraph(),
+                            new GraphSimilarityStrategy(apiClient.getSimilarityGraph(), apiClient)), false));
+                    break;
+
+                default:
+                    return createErrorResponse("Unrecognized strategy: " + strategy);
+            }
+
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "success");
+            response.addProperty("message", "strategy switched to " + strategy);
+
+            return new Reply(response);
+
+        } catch (Exception e) {
+            return createErrorResponse("Failed to set strategy: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Switch the wire format for every response after this one
+     * The acknowledgement itself still goes out in the old format
+     */
+    private Reply handleSetFormat(JsonObject request) {
+        String requested = request.has("format") ? request.get("format").getAsString().toLowerCase() : "";
+        if (!requested.equals(WireCodec.FORMAT_JSON) && !requested.equals(WireCodec.FORMAT_BINARY)) {
+            return createErrorResponse("Unrecognized format: " + requested);
+        }
+
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "success");
+        response.addProperty("action", "SET_FORMAT");
+        response.addProperty("format", requested);
+
+        Reply reply = new Reply(response);
+        reply.switchToFormat = requested;
+        return reply;
+    }
+
+    /**
+     * Report server-side counters (cache hit rate etc.) for monitoring
+     */
+    private Reply handleStats() {
+        ResponseCache cache = apiClient.getCache();
+        JsonObject cacheStats = new JsonObject();
+        cacheStats.addProperty("hits", cache.getHits());
+        cacheStats.addProperty("misses", cache.getMisses());
+        cacheStats.addProperty("evictions", cache.getEvictions());
+        cacheStats.addProperty("expirations", cache.getExpirations());
+        cacheStats.addProperty("entries", cache.getSize());
+        cacheStats.addProperty("bytes", cache.getCurrentBytes());
+        cacheStats.addProperty("maxBytes", cache.getMaxBytes());
+
+        TrackInterner interner = cache.getInterner();
+        JsonObject internerStats = new JsonObject();
+        internerStats.addProperty("tracks", interner.getSize());
+        internerStats.addProperty("strings", interner.getStringCount());
+        internerStats.addProperty("bytes", interner.getBytes());
+        internerStats.addProperty("hits", interner.getHits());
+        internerStats.addProperty("misses", interner.getMisses());
+
+        SingleFlight<String, List<Track>> flight = apiClient.getSingleFlight();
+        JsonObject flightStats = new JsonObject();
+        flightStats.addProperty("calls", flight.getCalls());
+        flightStats.addProperty("collapsed", flight.getCollapsed());
+        flightStats.addProperty("inFlight", flight.getInFlight());
+
+        PoolStats pool = apiClient.getTransport().getPoolStats();
+        JsonObject transportStats = new JsonObject();
+        transportStats.addProperty("leased", pool.getLeased());
+        transportStats.addProperty("available", pool.getAvailable());
+        transportStats.addProperty("pending", pool.getPending());
+        transportStats.addProperty("max", pool.getMax());
+        transportStats.addProperty("http2Async", apiClient.getTransport().isHttp2Async());
+
+        RateLimiter limiter = apiClient.getRateLimiter();
+        CircuitBreaker breaker = apiClient.getCircuitBreaker();
+        JsonObject upstreamStats = new JsonObject();
+        upstreamStats.addProperty("breaker", breaker.getState().name());
+        upstreamStats.addProperty("calls", breaker.getCalls());
+        upstreamStats.addProperty("failures", breaker.getFailures());
+        upstreamStats.addProperty("slowCalls", breaker.getSlowCalls());
+        upstreamStats.addProperty("opened", breaker.getOpened());
+        upstreamStats.addProperty("breakerRejected", breaker.getRejected());
+        upstreamStats.addProperty("ratePerSecond", limiter.getRate());
+        upstreamStats.addProperty("delayed", limiter.getDelayed());
+        upstreamStats.addProperty("rateLimited", limiter.getRejected());
+        upstreamStats.addProperty("rateDecreases", limiter.getDecreases());
+
+        SimilarityGraph graph = apiClient.getSimilarityGraph();
+        JsonObject graphStats = new JsonObject();
+        graphStats.addProperty("nodes", graph.getNodeCount());
+        graphStats.addProperty("edges", graph.getEdgeCount());
+        graphStats.addProperty("compactions", graph.getCompactions());
+        graphStats.addProperty("evictedNodes", graph.getEvictedNodes());
+
+        JsonObject audioStats = new JsonObject();
+        audioStats.addProperty("tracks", apiClient.getAudioFeatureStore().getSize());
+        audioStats.addProperty("indexed", apiClient.getAudioIndex().size());
+
+        JsonObject historyStats = new JsonObject();
+        historyStats.addProperty("tracks", tracksSeen.size());
+        historyStats.addProperty("capacity", tracksSeen.getCapacity());
+        historyStats.addProperty("bytes", tracksSeen.getBytes());
+        historyStats.addProperty("duplicates", tracksSeen.getDuplicates());
+        historyStats.addProperty("evictions", tracksSeen.getEvictions());
+
+        JsonArray tierStats = new JsonArray();
+        for (RecommendationEngine.Tier tier : recommendationEngine.getTiers()) {
+            JsonObject stats = new JsonObject();
+            stats.addProperty("name", tier.getName());
+            stats.addProperty("budgetMillis", tier.getBudgetMillis());
+            stats.addProperty("answered", tier.getAnswered());
+            stats.addProperty("timeouts", tier.getTimeouts());
+            stats.addProperty("failures", tier.getFailures());
+            stats.addProperty("rejected", tier.getRejected());
+            tierStats.add(stats);
+        }
+
+        JsonObject data = new JsonObject();
+        data.add("cache", cacheStats);
+        data.add("graph", graphStats);
+        data.add("audio", audioStats);
+        DiskCache disk = cache.getDiskTier();
+        if (disk != null) {
+            JsonObject diskStats = new JsonObject();
+            diskStats.addProperty("hits", disk.getHits());
+            diskStats.addProperty("misses", disk.getMisses());
+            diskStats.addProperty("entries", disk.getSize());
+            diskStats.addProperty("segments", disk.getSegmentCount());
+            diskStats.addProperty("bytes", disk.getDiskBytes());
+            diskStats.addProperty("compactions", disk.getCompactions());
+            data.add("disk", diskStats);
+        }
+        data.add("singleFlight", flightStats);
+        data.add("transport", transportStats);
+        data.add("upstream", upstreamStats);
+        data.add("history", historyStats);
+        data.add("interner", internerStats);
+        data.add("tiers", tierStats);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "success");
+        response.addProperty("action", "STATS");
+        response.add("data", data);
+
+        return new Reply(response);
+    }
+
+    private Reply createErrorResponse(String message) {
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "error");
+        response.addProperty("message", message);
+        return new Reply(response);
+    }
+}
\ No newline at end of file
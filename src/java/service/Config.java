@@ -3,10 +3,141 @@ package service;
 public class Config {
 
     public static final String API_KEY = System.getenv("API_KEY");
-    // API Endpoint
-    public static final String API_BASE_URL = "http://ws.audioscrobbler.com/2.0/";
+    // API Endpoint, overridable to point at a StubLastFmServer (e.g. http://localhost:8890/2.0/)
+    public static final String API_BASE_URL =
+            System.getenv().getOrDefault("LASTFM_BASE_URL", "http://ws.audioscrobbler.com/2.0/");
+
+    // Record/replay: responses are saved under LASTFM_RECORD_DIR when set, and the stub
+    // server replays LASTFM_REPLAY_DIR with a latency distribution and injected error rate
+    public static final String RECORD_DIR = System.getenv("LASTFM_RECORD_DIR");
+    public static final String REPLAY_DIR = System.getenv().getOrDefault("LASTFM_REPLAY_DIR", "recordings");
+    public static final int STUB_SERVER_PORT = Integer.parseInt(System.getenv().getOrDefault("STUB_PORT", "8890"));
+    public static final String STUB_LATENCY = System.getenv().getOrDefault("STUB_LATENCY", "lognormal:80:0.5");
+    public static final double STUB_ERROR_RATE = Double.parseDouble(System.getenv().getOrDefault("STUB_ERROR_RATE", "0"));
+    public static final String STUB_ERROR_CODES = System.getenv().getOrDefault("STUB_ERROR_CODES", "29,16");
 
     // Server Configuration
     public static final int SERVER_PORT = 8888;
     public static final String SERVER_HOST = "localhost";
+
+    // "nio" serves every connection from a few selector threads, "pooled" uses one thread per connection
+    public static final String SERVER_MODE = System.getenv().getOrDefault("SERVER_MODE", "nio");
+    public static final int SERVER_POOL_THREADS = 10;
+    public static final int NIO_SELECTOR_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int NIO_WORKER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // Response format the GUI asks for: "binary" (WireCodec frames) or "json" lines
+    public static final String WIRE_FORMAT = System.getenv().getOrDefault("WIRE_FORMAT", "binary");
+
+    // Tracks per chunk when a client asks for a streamed SEARCH or RECOMMEND response
+    public static final int STREAM_CHUNK_TRACKS = 10;
+
+    // Tracks remembered per connection (feeds the random strategy), oldest dropped first
+    public static final int SESSION_HISTORY_MAX_TRACKS =
+            Integer.parseInt(System.getenv().getOrDefault("SESSION_HISTORY_MAX_TRACKS", "2000"));
+
+    // Load generator: "closed" (each client waits for its answer) or "open" (requests sent at a
+    // fixed rate), clients, run length and the SEARCH/RECOMMEND/SET_STRATEGY mix by weight.
+    // The corpus is a file of "track<TAB>artist" lines, a built-in list is used without one
+    public static final String LOAD_MODE = System.getenv().getOrDefault("LOAD_MODE", "closed");
+    public static final int LOAD_CLIENTS = Integer.parseInt(System.getenv().getOrDefault("LOAD_CLIENTS", "16"));
+    public static final double LOAD_RATE_PER_SECOND = Double.parseDouble(System.getenv().getOrDefault("LOAD_RATE", "200"));
+    public static final int LOAD_DURATION_SECONDS = Integer.parseInt(System.getenv().getOrDefault("LOAD_DURATION_SECONDS", "30"));
+    public static final int LOAD_WARMUP_SECONDS = Integer.parseInt(System.getenv().getOrDefault("LOAD_WARMUP_SECONDS", "5"));
+    public static final String LOAD_MIX = System.getenv().getOrDefault("LOAD_MIX", "search:60,recommend:35,set_strategy:5");
+    public static final String LOAD_CORPUS_FILE = System.getenv("LOAD_CORPUS_FILE");
+    public static final long LOAD_REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    // Response Cache Configuration
+    public static final long CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    public static final int TRACK_INTERNER_MAX_TRACKS = 200_000;
+    public static final long SEARCH_TTL_MILLIS = 10 * 60 * 1000L;
+    public static final long SIMILAR_TTL_MILLIS = 60 * 60 * 1000L;
+    public static final long TRACK_INFO_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Disk Cache Configuration (second tier under the response cache, kept across restarts)
+    public static final String DISK_CACHE_DIR = System.getenv().getOrDefault("LASTFM_CACHE_DIR", "cache");
+    public static final long DISK_CACHE_SEGMENT_BYTES = 8L * 1024 * 1024;
+    public static final long DISK_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+    public static final long DISK_CACHE_COMPACT_INTERVAL_MILLIS = 10 * 60 * 1000L;
+
+    // Similar tracks fetched per seed whatever count was asked for (the cache key and graph
+    // expansion are shared by every strategy), and the local similarity graph they feed
+    public static final int SIMILAR_FETCH_LIMIT = 50;
+    public static final int GRAPH_MAX_NODES = 500_000;
+
+    // Personalized PageRank over the graph: restart probability, solver caps and subgraph bounds
+    public static final float PPR_RESTART_PROBABILITY = 0.15f;
+    public static final int PPR_MAX_ITERATIONS = 20;
+    public static final float PPR_EPSILON = 1e-5f;
+    public static final int PPR_MAX_HOPS = 3;
+    public static final int PPR_MAX_NODES = 5_000;
+
+    // Offline audio-feature recommendations: CSV loaded at startup, distance metric
+    // (EUCLIDEAN or COSINE) and weights for danceability, energy, valence, tempo, acousticness
+    public static final String AUDIO_FEATURES_FILE = System.getenv().getOrDefault("AUDIO_FEATURES_FILE", "audio_features.csv");
+    public static final String AUDIO_FEATURE_METRIC = System.getenv().getOrDefault("AUDIO_FEATURE_METRIC", "EUCLIDEAN");
+    public static final float[] AUDIO_FEATURE_WEIGHTS = {1f, 1f, 1f, 0.5f, 1f};
+
+    // HNSW index over the audio features: links per node, build and query candidate list sizes
+    public static final String AUDIO_INDEX_FILE = System.getenv().getOrDefault("AUDIO_INDEX_FILE", "audio_features.hnsw");
+    public static final int HNSW_M = 16;
+    public static final int HNSW_EF_CONSTRUCTION = 100;
+    public static final int HNSW_EF_SEARCH = Integer.parseInt(System.getenv().getOrDefault("HNSW_EF_SEARCH", "64"));
+
+    // Hybrid re-ranking: candidates per seed (all of one similar-tracks fetch, so the pool
+    // comes from the graph or cache when any strategy has seen the seed) and signal weights
+    public static final int HYBRID_POOL_SIZE = SIMILAR_FETCH_LIMIT;
+    public static final double HYBRID_MATCH_WEIGHT = 0.6;
+    public static final double HYBRID_POPULARITY_WEIGHT = 0.15;
+    public static final double HYBRID_AUDIO_WEIGHT = 0.25;
+
+    // Fallback chain latency budgets: memory cache, local graph, selected strategy, random,
+    // and the deadline for the whole chain
+    public static final long TIER_CACHE_BUDGET_MILLIS = 20;
+    public static final long TIER_LOCAL_BUDGET_MILLIS = 50;
+    public static final long TIER_LIVE_BUDGET_MILLIS = 2500;
+    public static final long TIER_RANDOM_BUDGET_MILLIS = 50;
+    public static final long RECOMMEND_DEADLINE_MILLIS = 3000;
+    // Threads running blocking tiers at once; a tier that finds them all busy is skipped
+    public static final int TIER_MAX_THREADS = 64;
+
+    // Bulk track.getInfo enrichment: lookups in flight at once
+    public static final int ENRICH_MAX_PARALLEL = 8;
+
+    // Multi-seed fan-out: lookups in flight at once and the deadline for each one
+    public static final int FANOUT_MAX_PARALLEL = 8;
+    public static final long FANOUT_DEADLINE_MILLIS = 3000;
+
+    // Client-side Last.fm rate limit: requests/second adapted by AIMD between min and max,
+    // token bucket burst, and how long a call may wait for a token before failing fast
+    public static final double RATE_LIMIT_INITIAL_PER_SECOND = 5.0;
+    public static final double RATE_LIMIT_MIN_PER_SECOND = 0.5;
+    public static final double RATE_LIMIT_MAX_PER_SECOND = 8.0;
+    public static final int RATE_LIMIT_BURST = 10;
+    public static final double RATE_LIMIT_INCREASE_PER_SECOND = 0.1;
+    public static final double RATE_LIMIT_DECREASE_FACTOR = 0.5;
+    public static final long RATE_LIMIT_COOLDOWN_MILLIS = 1000;
+    public static final long RATE_LIMIT_MAX_WAIT_MILLIS = 250;
+
+    // Circuit breaker around Last.fm: calls in the sliding window, failure and slow-call
+    // rates that open it, how long it stays open and how many half-open probes close it
+    public static final int BREAKER_WINDOW_SIZE = 20;
+    public static final int BREAKER_MINIMUM_CALLS = 10;
+    public static final double BREAKER_FAILURE_RATE = 0.5;
+    public static final double BREAKER_SLOW_CALL_RATE = 0.8;
+    public static final long BREAKER_SLOW_CALL_MILLIS = 2000;
+    public static final long BREAKER_OPEN_MILLIS = 15_000;
+    public static final int BREAKER_HALF_OPEN_PROBES = 3;
+
+    // HTTP Transport Configuration
+    public static final int HTTP_MAX_CONNECTIONS_TOTAL = 50;
+    public static final int HTTP_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final long HTTP_CONNECT_TIMEOUT_MILLIS = 3000;
+    public static final long HTTP_RESPONSE_TIMEOUT_MILLIS = 5000;
+    public static final long HTTP_KEEP_ALIVE_MILLIS = 30 * 1000L;
+    public static final long HTTP_IDLE_EVICTION_MILLIS = 60 * 1000L;
+    public static final boolean HTTP2_ASYNC = Boolean.parseBoolean(System.getenv("LASTFM_HTTP2"));
+    // Threads parsing async response bodies as they stream in, further bodies wait their turn
+    public static final int HTTP_PARSER_THREADS = 16;
 }
\ No newline at end of file
@@ -0,0 +1,551 @@
+package service;
+
+import model.Track;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent response store so a restarted server starts with a warm cache
+ * Entries are appended to segment files (segment-N.log) and found through an
+ * in-memory key -> file position index. The index is rebuilt by scanning the
+ * segments when the cache is opened, before the server takes requests. Expired
+ * and overwritten records are dropped by a background compaction that rewrites
+ * the sealed segments into one, also dropping the oldest records once the
+ * cache is over maxBytes
+ *
+ * Record: [int length][int crc32][long expiresAt][key][track count][tracks...]
+ */
+public class DiskCache implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final long maxBytes;
+    private final LongSupplier clock;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    // Reads and appends share the lock, compaction takes it exclusively to swap files
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final ScheduledExecutorService compactor;
+
+    private volatile boolean closed;
+    private int activeSegment;
+    private long activeSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    /**
+     * Open the cache in directory, indexing what is already there, and start the
+     * periodic compaction
+     */
+    public static DiskCache open(Path directory) {
+        DiskCache cache = new DiskCache(directory, Config.DISK_CACHE_SEGMENT_BYTES, Config.DISK_CACHE_MAX_BYTES,
+                System::currentTimeMillis);
+        cache.compactor.scheduleWithFixedDelay(cache::compactQuietly, Config.DISK_CACHE_COMPACT_INTERVAL_MILLIS,
+                Config.DISK_CACHE_COMPACT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return cache;
+    }
+
+    // Segment size, byte limit and clock are injectable so rolling, expiry and compaction can be tested
+    DiskCache(Path directory, long segmentMaxBytes, LongSupplier clock) {
+        this(directory, segmentMaxBytes, Config.DISK_CACHE_MAX_BYTES, clock);
+    }
+
+    DiskCache(Path directory, long segmentMaxBytes, long maxBytes, LongSupplier clock) {
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "disk-cache-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            load();
+        } catch (IOException e) {
+            System.err.println("Disk cache load failed, starting empty: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Look up a stored response
+     *
+     * @return the tracks and their expiry time, or null if missing or expired
+     */
+    public Stored get(String key) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            Location location = index.get(key);
+            if (location == null || location.expiresAt <= clock.getAsLong()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            Stored stored = decode(readRecord(location)).stored;
+            hits.incrementAndGet();
+            return stored;
+        } catch (IOException e) {
+            System.err.println("Disk cache read failed: " + e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append a response; it replaces any earlier record with the same key
+     */
+    public void put(String key, List<Track> tracks, long expiresAt) {
+        byte[] record = encode(key, tracks, expiresAt);
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            synchronized (appendLock) {
+                if (activeSize > 0 && activeSize + record.length > segmentMaxBytes) {
+                    openSegment(activeSegment + 1);
+                    // Don't wait for the next scheduled run to get back under the limit
+                    if (getDiskBytes() > maxBytes) {
+                        try {
+                            compactor.execute(this::compactQuietly);
+                        } catch (RejectedExecutionException e) {
+                            // Closing, nothing left to compact for
+                        }
+                    }
+                }
+                FileChannel channel = segments.get(activeSegment);
+                long offset = activeSize;
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+                activeSize += record.length;
+                index.put(key, new Location(activeSegment, offset, record.length, expiresAt));
+            }
+        } catch (IOException e) {
+            System.err.println("Disk cache write failed: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stored tracks with the time they stop being fresh
+     */
+    public static class Stored {
+        public final List<Track> tracks;
+        public final long expiresAt;
+
+        Stored(List<Track> tracks, long expiresAt) {
+            this.tracks = tracks;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Rewrite every sealed segment into one, keeping only live, current records,
+     * newest first up to what maxBytes leaves beside the active segment
+     * The result takes the highest sealed id so replay order is unchanged
+     */
+    synchronized void compact() throws IOException {
+        int active;
+        long activeBytes;
+        synchronized (appendLock) {
+            active = activeSegment;
+            activeBytes = activeSize;
+        }
+        List<Integer> sealed = new ArrayList<>();
+        for (Integer segment : segments.keySet()) {
+            if (segment < active) {
+                sealed.add(segment);
+            }
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+        sealed.sort(null);
+        int target = sealed.get(sealed.size() - 1);
+
+        long now = clock.getAsLong();
+        List<Map.Entry<String, Location>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment < active && location.expiresAt > now) {
+                candidates.add(Map.entry(entry.getKey(), location));
+            }
+        }
+        // Newest first, so the oldest records are the ones left out when over the limit
+        candidates.sort((a, b) -> a.getValue().segment != b.getValue().segment
+                ? Integer.compare(b.getValue().segment, a.getValue().segment)
+                : Long.compare(b.getValue().offset, a.getValue().offset));
+        long budget = Math.max(0, maxBytes - activeBytes);
+        Map<String, Location> live = new HashMap<>();
+        long liveBytes = 0;
+        boolean overLimit = false;
+        for (Map.Entry<String, Location> entry : candidates) {
+            Location location = entry.getValue();
+            if (liveBytes + location.length > budget) {
+                overLimit = true;
+                break;
+            }
+            live.put(entry.getKey(), location);
+            liveBytes += location.length;
+        }
+
+        // Only worth rewriting once at least half of the sealed bytes are dead, or to get under maxBytes
+        long sealedBytes = 0;
+        for (Integer segment : sealed) {
+            sealedBytes += segments.get(segment).size();
+        }
+        if (!overLimit && sealedBytes - liveBytes < liveBytes) {
+            return;
+        }
+
+        // Sealed segments never change, so copying needs no lock
+        Path temp = directory.resolve(SEGMENT_PREFIX + target + ".compact");
+        Map<String, Location> moved = new HashMap<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (Map.Entry<String, Location> entry : live.entrySet()) {
+                Location location = entry.getValue();
+                ByteBuffer record = ByteBuffer.wrap(readRecord(location));
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                moved.put(entry.getKey(), new Location(target, offset, location.length, location.expiresAt));
+                offset += location.length;
+            }
+            out.force(true);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                Files.deleteIfExists(temp);
+                return;
+            }
+            for (Integer segment : sealed) {
+                segments.remove(segment).close();
+            }
+            Files.move(temp, segmentPath(target), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Integer segment : sealed) {
+                if (segment != target) {
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+            segments.put(target, FileChannel.open(segmentPath(target), StandardOpenOption.READ));
+
+            // Keys rewritten into the active segment meanwhile keep their newer location
+            index.entrySet().removeIf(e -> e.getValue().segment < active && !moved.containsKey(e.getKey()));
+            for (Map.Entry<String, Location> entry : moved.entrySet()) {
+                index.replace(entry.getKey(), live.get(entry.getKey()), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactions.incrementAndGet();
+    }
+
+    private byte[] readRecord(Location location) throws IOException {
+        FileChannel channel = segments.get(location.segment);
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        while (record.hasRemaining()) {
+            if (channel.read(record, location.offset + record.position()) < 0) {
+                throw new EOFException("Segment " + location.segment + " is truncated");
+            }
+        }
+        return record.array();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Disk cache compaction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replay segments in id order; later records win, torn tails are cut off
+     */
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        ids.sort(null);
+
+        long now = clock.getAsLong();
+        for (int id : ids) {
+            long validBytes = scan(id, now);
+            if (id == ids.get(ids.size() - 1)) {
+                activeSegment = id;
+                FileChannel channel = FileChannel.open(segmentPath(id), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.truncate(validBytes);
+                segments.put(id, channel);
+                activeSize = validBytes;
+            } else {
+                segments.put(id, FileChannel.open(segmentPath(id), StandardOpenOption.READ));
+            }
+        }
+        if (ids.isEmpty()) {
+            openSegment(0);
+        }
+        System.out.println("Disk cache loaded " + index.size() + " entries from " + directory);
+    }
+
+    // Index one segment, returns the length of its intact prefix
+    private long scan(int id, long now) throws IOException {
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(id))))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > segmentMaxBytes + (64L << 20)) {
+                    break;
+                }
+                byte[] record = new byte[HEADER_BYTES + length];
+                ByteBuffer.wrap(record).putInt(length);
+                try {
+                    in.readFully(record, 4, record.length - 4);
+                } catch (EOFException e) {
+                    break;
+                }
+                Decoded decoded;
+                try {
+                    decoded = decode(record);
+                } catch (IOException e) {
+                    break;
+                }
+                if (decoded.stored.expiresAt > now) {
+                    index.put(decoded.key, new Location(id, offset, record.length, decoded.stored.expiresAt));
+                } else {
+                    index.remove(decoded.key);
+                }
+                offset += record.length;
+            }
+        }
+        return offset;
+    }
+
+    private void openSegment(int id) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(id, channel);
+        activeSegment = id;
+        activeSize = channel.size();
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+    }
+
+    static byte[] encode(String key, List<Track> tracks, long expiresAt) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + tracks.size() * 160);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length, filled in below
+            out.writeInt(0); // crc
+            out.writeLong(expiresAt);
+            writeString(out, key);
+            out.writeInt(tracks.size());
+            for (Track track : tracks) {
+                writeString(out, track.getName());
+                writeString(out, track.getArtist());
+                writeString(out, track.getMbid());
+                writeString(out, track.getUrl());
+                writeString(out, track.getImageUrl());
+                out.writeInt(track.getListeners());
+                out.writeDouble(track.getMatchScore());
+            }
+
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), HEADER_BYTES, record.capacity() - HEADER_BYTES);
+            record.putInt(0, record.capacity() - HEADER_BYTES);
+            record.putInt(4, (int) crc.getValue());
+            return record.array();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream, cannot happen
+        }
+    }
+
+    private static Decoded decode(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int length = buffer.getInt();
+        int storedCrc = buffer.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_BYTES, length);
+        if ((int) crc.getValue() != storedCrc) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, HEADER_BYTES, length));
+        long expiresAt = in.readLong();
+        String key = readString(in);
+        int count = in.readInt();
+        List<Track> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Track track = new Track(readString(in), readString(in));
+            track.setMbid(readString(in));
+            track.setUrl(readString(in));
+            track.setImageUrl(readString(in));
+            track.setListeners(in.readInt());
+            track.setMatchScore(in.readDouble());
+            tracks.add(track);
+        }
+        return new Decoded(key, new Stored(tracks, expiresAt));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Stats getters
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public int getSize() {
+        return index.size();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (FileChannel channel : segments.values()) {
+            try {
+                bytes += channel.size();
+            } catch (IOException e) {
+                // Closed by a concurrent compaction, counted on the next call
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            FileChannel active = segments.get(activeSegment);
+            if (active != null) {
+                active.force(false);
+            }
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Location {
+        final int segment;
+        final long offset;
+        final int length;
+        final long expiresAt;
+
+        Location(int segment, long offset, int length, long expiresAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Decoded {
+        final String key;
+        final Stored stored;
+
+        Decoded(String key, Stored stored) {
+            this.key = key;
+            this.stored = stored;
+        }
+    }
+}
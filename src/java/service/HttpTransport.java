@@ -0,0 +1,275 @@
+package service;
+
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pooled, keep-alive HTTP transport for Last.fm requests
+ * Blocking calls use a classic client by default, non-blocking calls use an
+ * async client that also negotiates HTTP/2 when http2Async is enabled
+ */
+public class HttpTransport implements Closeable {
+    private static final String USER_AGENT = "MusicRecommenderLab/1.0";
+    // Bytes buffered between the I/O reactor and a parser before the connection stops reading
+    private static final int STREAM_BUFFER_BYTES = 8192;
+
+    private final TransportSettings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final PoolingAsyncClientConnectionManager asyncConnectionManager;
+    private final CloseableHttpAsyncClient asyncClient;
+    // Async bodies are parsed here as they stream in, and their futures complete here,
+    // so neither parsing nor the caller's continuations ever run on the I/O reactor.
+    // A parse holds its thread until the body has arrived, so the pool is bounded and
+    // bodies beyond it queue (their connection stops reading once the buffer is full)
+    private final ExecutorService parsers;
+
+    public HttpTransport(TransportSettings settings) {
+        this.settings = settings;
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(settings.getConnectTimeoutMillis()))
+                .setSocketTimeout(Timeout.ofMilliseconds(settings.getResponseTimeoutMillis()))
+                .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(settings.getResponseTimeoutMillis()))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.getConnectTimeoutMillis()))
+                .build();
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(settings.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                // No silent resend on 429/503: the breaker and rate limiter own retries
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.getIdleEvictionMillis()))
+                .build();
+
+        // The async client backs the CompletableFuture API; it only negotiates
+        // HTTP/2 (and carries blocking calls too) when http2Async is enabled
+        this.asyncConnectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(settings.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(settings.isHttp2Async()
+                                ? HttpVersionPolicy.NEGOTIATE
+                                : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .build();
+        this.asyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.getIdleEvictionMillis()))
+                .build();
+        asyncClient.start();
+        int parserThreads = Math.max(1, settings.getParserThreads());
+        ThreadPoolExecutor parsers = new ThreadPoolExecutor(parserThreads, parserThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "lastfm-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        parsers.allowCoreThreadTimeOut(true);
+        this.parsers = parsers;
+    }
+
+    /**
+     * Honor a shorter Keep-Alive advertised by the server, otherwise keep
+     * idle connections for the configured duration
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        TimeValue maxKeepAlive = TimeValue.ofMilliseconds(settings.getKeepAliveMillis());
+        return (response, context) -> {
+            TimeValue advertised = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            if (TimeValue.isPositive(advertised) && advertised.compareTo(maxKeepAlive) < 0) {
+                return advertised;
+            }
+            return maxKeepAlive;
+        };
+    }
+
+    /**
+     * Turns a response body stream into a result without buffering it as a String
+     */
+    @FunctionalInterface
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    /**
+     * Perform a GET request and parse the response body as it streams in
+     */
+    public <T> T get(String url, BodyParser<T> parser) throws IOException {
+        if (settings.isHttp2Async()) {
+            return await(getAsync(url, parser), url);
+        }
+
+        HttpGet httpGet = new HttpGet(url);
+        httpGet.setHeader("User-Agent", USER_AGENT);
+
+        // The response handler releases the connection back to the pool
+        return httpClient.execute(httpGet, response -> {
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return parser.parse(InputStream.nullInputStream());
+            }
+            try (InputStream body = entity.getContent()) {
+                return parser.parse(body);
+            }
+        });
+    }
+
+    /**
+     * Perform a non-blocking GET request on the async client
+     * The body is parsed on a parser thread while it is still arriving, and the
+     * future completes on that thread, never on an I/O dispatcher
+     */
+    public <T> CompletableFuture<T> getAsync(String url, BodyParser<T> parser) {
+        SimpleHttpRequest request = SimpleRequestBuilder.get(url)
+                .setHeader("User-Agent", USER_AGENT)
+                .build();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Set once a body reached the parser, a null result then means "parsed to null"
+        AtomicBoolean bodyParsed = new AtomicBoolean();
+        AbstractClassicEntityConsumer<T> body = new AbstractClassicEntityConsumer<>(STREAM_BUFFER_BYTES, parsers) {
+            @Override
+            protected T consumeData(ContentType contentType, InputStream content) throws IOException {
+                bodyParsed.set(true);
+                return parser.parse(content);
+            }
+        };
+        asyncClient.execute(SimpleRequestProducer.create(request), new BasicResponseConsumer<>(body), null, null,
+                new FutureCallback<Message<HttpResponse, T>>() {
+                    @Override
+                    public void completed(Message<HttpResponse, T> response) {
+                        if (bodyParsed.get()) {
+                            result.complete(response.getBody());
+                            return;
+                        }
+                        // No entity at all, so the body consumer never ran: parse an empty body
+                        onParserThread(() -> {
+                            try {
+                                result.complete(parser.parse(InputStream.nullInputStream()));
+                            } catch (IOException | RuntimeException e) {
+                                result.completeExceptionally(e);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        onParserThread(() -> result.completeExceptionally(e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        onParserThread(() -> result.cancel(false));
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * Run on a parser thread, or right here once the transport is closed
+     */
+    private void onParserThread(Runnable task) {
+        try {
+            parsers.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String url) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + url, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public boolean isHttp2Async() {
+        return settings.isHttp2Async();
+    }
+
+    /**
+     * Leased/available/pending connection counts of the active pool
+     */
+    public PoolStats getPoolStats() {
+        return settings.isHttp2Async()
+                ? asyncConnectionManager.getTotalStats()
+                : connectionManager.getTotalStats();
+    }
+
+    public TransportSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        asyncClient.close(CloseMode.GRACEFUL);
+        parsers.shutdown();
+    }
+}
@@ -1,38 +1,90 @@
 package service;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import model.AudioFeatureStore;
+import model.HnswIndex;
+import model.SimilarityGraph;
 import model.Track;
 
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /**
  * REST API Client for Last.fm Web API
- * Demonstrates REST API calls and JSON parsing
+ * Demonstrates REST API calls and JSON parsing (see LastFmResponseParser)
  *
  * NO AUTHENTICATION NEEDED - Last.fm uses simple API key in URL
  */
 public class LastFmAPIClient {
-    private final CloseableHttpClient httpClient;
+    static final String METHOD_SEARCH = "track.search";
+    static final String METHOD_SIMILAR = "track.getSimilar";
+    static final String METHOD_INFO = "track.getInfo";
+
+    private final HttpTransport transport;
+    private final String baseUrl;
+    private final RateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final ResponseCache cache;
+    private final SingleFlight<String, List<Track>> inFlight = new SingleFlight<>(LastFmAPIClient::copyOf);
+    private final List<SimilarTracksListener> similarListeners = new CopyOnWriteArrayList<>();
+    private final SimilarityGraph similarityGraph = new SimilarityGraph(Config.GRAPH_MAX_NODES);
+    private final AudioFeatureStore audioFeatures = new AudioFeatureStore();
+    private volatile HnswIndex audioIndex = newAudioIndex();
+    private volatile ResponseRecorder recorder;
+
+    /**
+     * Notified with every getSimilarTracks result fetched from Last.fm
+     */
+    @FunctionalInterface
+    public interface SimilarTracksListener {
+        void onSimilarTracks(String trackName, String artistName, int limit, List<Track> similar);
+    }
 
     /**
      * Constructor - No authentication needed!
      */
     public LastFmAPIClient() {
-        this.httpClient = HttpClients.createDefault();
+        this(new HttpTransport(new TransportSettings()), Config.API_BASE_URL);
+        if (Config.RECORD_DIR != null) {
+            this.recorder = new ResponseRecorder(Path.of(Config.RECORD_DIR));
+            System.out.println("Recording Last.fm responses to " + Config.RECORD_DIR);
+        }
+    }
+
+    /**
+     * Constructor with an explicit transport and endpoint (e.g. a local stub server)
+     */
+    public LastFmAPIClient(HttpTransport transport, String baseUrl) {
+        this(transport, baseUrl, new RateLimiter(), new CircuitBreaker());
+    }
+
+    /**
+     * Constructor with explicit upstream protection, e.g. driven by a fake clock in tests
+     */
+    public LastFmAPIClient(HttpTransport transport, String baseUrl, RateLimiter rateLimiter, CircuitBreaker circuitBreaker) {
+        this.transport = transport;
+        this.baseUrl = baseUrl;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.cache = new ResponseCache(Config.CACHE_MAX_BYTES);
+        cache.setTtl(METHOD_SEARCH, Config.SEARCH_TTL_MILLIS);
+        cache.setTtl(METHOD_SIMILAR, Config.SIMILAR_TTL_MILLIS);
+        cache.setTtl(METHOD_INFO, Config.TRACK_INFO_TTL_MILLIS);
+        similarListeners.add(similarityGraph::addSimilar);
         System.out.println("Last.fm API Client initialized");
     }
 
@@ -45,309 +97,426 @@ public class LastFmAPIClient {
      * @return List of Track objects matching the search
      */
     public List<Track> searchTracks(String query, int limit) throws IOException {
-        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
-        String url = String.format("%s?method=track.search&track=%s&api_key=%s&format=json&limit=%d",
-                Config.API_BASE_URL, encodedQuery, Config.API_KEY, limit);
+        String cacheKey = ResponseCache.key(METHOD_SEARCH, query, limit);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
 
-        HttpGet httpGet = new HttpGet(url);
-        httpGet.setHeader("User-Agent", "MusicRecommenderLab/1.0");
+        String url = searchUrl(query, limit);
+        return execute(cacheKey, () -> {
+            List<Track> tracks = fetch(url, LastFmResponseParser::parseSearch);
+            cacheIfPresent(cacheKey, tracks);
+            return tracks;
+        });
+    }
 
-        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            return parseTracksFromSearch(jsonResponse);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
+    /**
+     * Get similar tracks based on a given track
+     * This is our recommendation engine!
+     *
+     * @param trackName Name of the seed track
+     * @param artistName Name of the artist
+     * @param limit Maximum number of recommendations
+     * @return List of similar Track objects
+     */
+    public List<Track> getSimilarTracks(String trackName, String artistName, int limit) throws IOException, ParseException {
+        int fetchLimit = similarFetchLimit(limit);
+        String cacheKey = ResponseCache.key(METHOD_SIMILAR, artistName, trackName, fetchLimit);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return firstN(cached, limit);
         }
+
+        String url = similarUrl(trackName, artistName, fetchLimit);
+
+        // Concurrent lookups of the same seed share one upstream request
+        return firstN(execute(cacheKey, () -> {
+            List<Track> tracks = fetch(url, LastFmResponseParser::parseSimilar);
+            cacheIfPresent(cacheKey, tracks);
+            notifySimilar(trackName, artistName, fetchLimit, tracks);
+            return tracks;
+        }), limit);
     }
 
     /**
-     * Parse Track objects from search JSON response
-     * Demonstrates JSON parsing and object creation
+     * Similar tracks only if they are already in the in-memory cache, never calling Last.fm
+     *
+     * @return copies of the cached tracks, or null if they are not cached
      */
-    private List<Track> parseTracksFromSearch(String jsonResponse) {
-        List<Track> tracks = new ArrayList<>();
+    public List<Track> getCachedSimilarTracks(String trackName, String artistName, int limit) {
+        List<Track> cached = cache.peek(ResponseCache.key(METHOD_SIMILAR, artistName, trackName, similarFetchLimit(limit)));
+        return cached != null ? firstN(cached, limit) : null;
+    }
 
-        try {
-            JsonObject root = JsonParser.parseString(jsonResponse).getAsJsonObject();
+    /**
+     * Track info only if it is already in the in-memory cache, never calling Last.fm
+     *
+     * @return a copy of the cached track, or null if it is not cached
+     */
+    public Track getCachedTrackInfo(String trackName, String artistName) {
+        List<Track> cached = cache.peek(ResponseCache.key(METHOD_INFO, artistName, trackName));
+        return cached == null || cached.isEmpty() ? null : cached.get(0);
+    }
 
-            // Check for error response
-            if (root.has("error")) {
-                System.err.println("API Error: " + root.get("message").getAsString());
-                return tracks;
-            }
+    /**
+     * Get detailed track information
+     *
+     * @param trackName Name of the track
+     * @param artistName Name of the artist
+     * @return Track object with detailed information
+     */
+    public Track getTrackInfo(String trackName, String artistName) throws IOException {
+        String cacheKey = ResponseCache.key(METHOD_INFO, artistName, trackName);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached.get(0);
+        }
 
-            if (!root.has("results")) {
-                return tracks;
+        String url = trackInfoUrl(trackName, artistName);
+        List<Track> result = execute(cacheKey, () -> {
+            Track track = fetch(url, LastFmResponseParser::parseTrackInfo);
+            if (track == null) {
+                return List.of();
             }
+            List<Track> tracks = List.of(track);
+            cache.put(cacheKey, tracks);
+            return tracks;
+        });
+        return result.isEmpty() ? null : result.get(0);
+    }
 
-            JsonObject results = root.getAsJsonObject("results");
-            if (!results.has("trackmatches")) {
-                return tracks;
-            }
+    /**
+     * Non-blocking variant of searchTracks
+     * Shares the cache and in-flight requests with the blocking API
+     */
+    public CompletableFuture<List<Track>> searchTracksAsync(String query, int limit) {
+        String cacheKey = ResponseCache.key(METHOD_SEARCH, query, limit);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-            JsonObject trackmatches = results.getAsJsonObject("trackmatches");
-            if (!trackmatches.has("track")) {
-                return tracks;
-            }
+        String url = searchUrl(query, limit);
+        return executeAsync(cacheKey, () -> fetchAsync(url, LastFmResponseParser::parseSearch).thenApply(tracks -> {
+            cacheIfPresent(cacheKey, tracks);
+            return tracks;
+        }));
+    }
 
-            JsonElement trackElement = trackmatches.get("track");
-            JsonArray trackArray;
+    /**
+     * Non-blocking variant of getSimilarTracks
+     */
+    public CompletableFuture<List<Track>> getSimilarTracksAsync(String trackName, String artistName, int limit) {
+        int fetchLimit = similarFetchLimit(limit);
+        String cacheKey = ResponseCache.key(METHOD_SIMILAR, artistName, trackName, fetchLimit);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(firstN(cached, limit));
+        }
 
-            // Handle both array and single object cases
-            // Last.fm returns an object if only 1 result, array if multiple
-            if (trackElement.isJsonArray()) {
-                trackArray = trackElement.getAsJsonArray();
-            } else {
-                trackArray = new JsonArray();
-                trackArray.add(trackElement);
-            }
+        String url = similarUrl(trackName, artistName, fetchLimit);
+        return executeAsync(cacheKey, () -> fetchAsync(url, LastFmResponseParser::parseSimilar).thenApply(tracks -> {
+            cacheIfPresent(cacheKey, tracks);
+            notifySimilar(trackName, artistName, fetchLimit, tracks);
+            return tracks;
+        })).thenApply(tracks -> firstN(tracks, limit));
+    }
 
-            for (int i = 0; i < trackArray.size(); i++) {
-                JsonObject item = trackArray.get(i).getAsJsonObject();
+    /**
+     * Non-blocking variant of getTrackInfo
+     * Completes with null when Last.fm has no info for the track
+     */
+    public CompletableFuture<Track> getTrackInfoAsync(String trackName, String artistName) {
+        String cacheKey = ResponseCache.key(METHOD_INFO, artistName, trackName);
+        List<Track> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.get(0));
+        }
 
-                String name = item.get("name").getAsString();
-                String artist = item.get("artist").getAsString();
+        String url = trackInfoUrl(trackName, artistName);
+        return executeAsync(cacheKey, () -> fetchAsync(url, LastFmResponseParser::parseTrackInfo).thenApply(track -> {
+            if (track == null) {
+                return List.<Track>of();
+            }
+            List<Track> tracks = List.of(track);
+            cache.put(cacheKey, tracks);
+            return tracks;
+        })).thenApply(result -> result.isEmpty() ? null : result.get(0));
+    }
 
-                Track track = new Track(name, artist);
+    private String searchUrl(String query, int limit) {
+        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        return String.format("%s?method=track.search&track=%s&api_key=%s&format=json&limit=%d",
+                baseUrl, encodedQuery, Config.API_KEY, limit);
+    }
 
-                if (item.has("url")) {
-                    track.setUrl(item.get("url").getAsString());
-                }
+    private String similarUrl(String trackName, String artistName, int limit) {
+        String encodedTrack = URLEncoder.encode(trackName, StandardCharsets.UTF_8);
+        String encodedArtist = URLEncoder.encode(artistName, StandardCharsets.UTF_8);
+        return String.format("%s?method=track.getSimilar&artist=%s&track=%s&api_key=%s&format=json&limit=%d",
+                baseUrl, encodedArtist, encodedTrack, Config.API_KEY, limit);
+    }
 
-                if (item.has("listeners")) {
-                    try {
-                        track.setListeners(Integer.parseInt(item.get("listeners").getAsString()));
-                    } catch (NumberFormatException e) {
-                        track.setListeners(0);
-                    }
-                }
+    private String trackInfoUrl(String trackName, String artistName) {
+        String encodedTrack = URLEncoder.encode(trackName, StandardCharsets.UTF_8);
+        String encodedArtist = URLEncoder.encode(artistName, StandardCharsets.UTF_8);
+        return String.format("%s?method=track.getInfo&artist=%s&track=%s&api_key=%s&format=json",
+                baseUrl, encodedArtist, encodedTrack, Config.API_KEY);
+    }
 
-                if (item.has("mbid") && !item.get("mbid").getAsString().isEmpty()) {
-                    track.setMbid(item.get("mbid").getAsString());
-                }
+    /**
+     * Run the loader through SingleFlight, unless a flight that finished between
+     * our cache miss and joining SingleFlight has already cached the answer
+     */
+    private List<Track> execute(String cacheKey, SingleFlight.Loader<List<Track>> loader) throws IOException {
+        return inFlight.execute(cacheKey, () -> {
+            List<Track> cached = cache.peek(cacheKey);
+            return cached != null ? cached : loader.load();
+        });
+    }
 
-                // Extract image URL (prefer medium size)
-                if (item.has("image")) {
-                    JsonArray images = item.getAsJsonArray("image");
-                    for (JsonElement imgElement : images) {
-                        JsonObject img = imgElement.getAsJsonObject();
-                        String size = img.get("size").getAsString();
-                        if (size.equals("medium") || size.equals("large")) {
-                            String imageUrl = img.get("#text").getAsString();
-                            if (!imageUrl.isEmpty()) {
-                                track.setImageUrl(imageUrl);
-                                break;
-                            }
-                        }
-                    }
-                }
+    private CompletableFuture<List<Track>> executeAsync(String cacheKey, Supplier<CompletableFuture<List<Track>>> loader) {
+        return inFlight.executeAsync(cacheKey, () -> {
+            List<Track> cached = cache.peek(cacheKey);
+            return cached != null ? CompletableFuture.completedFuture(cached) : loader.get();
+        });
+    }
 
-                tracks.add(track);
+    /**
+     * Blocking GET through the circuit breaker and the rate limiter
+     * Refused calls fail fast with CallNotPermittedException so callers (and the
+     * fallback tiers above them) move on instead of queueing behind Last.fm
+     */
+    private <T> T fetch(String url, HttpTransport.BodyParser<T> parser) throws IOException {
+        long waitMillis = admit();
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                circuitBreaker.release();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a Last.fm token");
             }
-        } catch (Exception e) {
-            System.err.println("Error parsing search results: " + e.getMessage());
-            e.printStackTrace();
         }
 
-        return tracks;
+        long start = System.nanoTime();
+        try {
+            T result = transport.get(url, recorded(url, parser));
+            succeeded(start);
+            return result;
+        } catch (UncheckedIOException e) {
+            failed(start, e.getCause());
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            failed(start, e);
+            throw e;
+        }
     }
 
     /**
-     * Get similar tracks based on a given track
-     * This is our recommendation engine!
-     *
-     * @param trackName Name of the seed track
-     * @param artistName Name of the artist
-     * @param limit Maximum number of recommendations
-     * @return List of similar Track objects
+     * Non-blocking fetch; a call that has to wait for a token is started on the delayed executor
      */
-    public List<Track> getSimilarTracks(String trackName, String artistName, int limit) throws IOException, ParseException {
-        String encodedTrack = URLEncoder.encode(trackName, StandardCharsets.UTF_8);
-        String encodedArtist = URLEncoder.encode(artistName, StandardCharsets.UTF_8);
-        String url = String.format("%s?method=track.getSimilar&artist=%s&track=%s&api_key=%s&format=json&limit=%d",
-                Config.API_BASE_URL, encodedArtist, encodedTrack, Config.API_KEY, limit);
-
-        HttpGet httpGet = new HttpGet(url);
-        httpGet.setHeader("User-Agent", "MusicRecommenderLab/1.0");
+    private <T> CompletableFuture<T> fetchAsync(String url, HttpTransport.BodyParser<T> parser) {
+        long waitMillis;
+        try {
+            waitMillis = admit();
+        } catch (CallNotPermittedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            return parseSimilarTracks(jsonResponse);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable call = () -> {
+            long start = System.nanoTime();
+            CompletableFuture<T> response;
+            try {
+                response = transport.getAsync(url, recorded(url, parser));
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((value, error) -> {
+                if (error == null) {
+                    succeeded(start);
+                    result.complete(value);
+                } else {
+                    Throwable cause = unwrap(error);
+                    failed(start, cause);
+                    result.completeExceptionally(cause);
+                }
+            });
+        };
+        if (waitMillis > 0) {
+            CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS).execute(call);
+        } else {
+            call.run();
         }
+        return result;
     }
 
     /**
-     * Parse similar tracks from JSON response
+     * @return milliseconds to wait for a rate limiter token
      */
-    private List<Track> parseSimilarTracks(String jsonResponse) {
-        List<Track> tracks = new ArrayList<>();
-
-        try {
-            JsonObject root = JsonParser.parseString(jsonResponse).getAsJsonObject();
-
-            // Check for error response
-            if (root.has("error")) {
-                System.err.println("API Error: " + root.get("message").getAsString());
-                return tracks;
-            }
+    private long admit() throws CallNotPermittedException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CallNotPermittedException("Last.fm circuit breaker is open");
+        }
+        long waitMillis = rateLimiter.reserve();
+        if (waitMillis < 0) {
+            circuitBreaker.release();
+            throw new CallNotPermittedException("Last.fm rate limit reached");
+        }
+        return waitMillis;
+    }
 
-            if (!root.has("similartracks")) {
-                return tracks;
-            }
+    private void succeeded(long start) {
+        circuitBreaker.onSuccess(System.nanoTime() - start);
+        rateLimiter.onSuccess();
+    }
 
-            JsonObject similarTracks = root.getAsJsonObject("similartracks");
-            if (!similarTracks.has("track")) {
-                return tracks;
-            }
+    /**
+     * Every failure counts against the breaker, only "slow down" signals cut the rate
+     */
+    private void failed(long start, Throwable error) {
+        circuitBreaker.onFailure(System.nanoTime() - start);
+        boolean throttled = error instanceof LastFmApiException
+                ? ((LastFmApiException) error).isRateLimited()
+                : error instanceof InterruptedIOException || error instanceof TimeoutException;
+        if (throttled) {
+            rateLimiter.onThrottle();
+        }
+    }
 
-            JsonElement trackElement = similarTracks.get("track");
-            JsonArray trackArray;
+    private <T> HttpTransport.BodyParser<T> recorded(String url, HttpTransport.BodyParser<T> parser) {
+        ResponseRecorder current = recorder;
+        return current == null ? parser : current.recording(url, parser);
+    }
 
-            if (trackElement.isJsonArray()) {
-                trackArray = trackElement.getAsJsonArray();
-            } else {
-                trackArray = new JsonArray();
-                trackArray.add(trackElement);
-            }
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException
+                || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 
-            for (int i = 0; i < trackArray.size(); i++) {
-                JsonObject item = trackArray.get(i).getAsJsonObject();
+    /**
+     * Similar tracks are always fetched (and cached) at least SIMILAR_FETCH_LIMIT deep,
+     * so every strategy and count shares one response and graph expansion per seed
+     */
+    private static int similarFetchLimit(int limit) {
+        return Math.max(limit, Config.SIMILAR_FETCH_LIMIT);
+    }
 
-                String name = item.get("name").getAsString();
+    private static List<Track> firstN(List<Track> tracks, int limit) {
+        return tracks.size() <= limit ? tracks : new ArrayList<>(tracks.subList(0, limit));
+    }
 
-                // Artist can be an object or a string depending on Last.fm response
-                String artist;
-                JsonElement artistElement = item.get("artist");
-                if (artistElement.isJsonObject()) {
-                    artist = artistElement.getAsJsonObject().get("name").getAsString();
-                } else {
-                    artist = artistElement.getAsString();
-                }
+    /**
+     * Only cache non-empty results so API errors are retried on the next request
+     */
+    private void cacheIfPresent(String cacheKey, List<Track> tracks) {
+        if (!tracks.isEmpty()) {
+            cache.put(cacheKey, tracks);
+        }
+    }
 
-                Track track = new Track(name, artist);
+    public void addSimilarTracksListener(SimilarTracksListener listener) {
+        similarListeners.add(listener);
+    }
 
-                // Get match score (0.0 to 1.0)
-                if (item.has("match")) {
-                    try {
-                        track.setMatchScore(Double.parseDouble(item.get("match").getAsString()));
-                    } catch (NumberFormatException e) {
-                        track.setMatchScore(0.0);
-                    }
-                }
+    private void notifySimilar(String trackName, String artistName, int limit, List<Track> tracks) {
+        if (tracks.isEmpty()) {
+            return;
+        }
+        for (SimilarTracksListener listener : similarListeners) {
+            try {
+                listener.onSimilarTracks(trackName, artistName, limit, tracks);
+            } catch (RuntimeException e) {
+                // A broken listener must not fail the request
+                e.printStackTrace();
+            }
+        }
+    }
 
-                if (item.has("url")) {
-                    track.setUrl(item.get("url").getAsString());
-                }
+    private static List<Track> copyOf(List<Track> tracks) {
+        List<Track> copy = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            copy.add(new Track(track));
+        }
+        return copy;
+    }
 
-                if (item.has("mbid") && !item.get("mbid").getAsString().isEmpty()) {
-                    track.setMbid(item.get("mbid").getAsString());
-                }
+    public HttpTransport getTransport() {
+        return transport;
+    }
 
-                // Extract image URL
-                if (item.has("image")) {
-                    JsonArray images = item.getAsJsonArray("image");
-                    for (JsonElement imgElement : images) {
-                        JsonObject img = imgElement.getAsJsonObject();
-                        String size = img.get("size").getAsString();
-                        if (size.equals("medium") || size.equals("large")) {
-                            String imageUrl = img.get("#text").getAsString();
-                            if (!imageUrl.isEmpty()) {
-                                track.setImageUrl(imageUrl);
-                                break;
-                            }
-                        }
-                    }
-                }
+    public ResponseCache getCache() {
+        return cache;
+    }
 
-                tracks.add(track);
-            }
-        } catch (Exception e) {
-            System.err.println("Error parsing similar tracks: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
 
-        return tracks;
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     /**
-     * Get detailed track information
-     *
-     * @param trackName Name of the track
-     * @param artistName Name of the artist
-     * @return Track object with detailed information
+     * Save every response fetched from now on (null stops recording)
      */
-    public Track getTrackInfo(String trackName, String artistName) throws IOException {
-        String encodedTrack = URLEncoder.encode(trackName, StandardCharsets.UTF_8);
-        String encodedArtist = URLEncoder.encode(artistName, StandardCharsets.UTF_8);
-        String url = String.format("%s?method=track.getInfo&artist=%s&track=%s&api_key=%s&format=json",
-                Config.API_BASE_URL, encodedArtist, encodedTrack, Config.API_KEY);
+    public void setRecorder(ResponseRecorder recorder) {
+        this.recorder = recorder;
+    }
 
-        HttpGet httpGet = new HttpGet(url);
-        httpGet.setHeader("User-Agent", "MusicRecommenderLab/1.0");
+    public ResponseRecorder getRecorder() {
+        return recorder;
+    }
 
-        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            return parseTrackInfo(jsonResponse);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
+    public SingleFlight<String, List<Track>> getSingleFlight() {
+        return inFlight;
     }
 
     /**
-     * Parse detailed track info from JSON response
+     * Graph of every similarity result this client has fetched, shared by all sessions
      */
-    private Track parseTrackInfo(String jsonResponse) {
-        try {
-            JsonObject root = JsonParser.parseString(jsonResponse).getAsJsonObject();
-
-            // Check for error response
-            if (root.has("error")) {
-                System.err.println("API Error: " + root.get("message").getAsString());
-                return null;
-            }
-
-            if (!root.has("track")) {
-                return null;
-            }
-
-            JsonObject trackObj = root.getAsJsonObject("track");
-            String name = trackObj.get("name").getAsString();
-
-            JsonObject artistObj = trackObj.getAsJsonObject("artist");
-            String artist = artistObj.get("name").getAsString();
-
-            Track track = new Track(name, artist);
+    public SimilarityGraph getSimilarityGraph() {
+        return similarityGraph;
+    }
 
-            if (trackObj.has("listeners")) {
-                try {
-                    track.setListeners(Integer.parseInt(trackObj.get("listeners").getAsString()));
-                } catch (NumberFormatException e) {
-                    track.setListeners(0);
-                }
-            }
+    /**
+     * Local audio features, shared by every session (filled at startup, not from Last.fm)
+     */
+    public AudioFeatureStore getAudioFeatureStore() {
+        return audioFeatures;
+    }
 
-            if (trackObj.has("url")) {
-                track.setUrl(trackObj.get("url").getAsString());
-            }
+    public HnswIndex getAudioIndex() {
+        return audioIndex;
+    }
 
-            if (trackObj.has("mbid") && !trackObj.get("mbid").getAsString().isEmpty()) {
-                track.setMbid(trackObj.get("mbid").getAsString());
-            }
+    /**
+     * Replace the audio feature index, e.g. with one loaded from disk at startup
+     */
+    public void setAudioIndex(HnswIndex audioIndex) {
+        this.audioIndex = audioIndex;
+    }
 
-            return track;
-        } catch (Exception e) {
-            System.err.println("Error parsing track info: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+    static HnswIndex newAudioIndex() {
+        return new HnswIndex(AudioFeatureStore.DIMENSIONS, Config.HNSW_M, Config.HNSW_EF_CONSTRUCTION,
+                Config.HNSW_EF_SEARCH, Config.AUDIO_FEATURE_WEIGHTS, 42);
     }
 
     /**
      * Close the HTTP client
      */
     public void close() throws IOException {
-        if (httpClient != null) {
-            httpClient.close();
+        DiskCache disk = cache.getDiskTier();
+        if (disk != null) {
+            disk.close();
+        }
+        if (transport != null) {
+            transport.close();
             System.out.println("Last.fm API Client closed");
         }
     }
@@ -0,0 +1,38 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * A Last.fm error response worth treating as a failed call
+ * Only transient errors are raised this way (see isTransient), the rest still
+ * parse to an empty result
+ */
+public class LastFmApiException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int SERVICE_OFFLINE = 11;
+    public static final int TEMPORARY_ERROR = 16;
+    public static final int RATE_LIMIT_EXCEEDED = 29;
+
+    private final int code;
+
+    public LastFmApiException(int code, String message) {
+        super("Last.fm error " + code + ": " + message);
+        this.code = code;
+    }
+
+    /**
+     * Errors that say nothing about the request itself, only about Last.fm right now
+     */
+    public static boolean isTransient(int code) {
+        return code == SERVICE_OFFLINE || code == TEMPORARY_ERROR || code == RATE_LIMIT_EXCEEDED;
+    }
+
+    public boolean isRateLimited() {
+        return code == RATE_LIMIT_EXCEEDED;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
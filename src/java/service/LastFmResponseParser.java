@@ -0,0 +1,363 @@
+package service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.Track;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser for Last.fm JSON responses
+ * Reads straight from the response stream with a JsonReader and emits Track
+ * objects as they are completed, skipping fields we never use (wiki, tags,
+ * album, streamable, unused image sizes...) without building a JSON tree
+ * A body that is truncated, malformed or times out fails the call with an
+ * UncheckedIOException, so a partial answer is never cached as a whole one
+ */
+public final class LastFmResponseParser {
+
+    private LastFmResponseParser() {
+    }
+
+    /**
+     * Parse track.search results
+     */
+    public static List<Track> parseSearch(InputStream body) {
+        List<Track> tracks = new ArrayList<>();
+        parseSearch(body, tracks::add);
+        return tracks;
+    }
+
+    /**
+     * Parse track.search results, handing each track to the sink as soon as it is read
+     */
+    public static void parseSearch(InputStream body, Consumer<Track> sink) {
+        try (JsonReader reader = newReader(body)) {
+            ApiError error = new ApiError();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (field.equals("results")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("trackmatches")) {
+                            readTrackContainer(reader, sink);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else if (!error.read(field, reader)) {
+                    reader.skipValue();
+                }
+            }
+            error.report();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException | NumberFormatException e) {
+            System.err.println("Error parsing search results: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parse track.getSimilar results
+     */
+    public static List<Track> parseSimilar(InputStream body) {
+        List<Track> tracks = new ArrayList<>();
+        parseSimilar(body, tracks::add);
+        return tracks;
+    }
+
+    /**
+     * Parse track.getSimilar results, handing each track to the sink as soon as it is read
+     */
+    public static void parseSimilar(InputStream body, Consumer<Track> sink) {
+        try (JsonReader reader = newReader(body)) {
+            ApiError error = new ApiError();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (field.equals("similartracks")) {
+                    readTrackContainer(reader, sink);
+                } else if (!error.read(field, reader)) {
+                    reader.skipValue();
+                }
+            }
+            error.report();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException | NumberFormatException e) {
+            System.err.println("Error parsing similar tracks: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parse track.getInfo response
+     *
+     * @return the track, or null for error responses
+     */
+    public static Track parseTrackInfo(InputStream body) {
+        try (JsonReader reader = newReader(body)) {
+            ApiError error = new ApiError();
+            Track track = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (field.equals("track")) {
+                    track = readTrack(reader);
+                } else if (!error.read(field, reader)) {
+                    reader.skipValue();
+                }
+            }
+            return error.report() ? null : track;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException | NumberFormatException e) {
+            System.err.println("Error parsing track info: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static JsonReader newReader(InputStream body) {
+        return new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read an object like {"track": [...], "@attr": {...}}
+     * Last.fm returns an object instead of an array when there is only 1 result
+     */
+    private static void readTrackContainer(JsonReader reader, Consumer<Track> sink) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("track")) {
+                reader.skipValue();
+                continue;
+            }
+
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    emit(readTrack(reader), sink);
+                }
+                reader.endArray();
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                emit(readTrack(reader), sink);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void emit(Track track, Consumer<Track> sink) {
+        if (track != null) {
+            sink.accept(track);
+        }
+    }
+
+    /**
+     * Read one track object, returns null if name or artist is missing
+     */
+    private static Track readTrack(JsonReader reader) throws IOException {
+        String name = null;
+        String artist = null;
+        String url = null;
+        String mbid = null;
+        String imageUrl = null;
+        int listeners = 0;
+        double matchScore = 0.0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = nextString(reader);
+                    break;
+
+                case "artist":
+                    // Artist can be an object or a string depending on the method
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        artist = readArtistName(reader);
+                    } else {
+                        artist = nextString(reader);
+                    }
+                    break;
+
+                case "url":
+                    url = nextString(reader);
+                    break;
+
+                case "mbid":
+                    mbid = nextString(reader);
+                    break;
+
+                case "listeners":
+                    listeners = parseInt(nextString(reader));
+                    break;
+
+                case "match":
+                    matchScore = parseDouble(nextString(reader));
+                    break;
+
+                case "image":
+                    imageUrl = readImageUrl(reader);
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (name == null || artist == null) {
+            return null;
+        }
+
+        Track track = new Track(name, artist);
+        track.setUrl(url);
+        track.setListeners(listeners);
+        track.setMatchScore(matchScore);
+        track.setImageUrl(imageUrl);
+        if (mbid != null && !mbid.isEmpty()) {
+            track.setMbid(mbid);
+        }
+        return track;
+    }
+
+    private static String readArtistName(JsonReader reader) throws IOException {
+        String name = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("name")) {
+                name = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return name;
+    }
+
+    /**
+     * Pick the first non-empty medium or large image, skipping every other size
+     */
+    private static String readImageUrl(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+
+        String chosen = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (chosen != null || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            String text = null;
+            String size = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "#text":
+                        text = nextString(reader);
+                        break;
+
+                    case "size":
+                        size = nextString(reader);
+                        break;
+
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (("medium".equals(size) || "large".equals(size)) && text != null && !text.isEmpty()) {
+                chosen = text;
+            }
+        }
+        reader.endArray();
+        return chosen;
+    }
+
+    /**
+     * Read a scalar as a string (numbers included), null for nulls and nested values
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return value == null ? 0.0 : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Collects the top-level "error"/"message" fields of a Last.fm error response
+     * Transient errors (rate limit, service offline) are raised as a LastFmApiException
+     * wrapped in UncheckedIOException so the client can back off; others only get logged
+     */
+    private static class ApiError {
+        private boolean present;
+        private int code;
+        private String message;
+
+        boolean read(String field, JsonReader reader) throws IOException {
+            if (field.equals("error")) {
+                present = true;
+                code = parseInt(nextString(reader));
+                return true;
+            }
+            if (field.equals("message")) {
+                message = nextString(reader);
+                return true;
+            }
+            return false;
+        }
+
+        boolean report() {
+            if (present) {
+                System.err.println("API Error: " + message);
+                if (LastFmApiException.isTransient(code)) {
+                    throw new UncheckedIOException(new LastFmApiException(code, message));
+                }
+            }
+            return present;
+        }
+    }
+}
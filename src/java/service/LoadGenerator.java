@@ -0,0 +1,414 @@
+package service;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for MusicRecommendationServer, speaking ServerConnection's pipelined protocol
+ *
+ * Closed loop: every client sends its next request as soon as the last one is answered,
+ * so a slow server also slows the load down. Latency is time from send to answer.
+ *
+ * Open loop: requests leave on a fixed schedule (ratePerSecond) spread over the clients
+ * whether or not earlier ones were answered. Latency is measured from the time the request
+ * was scheduled, not when it actually went out, so a stalled server or a generator that fell
+ * behind shows up in the percentiles instead of being hidden (coordinated omission)
+ *
+ * Requests issued during the warmup are sent but not counted
+ */
+public class LoadGenerator {
+    public static final String MODE_CLOSED = "closed";
+    public static final String MODE_OPEN = "open";
+
+    public enum Operation { SEARCH, RECOMMEND, SET_STRATEGY }
+
+    // Strategies SET_STRATEGY cycles through, all handled by ClientSession
+    static final String[] STRATEGIES = {"similarity", "graph", "hybrid", "pagerank", "audio", "audio-ann", "random"};
+
+    // Used when no corpus file is given
+    static final List<String[]> DEFAULT_CORPUS = List.of(
+            new String[]{"Fireflies", "Owl City"},
+            new String[]{"Believer", "Imagine Dragons"},
+            new String[]{"Mr. Brightside", "The Killers"},
+            new String[]{"Blinding Lights", "The Weeknd"},
+            new String[]{"Yellow", "Coldplay"},
+            new String[]{"Take On Me", "a-ha"},
+            new String[]{"Bohemian Rhapsody", "Queen"},
+            new String[]{"Smells Like Teen Spirit", "Nirvana"},
+            new String[]{"Levitating", "Dua Lipa"},
+            new String[]{"Electric Feel", "MGMT"});
+
+    private final LoadSettings settings;
+    private final List<String[]> corpus;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public LoadGenerator(LoadSettings settings) throws IOException {
+        this(settings, settings.getCorpusFile() == null ? DEFAULT_CORPUS : readCorpus(Path.of(settings.getCorpusFile())));
+    }
+
+    public LoadGenerator(LoadSettings settings, List<String[]> corpus) {
+        if (corpus.isEmpty()) {
+            throw new IllegalArgumentException("Empty query corpus");
+        }
+        if (!MODE_CLOSED.equals(settings.getMode()) && !MODE_OPEN.equals(settings.getMode())) {
+            throw new IllegalArgumentException("Unknown load mode: " + settings.getMode());
+        }
+        this.settings = settings;
+        this.corpus = List.copyOf(corpus);
+
+        Map<Operation, Integer> mix = parseMix(settings.getMix());
+        operations = mix.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * "search:60,recommend:35,set_strategy:5" -> weight per operation, zero weights dropped
+     */
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] entry = part.trim().split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry: " + part);
+            }
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + part);
+            }
+            if (weight > 0) {
+                mix.merge(Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT)), weight, Integer::sum);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operations: " + spec);
+        }
+        return mix;
+    }
+
+    /**
+     * One "track<TAB>artist" pair per line, blank lines and # comments skipped
+     */
+    static List<String[]> readCorpus(Path file) throws IOException {
+        List<String[]> corpus = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 2) {
+                System.err.println("Skipping corpus line without an artist: " + line);
+                continue;
+            }
+            corpus.add(new String[]{fields[0].trim(), fields[1].trim()});
+        }
+        return corpus;
+    }
+
+    /**
+     * Connect the clients, generate load for warmup + duration and report what was measured
+     */
+    public Report run() throws IOException, InterruptedException {
+        List<ServerConnection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.max(1, settings.getClients()); i++) {
+                ServerConnection connection = new ServerConnection(settings.getHost(), settings.getPort());
+                connection.connect();
+                connection.enablePipelining();
+                if (settings.isBinaryFormat()) {
+                    connection.useBinaryFormat();
+                }
+                connections.add(connection);
+            }
+            return MODE_OPEN.equals(settings.getMode()) ? runOpen(connections) : runClosed(connections);
+        } finally {
+            for (ServerConnection connection : connections) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private Report runClosed(List<ServerConnection> connections) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(settings.getWarmupMillis());
+        long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(settings.getDurationMillis());
+        Report report = new Report(settings.getMode(), connections.size(), 0);
+
+        ExecutorService clients = newClientExecutor();
+        for (ServerConnection connection : connections) {
+            clients.execute(() -> {
+                // A client whose connection dropped stops instead of spinning on instant failures
+                while (System.nanoTime() < end && connection.isConnected() && !Thread.currentThread().isInterrupted()) {
+                    Operation operation = nextOperation();
+                    long sent = System.nanoTime();
+                    boolean ok = await(send(connection, operation));
+                    if (sent >= measureFrom) {
+                        report.record(operation, System.nanoTime() - sent, ok);
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        long graceNanos = TimeUnit.MILLISECONDS.toNanos(settings.getRequestTimeoutMillis() + 1000);
+        if (!clients.awaitTermination(end - System.nanoTime() + graceNanos, TimeUnit.NANOSECONDS)) {
+            clients.shutdownNow();
+        }
+        report.finish(measureFrom, Math.min(System.nanoTime(), end));
+        return report;
+    }
+
+    private Report runOpen(List<ServerConnection> connections) throws InterruptedException {
+        if (settings.getRatePerSecond() <= 0) {
+            throw new IllegalArgumentException("Open loop needs a positive rate: " + settings.getRatePerSecond());
+        }
+        long periodNanos = Math.max(1, Math.round(1e9 / settings.getRatePerSecond()));
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(settings.getWarmupMillis());
+        long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(settings.getDurationMillis());
+        Report report = new Report(settings.getMode(), connections.size(), settings.getRatePerSecond());
+
+        // Pipelined sends never block on answers, so one thread keeps the schedule for every client
+        List<CompletableFuture<?>> outstanding = new ArrayList<>();
+        for (long i = 0; ; i++) {
+            long intended = start + i * periodNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Operation operation = nextOperation();
+            ServerConnection connection = connections.get((int) (i % connections.size()));
+            outstanding.add(send(connection, operation).whenComplete((response, error) -> {
+                if (intended >= measureFrom) {
+                    report.record(operation, System.nanoTime() - intended, error == null);
+                }
+            }));
+            if (outstanding.size() >= 4096) {
+                outstanding.removeIf(CompletableFuture::isDone);
+            }
+        }
+
+        // Late answers still count, measured from when they were due
+        try {
+            CompletableFuture.allOf(outstanding.toArray(new CompletableFuture<?>[0]))
+                    .get(settings.getRequestTimeoutMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Already recorded as errors by the requests themselves
+        }
+        report.finish(measureFrom, end);
+        return report;
+    }
+
+    private CompletableFuture<?> send(ServerConnection connection, Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] entry = corpus.get(random.nextInt(corpus.size()));
+        JsonObject request = new JsonObject();
+        request.addProperty("action", operation.name());
+        switch (operation) {
+            case SEARCH:
+                request.addProperty("query", entry[0]);
+                request.addProperty("limit", 20);
+                break;
+            case RECOMMEND:
+                request.addProperty("trackName", entry[0]);
+                request.addProperty("artistName", entry[1]);
+                request.addProperty("count", 10);
+                break;
+            case SET_STRATEGY:
+                request.addProperty("strategy", STRATEGIES[random.nextInt(STRATEGIES.length)]);
+                break;
+        }
+        try {
+            return connection.sendAsync(request).orTimeout(settings.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean await(CompletableFuture<?> response) {
+        try {
+            response.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * A thread per client: virtual threads on Java 21+, platform threads before that
+     * (the project targets Java 20, where virtual threads are still a preview)
+     */
+    static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "load-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Latencies (microseconds) and error counts of the measured part of a run
+     * Failed and timed-out requests are in the latency histograms too, at the time
+     * they took to fail, so an overloaded server cannot look faster by dropping requests
+     */
+    public static class Report {
+        private final String mode;
+        private final int clients;
+        private final double targetRate;
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final Map<Operation, LatencyHistogram> byOperation = new EnumMap<>(Operation.class);
+        private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        private long elapsedNanos;
+
+        Report(String mode, int clients, double targetRate) {
+            this.mode = mode;
+            this.clients = clients;
+            this.targetRate = targetRate;
+            for (Operation operation : Operation.values()) {
+                byOperation.put(operation, new LatencyHistogram());
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        void record(Operation operation, long latencyNanos, boolean ok) {
+            if (!ok) {
+                errors.get(operation).incrementAndGet();
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+            all.record(micros);
+            byOperation.get(operation).record(micros);
+        }
+
+        void finish(long from, long to) {
+            elapsedNanos = Math.max(1, to - from);
+        }
+
+        public LatencyHistogram getLatencies() {
+            return all;
+        }
+
+        public LatencyHistogram getLatencies(Operation operation) {
+            return byOperation.get(operation);
+        }
+
+        public long getErrors(Operation operation) {
+            return errors.get(operation).get();
+        }
+
+        public long getErrors() {
+            long total = 0;
+            for (AtomicLong count : errors.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        /**
+         * Successful requests per second over the measured window
+         */
+        public double getThroughput() {
+            return (all.getCount() - getErrors()) / (elapsedNanos / 1e9);
+        }
+
+        public void print(PrintStream out) {
+            out.printf(Locale.ROOT, "Mode %s, %d clients, %.1f s measured%n", mode, clients, elapsedNanos / 1e9);
+            out.printf(Locale.ROOT, "Requests %d ok, %d errors, %.1f req/s%s%n", all.getCount() - getErrors(), getErrors(),
+                    getThroughput(), targetRate > 0 ? String.format(Locale.ROOT, " (target %.1f)", targetRate) : "");
+            out.printf(Locale.ROOT, "%-13s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                    "latency (ms)", "count", "errors", "mean", "p50", "p90", "p99", "p99.9", "max");
+            printRow(out, "all", all, getErrors());
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = byOperation.get(operation);
+                if (histogram.getCount() > 0 || getErrors(operation) > 0) {
+                    printRow(out, operation.name(), histogram, getErrors(operation));
+                }
+            }
+        }
+
+        private static void printRow(PrintStream out, String name, LatencyHistogram histogram, long errorCount) {
+            out.printf(Locale.ROOT, "%-13s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                    histogram.getCount(), errorCount, histogram.getMean() / 1000,
+                    histogram.valueAtPercentile(50) / 1000.0, histogram.valueAtPercentile(90) / 1000.0,
+                    histogram.valueAtPercentile(99) / 1000.0, histogram.valueAtPercentile(99.9) / 1000.0,
+                    histogram.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * Usage: LoadGenerator [--mode=closed|open] [--clients=N] [--rate=R] [--duration=S] [--warmup=S]
+     *                      [--mix=search:60,recommend:35,set_strategy:5] [--corpus=FILE]
+     *                      [--host=H] [--port=P] [--format=json|binary]
+     * Anything not given comes from Config (LOAD_* variables)
+     */
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = new LoadSettings();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.err.println("Ignoring argument " + arg);
+                continue;
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(2, eq)) {
+                case "mode" -> settings.setMode(value.toLowerCase(Locale.ROOT));
+                case "clients" -> settings.setClients(Integer.parseInt(value));
+                case "rate" -> settings.setRatePerSecond(Double.parseDouble(value));
+                case "duration" -> settings.setDurationMillis(Math.round(Double.parseDouble(value) * 1000));
+                case "warmup" -> settings.setWarmupMillis(Math.round(Double.parseDouble(value) * 1000));
+                case "mix" -> settings.setMix(value);
+                case "corpus" -> settings.setCorpusFile(value);
+                case "host" -> settings.setHost(value);
+                case "port" -> settings.setPort(Integer.parseInt(value));
+                case "format" -> settings.setBinaryFormat(WireCodec.FORMAT_BINARY.equalsIgnoreCase(value));
+                default -> System.err.println("Ignoring argument " + arg);
+            }
+        }
+        new LoadGenerator(settings).run().print(System.out);
+    }
+}
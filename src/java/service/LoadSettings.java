@@ -0,0 +1,108 @@
+package service;
+
+/**
+ * Tunable settings for a LoadGenerator run
+ * Defaults come from Config
+ */
+public class LoadSettings {
+    private String host = Config.SERVER_HOST;
+    private int port = Config.SERVER_PORT;
+    private String mode = Config.LOAD_MODE;
+    private int clients = Config.LOAD_CLIENTS;
+    private double ratePerSecond = Config.LOAD_RATE_PER_SECOND;
+    private long durationMillis = Config.LOAD_DURATION_SECONDS * 1000L;
+    private long warmupMillis = Config.LOAD_WARMUP_SECONDS * 1000L;
+    private String mix = Config.LOAD_MIX;
+    private String corpusFile = Config.LOAD_CORPUS_FILE;
+    private long requestTimeoutMillis = Config.LOAD_REQUEST_TIMEOUT_MILLIS;
+    private boolean binaryFormat = WireCodec.FORMAT_BINARY.equals(Config.WIRE_FORMAT);
+
+    // Getters and Setters
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public void setClients(int clients) {
+        this.clients = clients;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    public void setWarmupMillis(long warmupMillis) {
+        this.warmupMillis = warmupMillis;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public void setMix(String mix) {
+        this.mix = mix;
+    }
+
+    public String getCorpusFile() {
+        return corpusFile;
+    }
+
+    public void setCorpusFile(String corpusFile) {
+        this.corpusFile = corpusFile;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public boolean isBinaryFormat() {
+        return binaryFormat;
+    }
+
+    public void setBinaryFormat(boolean binaryFormat) {
+        this.binaryFormat = binaryFormat;
+    }
+}
@@ -1,25 +1,51 @@
 package service;
 
+import model.AudioFeatureStore;
+import model.HnswIndex;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Multi-threaded server that handles multiple client connections
  * Demonstrates Server Socket programming and Thread Pool
+ *
+ * Runs in one of two modes:
+ * - "nio": NioServerCore, a few selector threads serve every connection
+ * - "pooled": one ClientHandler thread per connection from a fixed pool
  */
 public class MusicRecommendationServer {
+    public static final String MODE_NIO = "nio";
+    public static final String MODE_POOLED = "pooled";
+
     private final int port;
+    private final String mode;
     private final LastFmAPIClient apiClient;
     private final ExecutorService threadPool;
+    private NioServerCore nioCore;
+    private volatile ServerSocket serverSocket;
     private volatile boolean running;
 
     public MusicRecommendationServer(int port) {
+        this(port, Config.SERVER_MODE);
+    }
+
+    public MusicRecommendationServer(int port, String mode) {
+        this(port, mode, new LastFmAPIClient());
+    }
+
+    public MusicRecommendationServer(int port, String mode, LastFmAPIClient apiClient) {
         this.port = port;
-        this.apiClient = new LastFmAPIClient();
-        this.threadPool = Executors.newFixedThreadPool(10); // Pool of 10 threads
+        this.mode = mode;
+        this.apiClient = apiClient;
+        this.threadPool = MODE_POOLED.equals(mode)
+                ? Executors.newFixedThreadPool(Config.SERVER_POOL_THREADS)
+                : null;
         this.running = false;
     }
 
@@ -31,7 +57,18 @@ public class MusicRecommendationServer {
 
         running = true;
 
+        if (!MODE_POOLED.equals(mode)) {
+            nioCore = new NioServerCore(port, apiClient, Config.NIO_SELECTOR_THREADS, Config.NIO_WORKER_THREADS);
+            try {
+                nioCore.start();
+            } finally {
+                shutdown();
+            }
+            return;
+        }
+
         try (ServerSocket serverSocket = new ServerSocket(port)) {
+            this.serverSocket = serverSocket;
             System.out.println("Music Recommendation Server started on port " + port);
             System.out.println("Waiting for client connections...");
 
@@ -44,8 +81,10 @@ public class MusicRecommendationServer {
                 threadPool.execute(handler);
             }
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-            throw e;
+            if (running) {
+                System.err.println("Server error: " + e.getMessage());
+                throw e;
+            }
         } finally {
             shutdown();
         }
@@ -54,9 +93,24 @@ public class MusicRecommendationServer {
     /**
      * Shutdown the server gracefully
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
         running = false;
-        threadPool.shutdown();
+        try {
+            if (nioCore != null) {
+                nioCore.close();
+            }
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (threadPool != null) {
+            threadPool.shutdown();
+        }
         try {
             apiClient.close();
         } catch (IOException e) {
@@ -65,8 +119,55 @@ public class MusicRecommendationServer {
         System.out.println("Server shutdown complete");
     }
 
+    public String getMode() {
+        return mode;
+    }
+
+    // Optional: without the file the "audio" strategies simply have nothing to offer
+    private static void loadAudioFeatures(LastFmAPIClient apiClient, Path file, Path indexFile) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        AudioFeatureStore store = apiClient.getAudioFeatureStore();
+        try {
+            int loaded = store.loadCsv(file);
+            System.out.println("Loaded audio features for " + loaded + " tracks from " + file);
+        } catch (IOException e) {
+            System.err.println("Failed to load audio features from " + file + ": " + e.getMessage());
+            return;
+        }
+
+        // Reuse the saved index when it was built from the same rows, then index whatever is new
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                HnswIndex saved = HnswIndex.load(indexFile, Config.HNSW_EF_SEARCH);
+                if (store.isIndexedBy(saved)) {
+                    apiClient.setAudioIndex(saved);
+                } else {
+                    System.out.println("Audio index " + indexFile + " is out of date, rebuilding");
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to load audio index from " + indexFile + ": " + e.getMessage());
+            }
+        }
+        HnswIndex index = apiClient.getAudioIndex();
+        int added = store.indexInto(index);
+        if (added > 0) {
+            System.out.println("Indexed audio features for " + added + " tracks");
+            try {
+                index.save(indexFile);
+            } catch (IOException e) {
+                System.err.println("Failed to save audio index to " + indexFile + ": " + e.getMessage());
+            }
+        }
+    }
+
     public static void main(String[] args) {
-        MusicRecommendationServer server = new MusicRecommendationServer(Config.SERVER_PORT);
+        // Responses persist under the cache directory so a restart starts warm
+        LastFmAPIClient apiClient = new LastFmAPIClient();
+        apiClient.getCache().setDiskTier(DiskCache.open(Path.of(Config.DISK_CACHE_DIR)));
+        loadAudioFeatures(apiClient, Path.of(Config.AUDIO_FEATURES_FILE), Path.of(Config.AUDIO_INDEX_FILE));
+        MusicRecommendationServer server = new MusicRecommendationServer(Config.SERVER_PORT, Config.SERVER_MODE, apiClient);
 
         // Add shutdown hook for graceful termination
         Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
@@ -78,4 +179,4 @@ public class MusicRecommendationServer {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
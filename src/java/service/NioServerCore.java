@@ -0,0 +1,321 @@
+package service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking server core built on java.nio Selectors
+ * One acceptor thread hands new connections round-robin to a small set of
+ * selector threads that do all socket I/O; complete request lines are handed
+ * to a worker pool. Idle connections cost a SelectionKey and a buffer, not a
+ * thread, so idle GUI clients can no longer starve active ones
+ */
+public class NioServerCore implements Closeable {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private final int port;
+    private final LastFmAPIClient apiClient;
+    private final SelectorLoop[] loops;
+    private final ExecutorService workers;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong requestsHandled = new AtomicLong();
+    private volatile ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public NioServerCore(int port, LastFmAPIClient apiClient, int selectorThreads, int workerThreads) {
+        this.port = port;
+        this.apiClient = apiClient;
+        this.loops = new SelectorLoop[Math.max(1, selectorThreads)];
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    /**
+     * Start the selector threads and run the accept loop on the calling thread
+     * Returns once the core is closed
+     */
+    public void start() throws IOException {
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(Selector.open());
+            Thread thread = new Thread(loops[i], "nio-selector-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        System.out.println("Music Recommendation Server (NIO) started on port " + port
+                + " with " + loops.length + " selector thread(s)");
+
+        // Acceptor: blocking accept is fine here, this thread does nothing else
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].register(channel);
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close(), normal shutdown
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getRequestsHandled() {
+        return requestsHandled.get();
+    }
+
+    public int getSelectorThreads() {
+        return loops.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        for (SelectorLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Event loop owning one Selector and all connections registered with it
+     */
+    private class SelectorLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pendingRegistrations.add(channel);
+            selector.wakeup();
+        }
+
+        void requestWrite(Connection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerPending();
+                    enableWrites();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read(readBuffer);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println("Selector loop failed: " + e.getMessage());
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pendingRegistrations.poll()) != null) {
+                try {
+                    Connection connection = new Connection(channel, this);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    openConnections.incrementAndGet();
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        // Interest ops may only be changed safely from the selector thread
+        private void enableWrites() {
+            Connection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                if (connection.key.isValid()) {
+                    connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        // Called by close(); the loop thread itself releases the connections on exit
+        void close() {
+            selector.wakeup();
+        }
+
+        private void closeAll() {
+            try {
+                for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    /**
+     * One client connection: line framing on the way in, a write queue on the way out
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final SelectorLoop loop;
+        private final ClientSession session;
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        private byte[] lineBuffer = new byte[256];
+        private int lineLength;
+        private SelectionKey key;
+        private boolean closed;
+
+        // Requests on one connection are dispatched in the order they arrived
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        Connection(SocketChannel channel, SelectorLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            this.session = new ClientSession(apiClient);
+        }
+
+        void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    dispatch(decodeLine());
+                } else {
+                    append(b);
+                }
+            }
+        }
+
+        private void append(byte b) throws IOException {
+            if (lineLength == lineBuffer.length) {
+                if (lineBuffer.length >= MAX_LINE_LENGTH) {
+                    throw new IOException("Request line too long");
+                }
+                lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+            }
+            lineBuffer[lineLength++] = b;
+        }
+
+        private String decodeLine() {
+            int length = lineLength;
+            if (length > 0 && lineBuffer[length - 1] == '\r') {
+                length--;
+            }
+            lineLength = 0;
+            return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void dispatch(String request) {
+            if (request.isBlank()) {
+                return;
+            }
+            // Lines are dispatched one at a time on the worker pool; the session
+            // decides whether responses may complete out of order
+            tail = tail
+                    .thenRunAsync(() -> session.dispatch(request, this::send), workers)
+                    .exceptionally(e -> {
+                        System.err.println("Error handling client: " + e.getMessage());
+                        return null;
+                    });
+        }
+
+        void send(byte[] response) {
+            requestsHandled.incrementAndGet();
+            writeQueue.add(ByteBuffer.wrap(response));
+            loop.requestWrite(this);
+        }
+
+        void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return; // socket buffer full, wait for the next OP_WRITE
+                }
+                writeQueue.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openConnections.decrementAndGet();
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing more to do for a connection that is already going away
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side token bucket in front of Last.fm with an adaptive (AIMD) rate
+ * Tokens refill at the current rate up to the burst size. Every successful call
+ * raises the rate a little (additive increase), a throttle signal - error 29 or a
+ * timeout - cuts it by a factor (multiplicative decrease). Cuts are at most once
+ * per cooldown, so a batch of calls failing together only counts once
+ */
+public class RateLimiter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final double minRate;
+    private final double maxRate;
+    private final double burst;
+    private final double increasePerSecond;
+    private final double decreaseFactor;
+    private final long cooldownNanos;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long lastDecrease;
+
+    private long acquired;
+    private long delayed;
+    private long rejected;
+    private long decreases;
+
+    public RateLimiter() {
+        this(Config.RATE_LIMIT_INITIAL_PER_SECOND, Config.RATE_LIMIT_MIN_PER_SECOND, Config.RATE_LIMIT_MAX_PER_SECOND,
+                Config.RATE_LIMIT_BURST, Config.RATE_LIMIT_INCREASE_PER_SECOND, Config.RATE_LIMIT_DECREASE_FACTOR,
+                Config.RATE_LIMIT_COOLDOWN_MILLIS, Config.RATE_LIMIT_MAX_WAIT_MILLIS, System::nanoTime);
+    }
+
+    /**
+     * @param increasePerSecond how much the rate grows per second of successful traffic
+     * @param clock nanosecond clock, replaced by a fake one in tests
+     */
+    public RateLimiter(double initialRate, double minRate, double maxRate, int burst, double increasePerSecond,
+                       double decreaseFactor, long cooldownMillis, long maxWaitMillis, LongSupplier clock) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.burst = Math.max(1, burst);
+        this.increasePerSecond = increasePerSecond;
+        this.decreaseFactor = decreaseFactor;
+        this.cooldownNanos = cooldownMillis * NANOS_PER_MILLI;
+        this.maxWaitNanos = maxWaitMillis * NANOS_PER_MILLI;
+        this.clock = clock;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.tokens = this.burst;
+        this.lastRefill = clock.getAsLong();
+        this.lastDecrease = lastRefill - cooldownNanos;
+    }
+
+    /**
+     * Take a token, possibly one that has not refilled yet
+     *
+     * @return milliseconds to wait before sending (0 = send now), or -1 if the
+     *         wait would be longer than maxWait and the call should not be made
+     */
+    public synchronized long reserve() {
+        refill(clock.getAsLong());
+        if (tokens >= 1) {
+            tokens -= 1;
+            acquired++;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / rate * NANOS_PER_SECOND);
+        if (waitNanos > maxWaitNanos) {
+            rejected++;
+            return -1;
+        }
+        // Going negative books the token that refills next, so later callers queue behind us
+        tokens -= 1;
+        acquired++;
+        delayed++;
+        return Math.max(1, (waitNanos + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Additive increase: at full rate the limit grows by increasePerSecond every second
+     */
+    public synchronized void onSuccess() {
+        refill(clock.getAsLong());
+        rate = Math.min(maxRate, rate + increasePerSecond / rate);
+    }
+
+    /**
+     * Multiplicative decrease after Last.fm pushed back; also drops any saved-up burst
+     */
+    public synchronized void onThrottle() {
+        long now = clock.getAsLong();
+        refill(now);
+        if (now - lastDecrease < cooldownNanos) {
+            return;
+        }
+        lastDecrease = now;
+        rate = Math.max(minRate, rate * decreaseFactor);
+        tokens = Math.min(tokens, 0);
+        decreases++;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + rate * elapsed / NANOS_PER_SECOND);
+            lastRefill = now;
+        }
+    }
+
+    // Stats getters
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized double getTokens() {
+        refill(clock.getAsLong());
+        return tokens;
+    }
+
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    public synchronized long getDelayed() {
+        return delayed;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+}
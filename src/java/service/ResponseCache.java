@@ -0,0 +1,275 @@
+package service;
+
+import model.CompactTrack;
+import model.Track;
+import model.TrackInterner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory response cache that sits in front of the Last.fm API
+ * Entries are keyed on method + normalized parameters, expire after a per-method TTL
+ * and are evicted in least-recently-used order once the byte budget is exceeded
+ * An optional DiskCache tier keeps entries across restarts: memory misses fall
+ * through to it and disk hits are promoted back into memory
+ * Tracks are held in their interned CompactTrack form, so a song that shows up
+ * in many responses is stored once
+ */
+public class ResponseCache {
+    private static final char KEY_SEPARATOR = '|';
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> ttlByMethod = new HashMap<>();
+    private final long maxBytes;
+    private final LongSupplier clock;
+    private final TrackInterner interner;
+    private long currentBytes;
+    private volatile DiskCache diskTier;
+
+    // Counters (read without locking by the stats endpoint)
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, new TrackInterner(Config.TRACK_INTERNER_MAX_TRACKS));
+    }
+
+    /**
+     * @param interner shared with other long-lived track stores (session histories)
+     */
+    public ResponseCache(long maxBytes, TrackInterner interner) {
+        this(maxBytes, interner, System::currentTimeMillis);
+    }
+
+    // Clock is injectable so expiry can be tested without sleeping
+    ResponseCache(long maxBytes, LongSupplier clock) {
+        this(maxBytes, new TrackInterner(Config.TRACK_INTERNER_MAX_TRACKS), clock);
+    }
+
+    ResponseCache(long maxBytes, TrackInterner interner, LongSupplier clock) {
+        this.maxBytes = maxBytes;
+        this.interner = interner;
+        this.clock = clock;
+    }
+
+    /**
+     * Set how long responses of the given Last.fm method stay fresh
+     */
+    public synchronized void setTtl(String method, long ttlMillis) {
+        ttlByMethod.put(method, ttlMillis);
+    }
+
+    /**
+     * Back this cache with a persistent tier, or null to run memory-only
+     */
+    public void setDiskTier(DiskCache diskTier) {
+        this.diskTier = diskTier;
+    }
+
+    public DiskCache getDiskTier() {
+        return diskTier;
+    }
+
+    /**
+     * Build a cache key from the method name and its parameters
+     * Parameters are trimmed and lower-cased so "Owl City" and " owl city" share an entry
+     */
+    public static String key(String method, Object... params) {
+        StringBuilder sb = new StringBuilder(method);
+        for (Object param : params) {
+            sb.append(KEY_SEPARATOR);
+            if (param != null) {
+                sb.append(param.toString().trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Look up a cached response
+     *
+     * @return copies of the cached tracks, or null on a miss or expired entry
+     */
+    public List<Track> get(String key) {
+        List<Track> tracks = getFromMemory(key);
+        DiskCache disk = diskTier;
+        if (tracks != null || disk == null) {
+            return tracks;
+        }
+
+        // Disk I/O happens outside the memory lock
+        DiskCache.Stored stored = disk.get(key);
+        if (stored == null) {
+            return null;
+        }
+        synchronized (this) {
+            store(key, stored.tracks, stored.expiresAt);
+        }
+        return stored.tracks;
+    }
+
+    /**
+     * Memory-only lookup that leaves the hit/miss counters alone
+     */
+    synchronized List<Track> peek(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt <= clock.getAsLong()) {
+            return null;
+        }
+        return entry.toTracks();
+    }
+
+    private synchronized List<Track> getFromMemory(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(key);
+            currentBytes -= entry.bytes;
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.toTracks();
+    }
+
+    /**
+     * Store a response, evicting least recently used entries if over budget
+     */
+    public void put(String key, List<Track> tracks) {
+        long expiresAt;
+        synchronized (this) {
+            long ttl = ttlByMethod.getOrDefault(methodOf(key), 0L);
+            if (ttl <= 0) {
+                return;
+            }
+            expiresAt = clock.getAsLong() + ttl;
+            store(key, tracks, expiresAt);
+        }
+
+        DiskCache disk = diskTier;
+        if (disk != null) {
+            disk.put(key, tracks, expiresAt);
+        }
+    }
+
+    // Caller holds the lock
+    private void store(String key, List<Track> tracks, long expiresAt) {
+        Entry entry = new Entry(tracks, interner, expiresAt, estimateBytes(key, tracks));
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.bytes;
+        }
+        currentBytes += entry.bytes;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            currentBytes -= eldest.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    // Stats getters
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public TrackInterner getInterner() {
+        return interner;
+    }
+
+    private static String methodOf(String key) {
+        int separator = key.indexOf(KEY_SEPARATOR);
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    /**
+     * Rough heap footprint of an entry: headers, the key and a reference plus
+     * score per track (the interned tracks are accounted by the TrackInterner)
+     */
+    static long estimateBytes(String key, List<Track> tracks) {
+        return 64 + stringBytes(key) + 16L * tracks.size();
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static class Entry {
+        final CompactTrack[] tracks;
+        final double[] scores;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(List<Track> tracks, TrackInterner interner, long expiresAt, long bytes) {
+            this.tracks = new CompactTrack[tracks.size()];
+            this.scores = new double[tracks.size()];
+            for (int i = 0; i < this.tracks.length; i++) {
+                Track track = tracks.get(i);
+                this.tracks[i] = interner.intern(track);
+                this.scores[i] = track.getMatchScore();
+            }
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+
+        // Fresh Track objects, so callers can never change what is cached
+        List<Track> toTracks() {
+            List<Track> copy = new ArrayList<>(tracks.length);
+            for (int i = 0; i < tracks.length; i++) {
+                copy.add(tracks[i].toTrack(scores[i]));
+            }
+            return copy;
+        }
+    }
+}
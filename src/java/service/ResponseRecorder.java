@@ -0,0 +1,151 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves Last.fm response bodies to disk so StubLastFmServer can replay them offline
+ * One file per distinct request, named after the hash of its normalized query
+ * (see key) under a directory per method, e.g. track.search/3f2a....json.
+ * index.tsv lists key -> query for anyone browsing the recordings
+ *
+ * Only bodies that parsed are kept; transient errors (rate limit, service offline)
+ * would otherwise replay forever
+ */
+public class ResponseRecorder {
+    static final String INDEX_FILE = "index.tsv";
+    static final String SUFFIX = ".json";
+
+    // Differ between machines and runs without changing the response
+    private static final Set<String> IGNORED_PARAMS = Set.of("api_key", "format");
+
+    private final Path directory;
+    private final Object indexLock = new Object();
+
+    // Stats
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public ResponseRecorder(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Parser that buffers the body, parses it and records it if parsing succeeded
+     */
+    public <T> HttpTransport.BodyParser<T> recording(String url, HttpTransport.BodyParser<T> parser) {
+        return body -> {
+            byte[] bytes = body.readAllBytes();
+            T result = parser.parse(new ByteArrayInputStream(bytes));
+            record(url, bytes);
+            return result;
+        };
+    }
+
+    /**
+     * Write the body for this request, replacing any earlier recording
+     * A failed write is logged and otherwise ignored, recording never fails a request
+     */
+    public void record(String url, byte[] body) {
+        // Non-JSON bodies are proxy or server error pages, not Last.fm answers
+        if (body.length == 0 || body[0] != '{') {
+            return;
+        }
+        String query = URI.create(url).getRawQuery();
+        Map<String, String> params = params(query);
+        String method = params.getOrDefault("method", "unknown");
+        String key = key(query);
+        try {
+            Path dir = directory.resolve(method);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(key + SUFFIX);
+            boolean existed = Files.exists(file);
+            Path temp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(temp, body);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!existed) {
+                String line = method + "/" + key + SUFFIX + "\t" + normalize(params) + "\n";
+                synchronized (indexLock) {
+                    Files.writeString(directory.resolve(INDEX_FILE), line, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            }
+            recorded.incrementAndGet();
+        } catch (IOException | UncheckedIOException e) {
+            failures.incrementAndGet();
+            System.err.println("Failed to record response for " + method + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * File name for a request: SHA-256 of its sorted, lower-cased parameters without
+     * api_key and format, so a recording matches whatever key or casing replays it
+     */
+    public static String key(String rawQuery) {
+        String normalized = normalize(params(rawQuery));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static Map<String, String> params(String rawQuery) {
+        Map<String, String> params = new TreeMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static String normalize(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (IGNORED_PARAMS.contains(param.getKey())) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(param.getKey()).append('=').append(param.getValue().trim().toLowerCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Stats getters
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -4,36 +4,123 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import model.Track;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Handles socket connection to the server
  * Demonstrates Client Socket programming
+ *
+ * With pipelining enabled (protocol version 2) every request carries a
+ * requestId, many requests can be outstanding on the one socket and a reader
+ * thread completes the matching future as each response arrives. Pipelined
+ * requests can also be streamed, arriving as several chunks of tracks
+ *
+ * Requests always go out as JSON lines; after useBinaryFormat() responses
+ * come back as WireCodec frames instead
  */
 public class ServerConnection {
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private static final int PIPELINED_VERSION = 2;
+
+    private final String host;
+    private final int port;
+    private volatile Link link;
     private final Gson gson;
 
+    private volatile boolean preferBinary;
+
+    private volatile boolean pipelining;
+    private final AtomicLong nextRequestId = new AtomicLong();
+
+    /**
+     * One socket and everything tied to it: the format its responses arrive in
+     * and the pipelined requests still waiting on it. A reconnect opens a new
+     * Link, so a reader still draining the old socket never touches the new one
+     */
+    private static class Link {
+        final Socket socket;
+        final PrintWriter out;
+        final DataInputStream in;
+        // Format the server answers in on this socket, flipped when its SET_FORMAT ack is read
+        volatile boolean binaryResponses;
+        volatile boolean closed;
+        final Map<Long, CompletableFuture<JsonObject>> pendingRequests = new ConcurrentHashMap<>();
+        final Map<Long, Consumer<List<Track>>> chunkListeners = new ConcurrentHashMap<>();
+
+        Link(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new PrintWriter(socket.getOutputStream(), true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        boolean isOpen() {
+            return !closed && socket.isConnected() && !socket.isClosed();
+        }
+
+        /**
+         * Close the socket (which also stops its reader) and fail everything still pending on it
+         */
+        void close(IOException reason) {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            failPending(reason);
+        }
+
+        void failPending(IOException e) {
+            chunkListeners.clear();
+            for (Long requestId : pendingRequests.keySet()) {
+                CompletableFuture<JsonObject> pending = pendingRequests.remove(requestId);
+                if (pending != null) {
+                    pending.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
     public ServerConnection() {
+        this(Config.SERVER_HOST, Config.SERVER_PORT);
+    }
+
+    public ServerConnection(String host, int port) {
+        this.host = host;
+        this.port = port;
         this.gson = new Gson();
     }
 
     /**
      * Connect to the server
      */
-    public void connect() throws IOException {
+    public synchronized void connect() throws IOException {
+        Link previous = link;
+        if (previous != null && !previous.closed) {
+            previous.close(new IOException("Reconnected to server"));
+        }
         try {
-            socket = new Socket(Config.SERVER_HOST, Config.SERVER_PORT);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            Link next = new Link(new Socket(host, port));
+            link = next;
             System.out.println("Connected to server");
+            if (preferBinary) {
+                negotiateFormat(next, WireCodec.FORMAT_BINARY);
+            }
+            if (pipelining) {
+                startResponseReader(next);
+            }
         } catch (IOException e) {
             System.err.println("Server connection failed: " + e.getMessage());
             e.printStackTrace();
@@ -41,15 +128,114 @@ public class ServerConnection {
         }
     }
 
+    /**
+     * Switch to the pipelined protocol: requests are tagged with ids and
+     * responses are matched back to them, in whatever order they arrive
+     */
+    public synchronized void enablePipelining() {
+        if (pipelining) {
+            return;
+        }
+        pipelining = true;
+        if (isConnected()) {
+            startResponseReader(link);
+        }
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * Ask the server to answer with compact binary frames from now on
+     * Also re-negotiated automatically after a reconnect
+     */
+    public synchronized void useBinaryFormat() throws IOException {
+        preferBinary = true;
+        Link current = link;
+        if (!isConnected() || current.binaryResponses) {
+            return;
+        }
+        if (pipelining) {
+            join(sendAsync(formatRequest(WireCodec.FORMAT_BINARY)));
+        } else {
+            negotiateFormat(current, WireCodec.FORMAT_BINARY);
+        }
+    }
+
+    public boolean isBinaryFormat() {
+        Link current = link;
+        return current != null && current.binaryResponses;
+    }
+
+    // Direct SET_FORMAT exchange, only while no reader thread owns the input stream
+    private void negotiateFormat(Link link, String format) throws IOException {
+        link.out.println(gson.toJson(formatRequest(format)));
+        JsonObject response = readResponse(link);
+        if (response == null) {
+            throw new IOException("The server disconnected");
+        }
+        parseTracks(response);
+    }
+
+    private JsonObject formatRequest(String format) {
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "SET_FORMAT");
+        request.addProperty("format", format);
+        return request;
+    }
+
+    /**
+     * Read one response in whichever format the server is currently using
+     *
+     * @return the response, or null at end of stream
+     */
+    private JsonObject readResponse(Link link) throws IOException {
+        JsonObject response;
+        if (link.binaryResponses) {
+            response = WireCodec.readFrame(link.in);
+        } else {
+            String responseLine = readLine(link.in);
+            response = responseLine == null ? null : gson.fromJson(responseLine, JsonObject.class);
+        }
+
+        // Everything after a SET_FORMAT ack arrives in the new format
+        if (response != null && response.has("action") && response.has("format")
+                && "SET_FORMAT".equals(response.get("action").getAsString())
+                && "success".equals(response.get("status").getAsString())) {
+            link.binaryResponses = WireCodec.FORMAT_BINARY.equals(response.get("format").getAsString());
+        }
+        return response;
+    }
+
+    // UTF-8 line reader on the raw stream, so switching to frames never loses buffered bytes
+    private static String readLine(DataInputStream reader) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = reader.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
     /**
      * Search for tracks on the server
      */
     public List<Track> searchTracks(String query) throws IOException {
-        JsonObject request = new JsonObject();
-        request.addProperty("action", "SEARCH");
-        request.addProperty("query", query);
-        request.addProperty("limit", 20);
+        return sendRequest(searchRequest(query));
+    }
 
+    /**
+     * Search and have the server fill in track.getInfo details (image, mbid) for every result
+     */
+    public List<Track> searchTracksEnriched(String query) throws IOException {
+        JsonObject request = searchRequest(query);
+        request.addProperty("enrich", true);
         return sendRequest(request);
     }
 
@@ -57,77 +243,264 @@ public class ServerConnection {
      * Get recommendations from the server
      */
     public List<Track> getRecommendations(String trackName, String artistName) throws IOException {
+        return sendRequest(recommendRequest(trackName, artistName));
+    }
+
+    /**
+     * Get recommendations for several seed tracks at once (used by multi-seed strategies)
+     */
+    public List<Track> getRecommendations(List<Track> seeds, int count) throws IOException {
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "RECOMMEND");
+        request.add("seeds", gson.toJsonTree(seeds));
+        request.addProperty("count", count);
+        return sendRequest(request);
+    }
+
+    /**
+     * Search without waiting for earlier requests to finish (needs pipelining)
+     */
+    public CompletableFuture<List<Track>> searchTracksAsync(String query) {
+        return sendAsync(searchRequest(query));
+    }
+
+    /**
+     * Request recommendations without waiting for earlier requests to finish (needs pipelining)
+     */
+    public CompletableFuture<List<Track>> getRecommendationsAsync(String trackName, String artistName) {
+        return sendAsync(recommendRequest(trackName, artistName));
+    }
+
+    /**
+     * Stream search results: the iterator hands out tracks as the server sends them (needs pipelining)
+     */
+    public TrackStream searchTracksStreaming(String query) {
+        return stream(searchRequest(query));
+    }
+
+    /**
+     * Stream recommendations as the server sends them (needs pipelining)
+     */
+    public TrackStream getRecommendationsStreaming(String trackName, String artistName) {
+        return stream(recommendRequest(trackName, artistName));
+    }
+
+    private TrackStream stream(JsonObject request) {
+        TrackStream stream = new TrackStream();
+        streamAsync(request, stream::onChunk).whenComplete((count, error) -> stream.onEnd(error));
+        return stream;
+    }
+
+    private JsonObject searchRequest(String query) {
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "SEARCH");
+        request.addProperty("query", query);
+        request.addProperty("limit", 20);
+        return request;
+    }
+
+    private JsonObject recommendRequest(String trackName, String artistName) {
         JsonObject request = new JsonObject();
         request.addProperty("action", "RECOMMEND");
         request.addProperty("trackName", trackName);
         request.addProperty("artistName", artistName);
         request.addProperty("count", 10);
+        return request;
+    }
 
-        return sendRequest(request);
+    /**
+     * Send a request tagged with a fresh requestId and return a future for its tracks
+     */
+    public CompletableFuture<List<Track>> sendAsync(JsonObject request) {
+        return send(request, null).thenApply(json -> {
+            try {
+                return parseTracks(json);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
     }
 
-    private List<Track> sendRequest(JsonObject request) throws IOException {
-        try {
-            // Send request
-            out.println(gson.toJson(request));
+    /**
+     * Send a request in streaming mode (protocol version 2)
+     * onChunk gets each batch of tracks on the reader thread as soon as the server
+     * writes it, and the future completes with the total once the server is done
+     */
+    public CompletableFuture<Integer> streamAsync(JsonObject request, Consumer<List<Track>> onChunk) {
+        JsonObject streaming = request.deepCopy();
+        streaming.addProperty("stream", true);
+        return send(streaming, onChunk).thenApply(json -> {
+            try {
+                // A reply that was not streamed (e.g. from an older server) is one big chunk
+                List<Track> tracks = parseTracks(json);
+                if (!tracks.isEmpty()) {
+                    onChunk.accept(tracks);
+                }
+                return json.has("count") ? json.get("count").getAsInt() : tracks.size();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-            // Receive response
-            String responseLine = in.readLine();
-            //JsonObject response = gson.fromJson(responseLine, JsonObject.class);
+    private CompletableFuture<JsonObject> send(JsonObject request, Consumer<List<Track>> onChunk) {
+        if (!pipelining) {
+            return CompletableFuture.failedFuture(new IOException("Pipelining is not enabled"));
+        }
 
-            if (responseLine == null) {
-                throw new IOException("The server disconnected");
-            }
+        long requestId = nextRequestId.incrementAndGet();
+        JsonObject tagged = request.deepCopy();
+        tagged.addProperty("requestId", requestId);
+        tagged.addProperty("version", PIPELINED_VERSION);
 
-            JsonObject response = gson.fromJson(responseLine, JsonObject.class);
+        Link current = link;
+        if (current == null) {
+            return CompletableFuture.failedFuture(new IOException("Not connected to server"));
+        }
+        CompletableFuture<JsonObject> response = new CompletableFuture<>();
+        current.pendingRequests.put(requestId, response);
+        if (onChunk != null) {
+            current.chunkListeners.put(requestId, onChunk);
+        }
+
+        current.out.println(gson.toJson(tagged));
+        // Checked after registering: either the closing reader fails it or we see closed here
+        if (current.out.checkError() || current.closed) {
+            forget(current, requestId);
+            return CompletableFuture.failedFuture(new IOException("The server disconnected"));
+        }
+        return response;
+    }
 
-            if (response.get("status").getAsString().equals("success")) {
-                // Parse tracks from response
+    private static void forget(Link link, long requestId) {
+        link.pendingRequests.remove(requestId);
+        link.chunkListeners.remove(requestId);
+    }
 
-                //DEBUG FIX: Add to make sure that response has data and isn't null
-                if(!response.has("data") || response.get("data").isJsonNull()){
-                    return List.of();
+    /**
+     * Background reader that completes pending futures by requestId
+     */
+    private void startResponseReader(Link link) {
+        Thread thread = new Thread(() -> {
+            try {
+                JsonObject response;
+                while ((response = readResponse(link)) != null) {
+                    if (!response.has("requestId")) {
+                        continue;
+                    }
+                    long requestId = response.get("requestId").getAsLong();
+                    if (response.has("chunk")) {
+                        deliverChunk(link.chunkListeners.get(requestId), response);
+                        continue;
+                    }
+                    link.chunkListeners.remove(requestId);
+                    CompletableFuture<JsonObject> pending = link.pendingRequests.remove(requestId);
+                    if (pending != null) {
+                        pending.complete(response);
+                    }
                 }
+            } catch (IOException | RuntimeException e) {
+                if (!link.closed) {
+                    System.err.println("Server connection got interrupted " + e.getMessage());
+                }
+            }
+            // Only this socket's requests: a reconnect has its own Link
+            link.close(new IOException("The server disconnected"));
+        }, "server-connection-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void deliverChunk(Consumer<List<Track>> listener, JsonObject chunk) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.accept(parseTracks(chunk));
+        } catch (IOException | RuntimeException e) {
+            // A failing listener must not take the reader thread down with it
+            System.err.println("Dropped a streamed chunk: " + e.getMessage());
+        }
+    }
 
-                Track[] tracksArray = gson.fromJson(
-                        response.get("data"), Track[].class);
+    private List<Track> sendRequest(JsonObject request) throws IOException {
+        if (pipelining) {
+            return awaitPipelined(request);
+        }
 
-                return List.of(tracksArray);
-            } else {
-                String errorMsg = response.get("message").getAsString();
-                throw new IOException("Server error: " + errorMsg);
-            }
-            //Error handling: attempt to reconnect in the case of network issues
+        try {
+            return exchange(request);
+        } catch (ServerErrorException e) {
+            // The server answered, the connection is fine
+            throw e;
         } catch (IOException e) {
+            //Error handling: attempt to reconnect in the case of network issues
             System.err.println("Server connection got interrupted " + e.getMessage());
             e.printStackTrace();
 
             retryConnect();
+            return exchange(request);
+        }
+    }
 
-            out.println(gson.toJson(request));
-            String responseLine = in.readLine();
-
-            if (responseLine == null) {
-                throw new IOException("Retry connection failed: " + e.getMessage());
-            }
+    // One request, one response, on the current socket
+    private synchronized List<Track> exchange(JsonObject request) throws IOException {
+        Link current = link;
+        if (current == null || !current.isOpen()) {
+            throw new IOException("Not connected to server");
+        }
+        // Send request
+        current.out.println(gson.toJson(request));
 
-            JsonObject response = gson.fromJson(responseLine, JsonObject.class);
+        // Receive response
+        JsonObject response = readResponse(current);
+        if (response == null) {
+            throw new IOException("The server disconnected");
+        }
+        return parseTracks(response);
+    }
 
-            //Slightly repetitive, could possibly be optimized
-            if (response.get("status").getAsString().equals("success")) {
-                //DEBUG FIX: Add to make sure that response has data and isn't null
-                if(!response.has("data") || response.get("data").isJsonNull()){
-                    return List.of();
-                }
+    // Blocking call over the pipelined protocol, reconnecting once on a transport failure
+    private List<Track> awaitPipelined(JsonObject request) throws IOException {
+        try {
+            return join(sendAsync(request));
+        } catch (ServerErrorException e) {
+            throw e;
+        } catch (IOException e) {
+            System.err.println("Server connection got interrupted " + e.getMessage());
+            retryConnect();
+            return join(sendAsync(request));
+        }
+    }
 
-                Track[] tracksArray = gson.fromJson(
-                        response.get("data"), Track[].class);
+    private static List<Track> join(CompletableFuture<List<Track>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
 
-                return List.of(tracksArray);
-            } else {
-                String errorMsg = response.get("message").getAsString();
-                throw new IOException("Server error: " + errorMsg);
+    /**
+     * Turn a response into tracks, or an IOException carrying the server's error message
+     */
+    private List<Track> parseTracks(JsonObject response) throws IOException {
+        if (response.get("status").getAsString().equals("success")) {
+            //DEBUG FIX: Add to make sure that response has data and isn't null
+            if (!response.has("data") || response.get("data").isJsonNull() || !response.get("data").isJsonArray()) {
+                return List.of();
             }
+
+            Track[] tracksArray = gson.fromJson(
+                    response.get("data"), Track[].class);
+
+            return List.of(tracksArray);
+        } else {
+            String errorMsg = response.get("message").getAsString();
+            throw new ServerErrorException("Server error: " + errorMsg);
         }
     }
 
@@ -146,18 +519,17 @@ public class ServerConnection {
      * Close the connection
      */
     public void disconnect() {
-        try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null) socket.close();
-            System.out.println("Disconnected from server");
-        } catch (IOException e) {
-            e.printStackTrace();
+        // Closing the socket also lets a pipelining reader thread blocked in readLine go
+        Link current = link;
+        if (current != null) {
+            current.close(new IOException("Disconnected from server"));
         }
+        System.out.println("Disconnected from server");
     }
 
     public boolean isConnected() {
-        return socket != null && socket.isConnected() && !socket.isClosed();
+        Link current = link;
+        return current != null && current.isOpen();
     }
 
     public void retryConnect() throws IOException {
@@ -171,4 +543,4 @@ public class ServerConnection {
         }
 
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * An error answer from the server ("status":"error"); the connection itself is fine
+ */
+public class ServerErrorException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerErrorException(String message) {
+        super(message);
+    }
+}
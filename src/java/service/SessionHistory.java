@@ -0,0 +1,133 @@
+package service;
+
+import model.CompactTrack;
+import model.Track;
+import model.TrackId;
+import model.TrackInterner;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Tracks a connection has been shown, oldest first, for strategies like RandomStrategy
+ * Bounded ring buffer: once full, adding a new track drops the oldest one.
+ * A track already in the history (same TrackId) keeps its place and only
+ * has its metadata refreshed, so repeated searches do not skew random picks.
+ * Entries are interned CompactTracks shared with the response cache.
+ * All methods lock on this object, so callers can hold that lock to read
+ * several indices consistently
+ */
+public class SessionHistory extends AbstractList<Track> implements RandomAccess {
+    // Ring slot plus map entry; the interned track itself is accounted by the interner
+    private static final long ENTRY_BYTES = 72;
+
+    private final TrackInterner interner;
+    private final CompactTrack[] ring;
+    private final Map<TrackId, Integer> slots;
+    private int head;
+    private int size;
+
+    private long bytes;
+    private long evictions;
+    private long duplicates;
+
+    public SessionHistory(int capacity) {
+        this(capacity, new TrackInterner(Math.max(1, capacity)));
+    }
+
+    public SessionHistory(int capacity, TrackInterner interner) {
+        int n = Math.max(1, capacity);
+        this.interner = interner;
+        this.ring = new CompactTrack[n];
+        this.slots = new HashMap<>(Math.min(n, 1024) * 2);
+    }
+
+    /**
+     * @return false if the track was already in the history
+     */
+    @Override
+    public synchronized boolean add(Track track) {
+        if (track == null || track.getName() == null || track.getArtist() == null) {
+            return false;
+        }
+        CompactTrack compact = interner.intern(track);
+
+        Integer slot = slots.get(compact.getId());
+        if (slot != null) {
+            ring[slot] = compact;
+            duplicates++;
+            return false;
+        }
+
+        if (size == ring.length) {
+            slots.remove(ring[head].getId());
+            bytes -= ENTRY_BYTES;
+            head = (head + 1) % ring.length;
+            size--;
+            evictions++;
+        }
+        int tail = (head + size) % ring.length;
+        ring[tail] = compact;
+        slots.put(compact.getId(), tail);
+        bytes += ENTRY_BYTES;
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends Track> tracks) {
+        boolean changed = false;
+        for (Track track : tracks) {
+            changed |= add(track);
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized Track get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return ring[(head + index) % ring.length].toTrack(0.0);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(Track track) {
+        return track != null && track.getName() != null && track.getArtist() != null
+                && slots.containsKey(TrackId.of(track));
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        slots.clear();
+        head = 0;
+        size = 0;
+        bytes = 0;
+    }
+
+    // Stats getters
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+}
@@ -0,0 +1,271 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Offline stand-in for ws.audioscrobbler.com that replays ResponseRecorder recordings
+ * Every response is delayed by a sample from the latency distribution, and a share
+ * of them (errorRate) is replaced by one of the configured Last.fm error codes so
+ * rate limiting and the circuit breaker can be exercised too. Requests with no
+ * recording get Last.fm's "track not found" error
+ *
+ * Point the recommendation server at it with LASTFM_BASE_URL=http://localhost:8890/2.0/
+ */
+public class StubLastFmServer {
+    private static final String CONTEXT = "/2.0/";
+    private static final int NOT_FOUND = 6;
+
+    private final int port;
+    private final Path recordings;
+    private final Latency latency;
+    private final double errorRate;
+    private final int[] errorCodes;
+    private final Random random;
+    private final Map<String, byte[]> responses = new HashMap<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Stats
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    /**
+     * A source of response delays
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long sampleMillis(Random random);
+
+        /**
+         * "none", "fixed:ms", "uniform:min:max", "exponential:mean" or "lognormal:median:sigma"
+         * Log-normal gives the long tail real upstream latencies have
+         */
+        static Latency parse(String spec) {
+            String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+            try {
+                switch (parts[0]) {
+                    case "none":
+                        return random -> 0;
+                    case "fixed": {
+                        long millis = Long.parseLong(parts[1]);
+                        return random -> millis;
+                    }
+                    case "uniform": {
+                        long min = Long.parseLong(parts[1]);
+                        long max = Long.parseLong(parts[2]);
+                        if (max < min) {
+                            throw new IllegalArgumentException("Latency max below min: " + spec);
+                        }
+                        return random -> min + (long) (random.nextDouble() * (max - min + 1));
+                    }
+                    case "exponential": {
+                        double mean = Double.parseDouble(parts[1]);
+                        return random -> Math.round(-mean * Math.log(1 - random.nextDouble()));
+                    }
+                    case "lognormal": {
+                        double median = Double.parseDouble(parts[1]);
+                        double sigma = Double.parseDouble(parts[2]);
+                        return random -> Math.round(median * Math.exp(sigma * random.nextGaussian()));
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Bad latency spec: " + spec, e);
+            }
+        }
+    }
+
+    public StubLastFmServer(int port, Path recordings) {
+        this(port, recordings, Latency.parse("none"), 0, new int[0], System.nanoTime());
+    }
+
+    /**
+     * @param port       0 picks a free port (see getPort)
+     * @param errorRate  share of requests answered with an error, 0 to 1
+     * @param errorCodes Last.fm error codes injected, picked uniformly
+     * @param seed       makes latencies and injected errors repeatable
+     */
+    public StubLastFmServer(int port, Path recordings, Latency latency, double errorRate, int[] errorCodes, long seed) {
+        if (errorRate > 0 && errorCodes.length == 0) {
+            throw new IllegalArgumentException("Error rate set but no error codes to inject");
+        }
+        this.port = port;
+        this.recordings = recordings;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.errorCodes = errorCodes.clone();
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Load the recordings and start serving, returns once the port is bound
+     */
+    public void start() throws IOException {
+        loadRecordings();
+        // Handlers sleep for the sampled latency, so each request needs its own thread
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-lastfm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 128);
+        server.createContext(CONTEXT, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Stub Last.fm server replaying " + responses.size() + " responses at " + getBaseUrl());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void loadRecordings() throws IOException {
+        responses.clear();
+        if (!Files.isDirectory(recordings)) {
+            System.err.println("No recordings found in " + recordings);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(recordings, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ResponseRecorder.SUFFIX)) {
+                    String key = name.substring(0, name.length() - ResponseRecorder.SUFFIX.length());
+                    responses.put(key, Files.readAllBytes(file));
+                }
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            long delay;
+            boolean fail;
+            int code = 0;
+            // Random is shared, so draw everything for this request in one go
+            synchronized (random) {
+                delay = Math.max(0, latency.sampleMillis(random));
+                fail = errorRate > 0 && random.nextDouble() < errorRate;
+                if (fail) {
+                    code = errorCodes[random.nextInt(errorCodes.length)];
+                }
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    // Server stopping
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            if (fail) {
+                injectedErrors.incrementAndGet();
+                send(exchange, code == LastFmApiException.RATE_LIMIT_EXCEEDED ? 429 : 503, error(code));
+                return;
+            }
+            byte[] body = responses.get(ResponseRecorder.key(exchange.getRequestURI().getRawQuery()));
+            if (body == null) {
+                missing.incrementAndGet();
+                send(exchange, 404, error(NOT_FOUND));
+                return;
+            }
+            replayed.incrementAndGet();
+            send(exchange, 200, body);
+        }
+    }
+
+    private static byte[] error(int code) {
+        String message = switch (code) {
+            case NOT_FOUND -> "Track not found";
+            case LastFmApiException.SERVICE_OFFLINE -> "Service Offline - This service is temporarily offline. Try again later.";
+            case LastFmApiException.TEMPORARY_ERROR -> "There was a temporary error processing your request. Please try again";
+            case LastFmApiException.RATE_LIMIT_EXCEEDED -> "Rate Limit Exceeded - Your IP has made too many requests in a short period";
+            default -> "Operation failed - Most likely the backend service failed. Please try again.";
+        };
+        return ("{\"error\":" + code + ",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    static int[] parseErrorCodes(String codes) {
+        return Arrays.stream(codes.split(","))
+                .map(String::trim)
+                .filter(code -> !code.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + CONTEXT;
+    }
+
+    // Stats getters
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getMissing() {
+        return missing.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * Usage: StubLastFmServer [recordings-dir], the rest comes from Config (STUB_* variables)
+     */
+    public static void main(String[] args) throws IOException {
+        Path recordings = Path.of(args.length > 0 ? args[0] : Config.REPLAY_DIR);
+        StubLastFmServer stub = new StubLastFmServer(Config.STUB_SERVER_PORT, recordings,
+                Latency.parse(Config.STUB_LATENCY), Config.STUB_ERROR_RATE,
+                parseErrorCodes(Config.STUB_ERROR_CODES), System.nanoTime());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stub.stop();
+            System.out.println("Served " + stub.getRequests() + " requests: " + stub.getReplayed() + " replayed, "
+                    + stub.getMissing() + " missing, " + stub.getInjectedErrors() + " injected errors");
+        }));
+        stub.start();
+    }
+}
@@ -0,0 +1,266 @@
+package service;
+
+import model.Track;
+import model.TrackId;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Bulk track.getInfo enrichment for a page of tracks (e.g. search results)
+ * Duplicates (same TrackId) are looked up once. Tracks whose info is already in
+ * the memory cache are emitted straight away. The rest are fetched with at most
+ * maxParallel requests in flight, and each one is emitted as soon as it arrives,
+ * so a page costs a few round trips instead of one per track
+ */
+public class TrackEnricher {
+    private final LastFmAPIClient apiClient;
+    private final int maxParallel;
+
+    public TrackEnricher(LastFmAPIClient apiClient) {
+        this(apiClient, Config.ENRICH_MAX_PARALLEL);
+    }
+
+    public TrackEnricher(LastFmAPIClient apiClient, int maxParallel) {
+        this.apiClient = apiClient;
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    /**
+     * Enrich every distinct track, calling sink once for each as it completes
+     * Tracks Last.fm has no info for (or whose lookup failed or was refused by the
+     * rate limiter) come back unchanged. Sink calls never overlap but may come from
+     * the I/O thread that finished the lookup
+     *
+     * @return completes with the number of tracks emitted once the last one is out
+     */
+    public CompletableFuture<Integer> enrich(List<Track> tracks, Consumer<Track> sink) {
+        return run(tracks, sink, () -> false);
+    }
+
+    /**
+     * Same pipeline as a Flow.Publisher, each subscriber starts its own run
+     * Tracks that arrive before the subscriber asked for them are buffered
+     */
+    public Flow.Publisher<Track> publish(List<Track> tracks) {
+        return subscriber -> {
+            EnrichSubscription subscription = new EnrichSubscription(subscriber);
+            subscriber.onSubscribe(subscription);
+            run(tracks, subscription::offer, subscription::isCancelled)
+                    .whenComplete((emitted, error) -> subscription.finish(error));
+        };
+    }
+
+    /**
+     * Whole page at once, in input order with duplicates dropped
+     */
+    public CompletableFuture<List<Track>> enrichAll(List<Track> tracks) {
+        // Keyed without the mbid, which enrichment may have just filled in
+        Map<TrackId, Track> enriched = new LinkedHashMap<>();
+        for (Track track : tracks) {
+            enriched.putIfAbsent(TrackId.of(track.getName(), track.getArtist(), null), null);
+        }
+        return enrich(tracks, track -> enriched.put(TrackId.of(track.getName(), track.getArtist(), null), track))
+                .thenApply(emitted -> new ArrayList<>(enriched.values()));
+    }
+
+    private CompletableFuture<Integer> run(List<Track> tracks, Consumer<Track> sink, BooleanSupplier cancelled) {
+        Map<TrackId, Track> distinct = new LinkedHashMap<>();
+        for (Track track : tracks) {
+            distinct.putIfAbsent(TrackId.of(track), track);
+        }
+
+        Object sinkLock = new Object();
+        Consumer<Track> emit = track -> {
+            synchronized (sinkLock) {
+                try {
+                    sink.accept(track);
+                } catch (RuntimeException e) {
+                    // A broken consumer must not stall the rest of the page
+                    e.printStackTrace();
+                }
+            }
+        };
+
+        // Cache hits first, without waiting for any lookup
+        List<Track> missing = new ArrayList<>();
+        for (Track track : distinct.values()) {
+            Track cached = apiClient.getCachedTrackInfo(track.getName(), track.getArtist());
+            if (cached != null) {
+                emit.accept(merge(track, cached));
+            } else {
+                missing.add(track);
+            }
+        }
+
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        int n = missing.size();
+        if (n == 0) {
+            done.complete(distinct.size());
+            return done;
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(n);
+        Runnable launch = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i >= n) {
+                    return;
+                }
+                Track track = missing.get(i);
+                CompletableFuture<Track> lookup;
+                if (cancelled.getAsBoolean()) {
+                    lookup = CompletableFuture.completedFuture(null);
+                } else {
+                    try {
+                        lookup = apiClient.getTrackInfoAsync(track.getName(), track.getArtist());
+                    } catch (RuntimeException e) {
+                        lookup = CompletableFuture.failedFuture(e);
+                    }
+                }
+                lookup.whenComplete((info, error) -> {
+                    if (error != null) {
+                        System.err.println("Track info lookup failed for " + track + ": " + error);
+                    }
+                    emit.accept(merge(track, error == null ? info : null));
+                    if (remaining.decrementAndGet() == 0) {
+                        done.complete(distinct.size());
+                    }
+                    run();
+                });
+            }
+        };
+        for (int i = 0; i < Math.min(maxParallel, n); i++) {
+            launch.run();
+        }
+        return done;
+    }
+
+    /**
+     * Copy of the track with whatever track.getInfo knows filled in
+     * Keeps the caller's name, artist and match score
+     */
+    static Track merge(Track track, Track info) {
+        Track enriched = new Track(track);
+        if (info == null) {
+            return enriched;
+        }
+        if (info.getMbid() != null) {
+            enriched.setMbid(info.getMbid());
+        }
+        if (info.getUrl() != null) {
+            enriched.setUrl(info.getUrl());
+        }
+        if (info.getImageUrl() != null) {
+            enriched.setImageUrl(info.getImageUrl());
+        }
+        enriched.setListeners(Math.max(track.getListeners(), info.getListeners()));
+        return enriched;
+    }
+
+    /**
+     * Buffers enriched tracks and hands them out as the subscriber requests them
+     * One thread at a time drains (whoever bumps wip from 0), so onNext calls never overlap
+     */
+    private static class EnrichSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Track> subscriber;
+        private final Queue<Track> ready = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile Throwable error;
+        private boolean terminated;
+
+        EnrichSubscription(Flow.Subscriber<? super Track> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                finish(new IllegalArgumentException("Non-positive request: " + n));
+                cancelled = true;
+                return;
+            }
+            requested.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void offer(Track track) {
+            ready.add(track);
+            drain();
+        }
+
+        synchronized void finish(Throwable failure) {
+            if (!finished) {
+                error = failure;
+                finished = true;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                long wanted = requested.get();
+                long sent = 0;
+                while (sent != wanted && !cancelled && error == null) {
+                    Track track = ready.poll();
+                    if (track == null) {
+                        break;
+                    }
+                    subscriber.onNext(track);
+                    sent++;
+                }
+                if (cancelled && error == null) {
+                    ready.clear();
+                    terminated = true;
+                    return;
+                }
+                if (finished && (error != null || ready.isEmpty())) {
+                    terminated = true;
+                    ready.clear();
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                if (sent != 0 && wanted != Long.MAX_VALUE) {
+                    requested.addAndGet(-sent);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import model.Track;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking iterator over a streamed SEARCH or RECOMMEND response
+ * The connection's reader thread queues each chunk as it arrives and hasNext()
+ * waits for the next one, so a caller can show the first tracks while the
+ * server is still producing the rest. Connection or server errors surface as
+ * UncheckedIOException from hasNext()
+ */
+public class TrackStream implements Iterator<Track> {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private Object next;
+
+    TrackStream() {
+    }
+
+    void onChunk(List<Track> tracks) {
+        queue.addAll(tracks);
+    }
+
+    void onEnd(Throwable error) {
+        queue.add(error != null ? error : END);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for tracks"));
+            }
+        }
+        if (next instanceof Throwable) {
+            Throwable error = (Throwable) next;
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            throw new UncheckedIOException(error instanceof IOException ? (IOException) error : new IOException(error));
+        }
+        return next != END;
+    }
+
+    @Override
+    public Track next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Track track = (Track) next;
+        next = null;
+        return track;
+    }
+}
@@ -0,0 +1,81 @@
+package service;
+
+/**
+ * Tunable settings for the HTTP transport used to reach Last.fm
+ * Defaults come from Config
+ */
+public class TransportSettings {
+    private int maxConnectionsTotal = Config.HTTP_MAX_CONNECTIONS_TOTAL;
+    private int maxConnectionsPerRoute = Config.HTTP_MAX_CONNECTIONS_PER_ROUTE;
+    private long connectTimeoutMillis = Config.HTTP_CONNECT_TIMEOUT_MILLIS;
+    private long responseTimeoutMillis = Config.HTTP_RESPONSE_TIMEOUT_MILLIS;
+    private long keepAliveMillis = Config.HTTP_KEEP_ALIVE_MILLIS;
+    private long idleEvictionMillis = Config.HTTP_IDLE_EVICTION_MILLIS;
+    private boolean http2Async = Config.HTTP2_ASYNC;
+    private int parserThreads = Config.HTTP_PARSER_THREADS;
+
+    // Getters and Setters
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public void setResponseTimeoutMillis(long responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public long getIdleEvictionMillis() {
+        return idleEvictionMillis;
+    }
+
+    public void setIdleEvictionMillis(long idleEvictionMillis) {
+        this.idleEvictionMillis = idleEvictionMillis;
+    }
+
+    public boolean isHttp2Async() {
+        return http2Async;
+    }
+
+    public void setHttp2Async(boolean http2Async) {
+        this.http2Async = http2Async;
+    }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+}
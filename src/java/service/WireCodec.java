@@ -0,0 +1,351 @@
+package service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import model.Track;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding for server responses, used once a client sends SET_FORMAT
+ *
+ * Frame: [int32 length][byte flags][body], flag bit 0 means the body is deflated
+ * Body:  string table (varint count, then varint length + UTF-8 bytes per string),
+ *        status / action / message / extra-fields refs, optional requestId,
+ *        then the track list with varint refs into the string table
+ *
+ * Every distinct string is written once per frame, and URLs are split at their
+ * last '/' so the shared prefixes (artist page, image CDN size folder) are too
+ */
+public final class WireCodec {
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BINARY = "binary";
+
+    static final int FLAG_DEFLATED = 1;
+    static final int COMPRESS_THRESHOLD = 1024;
+    static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private WireCodec() {
+    }
+
+    /**
+     * Encode a response as one length-prefixed frame
+     *
+     * @param fields top-level response fields (status, action, message, requestId, ...)
+     * @param tracks track payload sent as "data", or null if there is none
+     */
+    public static byte[] encode(JsonObject fields, List<Track> tracks) {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 + (tracks == null ? 0 : tracks.size() * 24));
+
+        JsonObject extra = new JsonObject();
+        String status = null;
+        String action = null;
+        String message = null;
+        Long requestId = null;
+        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+            JsonElement value = field.getValue();
+            switch (field.getKey()) {
+                case "status":
+                    status = value.getAsString();
+                    break;
+                case "action":
+                    action = value.getAsString();
+                    break;
+                case "message":
+                    message = value.getAsString();
+                    break;
+                case "requestId":
+                    requestId = value.getAsLong();
+                    break;
+                default:
+                    extra.add(field.getKey(), value);
+            }
+        }
+
+        writeVarInt(body, strings.ref(status));
+        writeVarInt(body, strings.ref(action));
+        writeVarInt(body, strings.ref(message));
+        writeVarInt(body, strings.ref(extra.size() == 0 ? null : extra.toString()));
+        if (requestId == null) {
+            body.write(0);
+        } else {
+            body.write(1);
+            writeVarLong(body, zigZag(requestId));
+        }
+
+        if (tracks == null) {
+            writeVarInt(body, 0);
+        } else {
+            writeVarInt(body, tracks.size() + 1);
+            for (Track track : tracks) {
+                writeVarInt(body, strings.ref(track.getName()));
+                writeVarInt(body, strings.ref(track.getArtist()));
+                writeVarInt(body, strings.ref(track.getMbid()));
+                writeSplit(body, strings, track.getUrl());
+                writeSplit(body, strings, track.getImageUrl());
+                writeVarInt(body, Math.max(0, track.getListeners()));
+                writeFloat(body, (float) track.getMatchScore());
+            }
+        }
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream(body.size() + strings.bytes + 16);
+        strings.writeTo(plain);
+        plain.write(body.toByteArray(), 0, body.size());
+        byte[] payload = plain.toByteArray();
+
+        int flags = 0;
+        if (payload.length > COMPRESS_THRESHOLD) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + payload.length);
+        frame.putInt(1 + payload.length);
+        frame.put((byte) flags);
+        frame.put(payload);
+        return frame.array();
+    }
+
+    /**
+     * Read the next frame from the stream
+     *
+     * @return the decoded response, or null if the stream ended between frames
+     */
+    public static JsonObject readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Bad frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return decode(frame);
+    }
+
+    /**
+     * Decode one frame (flags byte and body, without the length prefix) into
+     * the same JSON shape the text protocol would have sent
+     */
+    public static JsonObject decode(byte[] frame) throws IOException {
+        byte[] payload = new byte[frame.length - 1];
+        System.arraycopy(frame, 1, payload, 0, payload.length);
+        if ((frame[0] & FLAG_DEFLATED) != 0) {
+            payload = inflate(payload);
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            String[] strings = new String[readVarInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readVarInt(buffer);
+                strings[i] = new String(payload, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+
+            JsonObject response = new JsonObject();
+            addIfPresent(response, "status", lookup(strings, readVarInt(buffer)));
+            addIfPresent(response, "action", lookup(strings, readVarInt(buffer)));
+            addIfPresent(response, "message", lookup(strings, readVarInt(buffer)));
+            String extra = lookup(strings, readVarInt(buffer));
+            if (buffer.get() == 1) {
+                response.addProperty("requestId", unZigZag(readVarLong(buffer)));
+            }
+            if (extra != null) {
+                for (Map.Entry<String, JsonElement> field : JsonParser.parseString(extra).getAsJsonObject().entrySet()) {
+                    response.add(field.getKey(), field.getValue());
+                }
+            }
+
+            int trackCount = readVarInt(buffer) - 1;
+            if (trackCount >= 0) {
+                JsonArray data = new JsonArray(trackCount);
+                for (int i = 0; i < trackCount; i++) {
+                    JsonObject track = new JsonObject();
+                    addIfPresent(track, "name", lookup(strings, readVarInt(buffer)));
+                    addIfPresent(track, "artist", lookup(strings, readVarInt(buffer)));
+                    addIfPresent(track, "mbid", lookup(strings, readVarInt(buffer)));
+                    addIfPresent(track, "url", readSplit(buffer, strings));
+                    addIfPresent(track, "imageUrl", readSplit(buffer, strings));
+                    track.addProperty("listeners", readVarInt(buffer));
+                    track.addProperty("matchScore", (double) buffer.getFloat());
+                    data.add(track);
+                }
+                response.add("data", data);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt frame: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Per-frame string dictionary, index 0 is reserved for null
+     */
+    private static class StringTable {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int bytes;
+
+        int ref(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer ref = index.get(value);
+            if (ref == null) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                encoded.add(utf8);
+                bytes += utf8.length + 2;
+                ref = encoded.size();
+                index.put(value, ref);
+            }
+            return ref;
+        }
+
+        void writeTo(ByteArrayOutputStream out) {
+            writeVarInt(out, encoded.size());
+            for (byte[] utf8 : encoded) {
+                writeVarInt(out, utf8.length);
+                out.write(utf8, 0, utf8.length);
+            }
+        }
+    }
+
+    private static String lookup(String[] strings, int ref) {
+        return ref == 0 ? null : strings[ref - 1];
+    }
+
+    private static void addIfPresent(JsonObject object, String name, String value) {
+        if (value != null) {
+            object.addProperty(name, value);
+        }
+    }
+
+    // URLs go out as two refs: everything up to the last '/', then the rest
+    private static void writeSplit(ByteArrayOutputStream out, StringTable strings, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        int cut = value.lastIndexOf('/') + 1;
+        writeVarInt(out, strings.ref(value.substring(0, cut)));
+        writeVarInt(out, strings.ref(value.substring(cut)));
+    }
+
+    private static String readSplit(ByteBuffer buffer, String[] strings) {
+        String prefix = lookup(strings, readVarInt(buffer));
+        if (prefix == null) {
+            return null;
+        }
+        return prefix + lookup(strings, readVarInt(buffer));
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("varint out of range");
+        }
+        return (int) value;
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint too long");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeFloat(ByteArrayOutputStream out, float value) {
+        int bits = Float.floatToIntBits(value);
+        out.write(bits >>> 24);
+        out.write(bits >>> 16);
+        out.write(bits >>> 8);
+        out.write(bits);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 3);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed frame");
+                }
+                out.write(chunk, 0, n);
+                if (out.size() > MAX_FRAME_LENGTH) {
+                    throw new IOException("Compressed frame too large");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package view;
 
 import model.Track;
+import service.Config;
 import service.ServerConnection;
+import service.TrackStream;
+import service.WireCodec;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -9,7 +12,12 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.FileWriter;
 import java.io.FileReader;
 import java.io.BufferedReader;
@@ -41,6 +49,11 @@ public class MusicRecommenderGUI extends JFrame {
     // Server connection
     private ServerConnection serverConnection;
 
+    // Recommendations requested ahead of time for the top search results,
+    // pipelined over the same connection as the search itself
+    private static final int PREFETCH_COUNT = 3;
+    private final transient Map<String, CompletableFuture<List<Track>>> prefetchedRecommendations = new ConcurrentHashMap<>();
+
     public MusicRecommenderGUI() {
         initializeGUI();
         initializeConnection();
@@ -166,6 +179,7 @@ public class MusicRecommenderGUI extends JFrame {
             request.addProperty("action", "SET_STRATEGY");
             request.addProperty("strategy", "SIMILARITY");
             serverConnection.sendRequestInternal(request);
+            prefetchedRecommendations.clear();
             statusLabel.setText("Strategy: Similarity");
         });
 
@@ -178,6 +192,7 @@ public class MusicRecommenderGUI extends JFrame {
             request.addProperty("action", "SET_STRATEGY");
             request.addProperty("strategy", "RANDOM");
             serverConnection.sendRequestInternal(request);
+            prefetchedRecommendations.clear();
             statusLabel.setText("Strategy: Random");
         });
 
@@ -197,6 +212,10 @@ public class MusicRecommenderGUI extends JFrame {
         serverConnection = new ServerConnection();
         try {
             serverConnection.connect();
+            serverConnection.enablePipelining();
+            if (WireCodec.FORMAT_BINARY.equals(Config.WIRE_FORMAT)) {
+                serverConnection.useBinaryFormat();
+            }
             updateStatus("Connected to server");
         } catch (IOException e) {
             showError("Failed to connect to server: " + e.getMessage());
@@ -220,17 +239,49 @@ public class MusicRecommenderGUI extends JFrame {
         searchButton.setEnabled(false);
 
         // Perform search in background thread to keep GUI responsive
-        SwingWorker<List<Track>, Void> worker = new SwingWorker<>() {
+        // With pipelining the results are streamed and shown as each chunk arrives
+        searchResultsModel.clear();
+        SwingWorker<List<Track>, Track> worker = new SwingWorker<>() {
             @Override
             protected List<Track> doInBackground() throws Exception {
-                return serverConnection.searchTracks(query);
+                if (!serverConnection.isPipelining()) {
+                    return serverConnection.searchTracks(query);
+                }
+                List<Track> results = new ArrayList<>();
+                try {
+                    TrackStream stream = serverConnection.searchTracksStreaming(query);
+                    while (stream.hasNext()) {
+                        Track track = stream.next();
+                        results.add(track);
+                        publish(track);
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                return results;
+            }
+
+            @Override
+            protected void process(List<Track> chunk) {
+                boolean first = searchResultsModel.isEmpty();
+                for (Track track : chunk) {
+                    searchResultsModel.addElement(track);
+                }
+                if (first) {
+                    searchResultsList.setSelectedIndex(0);
+                }
             }
 
             @Override
             protected void done() {
                 try {
                     List<Track> results = get();
-                    displaySearchResults(results);
+                    if (searchResultsModel.size() == results.size()) {
+                        // Already on screen from the streamed chunks
+                        prefetchRecommendations(results);
+                    } else {
+                        displaySearchResults(results);
+                    }
                     updateStatus("Found " + results.size() + " tracks");
                 } catch (Exception e) {
                     showError("Search failed: " + e.getMessage());
@@ -256,6 +307,27 @@ public class MusicRecommenderGUI extends JFrame {
         if (!tracks.isEmpty()) {
             searchResultsList.setSelectedIndex(0);
         }
+
+        prefetchRecommendations(tracks);
+    }
+
+    /**
+     * Request recommendations for the first few results in the background
+     * so they are ready by the time the user picks one
+     */
+    private void prefetchRecommendations(List<Track> tracks) {
+        prefetchedRecommendations.clear();
+        if (!serverConnection.isPipelining()) {
+            return;
+        }
+        for (Track track : tracks.subList(0, Math.min(PREFETCH_COUNT, tracks.size()))) {
+            prefetchedRecommendations.put(prefetchKey(track),
+                    serverConnection.getRecommendationsAsync(track.getName(), track.getArtist()));
+        }
+    }
+
+    private static String prefetchKey(Track track) {
+        return track.getArtist() + "\u0000" + track.getName();
     }
 
     /**
@@ -277,6 +349,15 @@ public class MusicRecommenderGUI extends JFrame {
         SwingWorker<List<Track>, Void> worker = new SwingWorker<>() {
             @Override
             protected List<Track> doInBackground() throws Exception {
+                CompletableFuture<List<Track>> prefetched =
+                        prefetchedRecommendations.remove(prefetchKey(selectedTrack));
+                if (prefetched != null) {
+                    try {
+                        return prefetched.join();
+                    } catch (Exception e) {
+                        // Fall through and ask again
+                    }
+                }
                 return serverConnection.getRecommendations(
                         selectedTrack.getName(),
                         selectedTrack.getArtist()
@@ -0,0 +1,121 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the columnar feature store and offline nearest-neighbour recommendations
+class AudioFeatureStrategyTest {
+
+    private static final float[] EQUAL = {1f, 1f, 1f, 1f, 1f};
+
+    private static AudioFeatures features(double danceability, double energy, double valence, double tempo, double acousticness) {
+        AudioFeatures features = new AudioFeatures(null);
+        features.setDanceability(danceability);
+        features.setEnergy(energy);
+        features.setValence(valence);
+        features.setTempo(tempo);
+        features.setAcousticness(acousticness);
+        return features;
+    }
+
+    @Test
+    @DisplayName("Closest tracks come first and seeds are left out")
+    void testNearest() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put(new Track("Seed", "A"), features(0.5, 0.5, 0.5, 120, 0.5));
+        store.put(new Track("Near", "A"), features(0.52, 0.5, 0.5, 121, 0.5));
+        store.put(new Track("Middle", "A"), features(0.7, 0.6, 0.5, 130, 0.4));
+        store.put(new Track("Far", "A"), features(0.0, 1.0, 0.0, 200, 1.0));
+
+        AudioFeatureStrategy strategy = new AudioFeatureStrategy(store, null, AudioFeatureStore.Metric.EUCLIDEAN, EQUAL);
+        List<Track> result = strategy.recommend(List.of(new Track("seed", "a")), 2);
+
+        assertEquals(2, result.size());
+        assertEquals("Near", result.get(0).getName());
+        assertEquals("Middle", result.get(1).getName());
+        assertTrue(result.get(0).getMatchScore() > result.get(1).getMatchScore());
+    }
+
+    @Test
+    @DisplayName("Blocked scan matches a brute-force ranking for both metrics")
+    void testMatchesBruteForce() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        Random random = new Random(7);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            AudioFeatures f = features(random.nextFloat(), random.nextFloat(), random.nextFloat(),
+                    60 + random.nextFloat() * 140, random.nextFloat());
+            store.put(new Track("Song " + i, "Artist"), f);
+            vectors.add(store.vector(i));
+        }
+        float[] query = store.vector(0);
+
+        for (AudioFeatureStore.Metric metric : AudioFeatureStore.Metric.values()) {
+            List<Track> result = store.nearest(query, EQUAL, metric, 10, new int[]{0});
+            int expected = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int i = 1; i < vectors.size(); i++) {
+                double distance = distance(query, vectors.get(i), metric);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    expected = i;
+                }
+            }
+            assertEquals("Song " + expected, result.get(0).getName(), metric.name());
+            assertEquals(10, result.size());
+        }
+    }
+
+    private static double distance(float[] a, float[] b, AudioFeatureStore.Metric metric) {
+        double dot = 0, na = 0, nb = 0, sq = 0;
+        for (int d = 0; d < a.length; d++) {
+            dot += a[d] * b[d];
+            na += a[d] * a[d];
+            nb += b[d] * b[d];
+            sq += (a[d] - b[d]) * (a[d] - b[d]);
+        }
+        return metric == AudioFeatureStore.Metric.EUCLIDEAN ? sq : 1 - dot / Math.sqrt(na * nb);
+    }
+
+    @Test
+    @DisplayName("CSV rows are loaded, quoted fields included, bad rows skipped")
+    void testLoadCsv(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("features.csv");
+        Files.writeString(file, String.join("\n",
+                "name,artist,mbid,danceability,energy,valence,tempo,acousticness",
+                "Fireflies,Owl City,,0.51,0.66,0.47,180.1,0.03",
+                "\"Hello, Goodbye\",The Beatles,,0.6,0.7,0.8,95,0.2",
+                "Broken,Nobody,,not-a-number,0,0,0,0",
+                ""));
+
+        AudioFeatureStore store = new AudioFeatureStore();
+        assertEquals(2, store.loadCsv(file));
+        assertEquals(2, store.getSize());
+        assertEquals(180.1, store.get(new Track("Fireflies", "Owl City")).getTempo(), 0.01);
+        assertNotNull(store.get(new Track("Hello, Goodbye", "The Beatles")));
+    }
+
+    @Test
+    @DisplayName("Unknown seeds return nothing, or the fallback's answer")
+    void testUnknownSeeds() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put(new Track("Known", "A"), features(0.5, 0.5, 0.5, 120, 0.5));
+        List<Track> seeds = List.of(new Track("Unknown", "B"));
+
+        assertTrue(new AudioFeatureStrategy(store, null, AudioFeatureStore.Metric.COSINE, EQUAL).recommend(seeds, 5).isEmpty());
+
+        RecommendationStrategy fallback = new RandomStrategy(List.of(new Track("Fallback", "C")));
+        List<Track> result = new AudioFeatureStrategy(store, fallback, AudioFeatureStore.Metric.COSINE, EQUAL).recommend(seeds, 5);
+        assertEquals("Fallback", result.get(0).getName());
+    }
+}
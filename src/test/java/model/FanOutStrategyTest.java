@@ -0,0 +1,153 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check parallel per-seed lookups, deadlines and score merging
+class FanOutStrategyTest {
+
+    private static Track similar(String name, String artist, double match) {
+        Track track = new Track(name, artist);
+        track.setMatchScore(match);
+        return track;
+    }
+
+    private static List<String> names(List<Track> tracks) {
+        List<String> names = new ArrayList<>();
+        for (Track track : tracks) {
+            names.add(track.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Per-seed strategy answering from a fixed table after a delay, counting concurrent calls
+     */
+    private static class SlowLookup implements RecommendationStrategy {
+        final Map<String, List<Track>> answers;
+        final long delayMillis;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        SlowLookup(Map<String, List<Track>> answers, long delayMillis) {
+            this.answers = answers;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public List<Track> recommend(List<Track> userTracks, int count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            String seed = userTracks.get(0).getName();
+            long delay = seed.startsWith("Hang") ? 60_000 : delayMillis;
+            Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return answers.getOrDefault(seed, List.of());
+            }, later);
+        }
+
+        @Override
+        public String getStrategyName() {
+            return "slow";
+        }
+    }
+
+    @Test
+    @DisplayName("Tracks similar to several seeds are merged and ranked first; seeds are left out")
+    void testMerge() {
+        List<Track> seeds = List.of(new Track("A", "X"), new Track("B", "X"));
+        Track withMbid = similar("shared", "y", 0.4);
+        withMbid.setMbid("m-1");
+        Track renamed = similar("Shared (Remastered)", "Y", 0.1);
+        renamed.setMbid("m-1");
+        List<List<Track>> results = List.of(
+                List.of(similar("Strong", "Y", 0.9), similar("Shared", "Y", 0.6), similar("B", "X", 1.0)),
+                List.of(withMbid, renamed, similar("Weak", "Y", 0.2)));
+
+        List<Track> merged = FanOutStrategy.merge(seeds, results, 3);
+
+        assertEquals(List.of("Shared", "Strong", "Weak"), names(merged));
+        assertEquals((0.6 + 0.4 + 0.1) / 2, merged.get(0).getMatchScore(), 1e-9);
+        assertEquals(0.45, merged.get(1).getMatchScore(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Tracks without an artist or name match by mbid and are dropped without one")
+    void testMissingNames() {
+        List<Track> seeds = List.of(new Track("A", null), new Track("B", "X"));
+        Track named = similar("Song", "Y", 0.5);
+        named.setMbid("m-2");
+        Track unnamed = similar(null, "Y", 0.3);
+        unnamed.setMbid("m-2");
+        List<List<Track>> results = List.of(
+                List.of(named, similar(null, null, 0.9)),
+                List.of(unnamed, similar("Other", null, 0.8)));
+
+        List<Track> merged = FanOutStrategy.merge(seeds, results, 5);
+
+        assertEquals(List.of("Song"), names(merged));
+        assertEquals((0.5 + 0.3) / 2, merged.get(0).getMatchScore(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Seeds are looked up in parallel, bounded, in about one round trip")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testParallelLookups() {
+        List<Track> seeds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            seeds.add(new Track("Seed " + i, "X"));
+        }
+        SlowLookup lookup = new SlowLookup(Map.of("Seed 0", List.of(similar("Hit", "Y", 0.5))), 300);
+        FanOutStrategy strategy = new FanOutStrategy(lookup, 3, 2000);
+
+        long start = System.nanoTime();
+        List<Track> tracks = strategy.recommendAsync(seeds, 10).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of("Hit"), names(tracks));
+        assertEquals(3, lookup.maxInFlight.get());
+        assertTrue(elapsedMillis < 900, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("A seed that misses its deadline is skipped instead of holding up the rest")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testDeadline() {
+        SlowLookup lookup = new SlowLookup(Map.of("Fast", List.of(similar("Hit", "Y", 0.5))), 10);
+        FanOutStrategy strategy = new FanOutStrategy(lookup, 4, 300);
+
+        List<Track> tracks = strategy.recommend(List.of(new Track("Hang", "X"), new Track("Fast", "X")), 5);
+
+        assertEquals(List.of("Hit"), names(tracks));
+        assertEquals(0.25, tracks.get(0).getMatchScore(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("The call fails only when every seed lookup failed")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAllFailed() {
+        SlowLookup lookup = new SlowLookup(Map.of("Fast", List.of(similar("Hit", "Y", 0.5))), 10);
+        FanOutStrategy strategy = new FanOutStrategy(lookup, 4, 200);
+
+        assertThrows(CompletionException.class,
+                () -> strategy.recommendAsync(List.of(new Track("Hang 1", "X"), new Track("Hang 2", "X")), 5).join());
+        assertEquals(List.of("Hit"), names(strategy.recommend(List.of(new Track("Hang", "X"), new Track("Fast", "X")), 5)));
+    }
+}
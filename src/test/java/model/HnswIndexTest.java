@@ -0,0 +1,113 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the HNSW index finds (nearly) the exact neighbours and survives a save/load
+class HnswIndexTest {
+
+    private static final float[] EQUAL = {1f, 1f, 1f, 1f, 1f};
+
+    private static AudioFeatureStore randomStore(int tracks, long seed) {
+        AudioFeatureStore store = new AudioFeatureStore();
+        Random random = new Random(seed);
+        for (int i = 0; i < tracks; i++) {
+            AudioFeatures features = new AudioFeatures(null);
+            features.setDanceability(random.nextDouble());
+            features.setEnergy(random.nextDouble());
+            features.setValence(random.nextDouble());
+            features.setTempo(60 + random.nextDouble() * 140);
+            features.setAcousticness(random.nextDouble());
+            store.put(new Track("Song " + i, "Artist"), features);
+        }
+        return store;
+    }
+
+    private static double recall(AudioFeatureStore store, HnswIndex index, int queries, int k) {
+        Random random = new Random(1);
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = store.vector(random.nextInt(store.getSize()));
+            List<Track> exact = store.nearest(query, EQUAL, AudioFeatureStore.Metric.EUCLIDEAN, k, new int[0]);
+            int[] approximate = index.search(query, k).ids;
+            for (Track track : exact) {
+                int row = store.rowOf(track);
+                for (int id : approximate) {
+                    if (id == row) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) hits / (queries * k);
+    }
+
+    @Test
+    @DisplayName("Recall against the exact scan is high")
+    void testRecall() {
+        AudioFeatureStore store = randomStore(5000, 3);
+        HnswIndex index = new HnswIndex(AudioFeatureStore.DIMENSIONS, 12, 80, 64, EQUAL, 42);
+        assertEquals(5000, store.indexInto(index));
+        assertEquals(0, store.indexInto(index));
+
+        double recall = recall(store, index, 100, 10);
+        assertTrue(recall > 0.95, "recall " + recall);
+
+        int[] nearest = index.search(store.vector(17), 1).ids;
+        assertEquals(17, nearest[0]);
+    }
+
+    @Test
+    @DisplayName("Saved index loads back with the same answers and can keep growing")
+    void testSaveAndLoad(@TempDir Path dir) throws IOException {
+        AudioFeatureStore store = randomStore(2000, 5);
+        HnswIndex index = new HnswIndex(AudioFeatureStore.DIMENSIONS, 8, 60, 50, EQUAL, 42);
+        store.indexInto(index);
+        Path file = dir.resolve("audio.hnsw");
+        index.save(file);
+
+        HnswIndex loaded = HnswIndex.load(file, 50);
+        assertEquals(index.size(), loaded.size());
+        assertTrue(store.isIndexedBy(loaded));
+        for (int row = 0; row < 50; row++) {
+            assertArrayEquals(index.search(store.vector(row), 5).ids, loaded.search(store.vector(row), 5).ids);
+        }
+
+        AudioFeatures extra = new AudioFeatures(null);
+        extra.setTempo(120);
+        store.put(new Track("New", "Artist"), extra);
+        assertEquals(1, store.indexInto(loaded));
+        assertEquals(2000, loaded.search(store.vector(2000), 1).ids[0]);
+
+        assertFalse(randomStore(2000, 6).isIndexedBy(loaded));
+    }
+
+    @Test
+    @DisplayName("Strategy answers from the index and leaves seeds out")
+    void testStrategy() {
+        AudioFeatureStore store = randomStore(1000, 9);
+        HnswIndex index = new HnswIndex(AudioFeatureStore.DIMENSIONS, 8, 60, 50, EQUAL, 42);
+        HnswAudioFeatureStrategy strategy = new HnswAudioFeatureStrategy(store, index);
+
+        List<Track> seeds = List.of(new Track("Song 3", "Artist"));
+        List<Track> result = strategy.recommend(seeds, 5);
+
+        assertEquals(1000, index.size());
+        assertEquals(5, result.size());
+        for (Track track : result) {
+            assertNotEquals("Song 3", track.getName());
+        }
+        List<Track> exact = new AudioFeatureStrategy(store, null, AudioFeatureStore.Metric.EUCLIDEAN,
+                service.Config.AUDIO_FEATURE_WEIGHTS).recommend(seeds, 1);
+        assertEquals(exact.get(0).getName(), result.get(0).getName());
+    }
+}
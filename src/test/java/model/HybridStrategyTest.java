@@ -0,0 +1,93 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the hybrid re-ranking blends match, popularity and audio similarity
+class HybridStrategyTest {
+
+    private static Track candidate(String name, double match, int listeners) {
+        Track track = new Track(name, "Artist");
+        track.setMatchScore(match);
+        track.setListeners(listeners);
+        return track;
+    }
+
+    private static AudioFeatures features(double value) {
+        AudioFeatures features = new AudioFeatures(null);
+        features.setDanceability(value);
+        features.setEnergy(value);
+        features.setValence(value);
+        features.setTempo(value * AudioFeatureStore.TEMPO_SCALE);
+        features.setAcousticness(value);
+        return features;
+    }
+
+    @Test
+    @DisplayName("Match score alone keeps the source order")
+    void testMatchOnly() {
+        List<Track> pool = List.of(candidate("A", 0.2, 10), candidate("B", 0.9, 1), candidate("C", 0.5, 1000));
+        HybridStrategy hybrid = new HybridStrategy(null, null, 10, 1, 0, 0);
+
+        List<Track> result = hybrid.rerank(List.of(), pool, 2);
+        assertEquals(List.of("B", "C"), result.stream().map(Track::getName).toList());
+        assertEquals(0.9, result.get(0).getMatchScore(), 1e-9);
+        assertEquals(0.2, pool.get(0).getMatchScore()); // pool tracks are not modified
+    }
+
+    @Test
+    @DisplayName("Popularity and audio similarity can reorder candidates")
+    void testBlend() {
+        List<Track> pool = List.of(candidate("Popular", 0.5, 1_000_000), candidate("Niche", 0.5, 100));
+        assertEquals("Popular", new HybridStrategy(null, null, 10, 1, 1, 0).rerank(List.of(), pool, 1).get(0).getName());
+
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put(new Track("Seed", "Artist"), features(0.1));
+        store.put(new Track("Popular", "Artist"), features(0.9));
+        store.put(new Track("Niche", "Artist"), features(0.1));
+        HybridStrategy audio = new HybridStrategy(null, store, 10, 1, 0.2, 1);
+        assertEquals("Niche", audio.rerank(List.of(new Track("Seed", "Artist")), pool, 1).get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Large pools keep exactly the best candidates")
+    void testLargePool() {
+        List<Track> pool = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            pool.add(candidate("Song " + i, (i * 7919 % 10_000) / 10_000.0, 0));
+        }
+        List<Track> result = new HybridStrategy(null, null, 10, 1, 0, 0).rerank(List.of(), pool, 5);
+
+        assertEquals(5, result.size());
+        assertEquals(0.9999, result.get(0).getMatchScore(), 1e-9);
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1).getMatchScore() >= result.get(i).getMatchScore());
+        }
+    }
+
+    @Test
+    @DisplayName("Candidates are requested from the wrapped strategy in a larger pool")
+    void testWrapsSource() {
+        List<Integer> requested = new ArrayList<>();
+        RecommendationStrategy source = new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                requested.add(count);
+                return List.of(candidate("Only", 0.7, 5));
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Source";
+            }
+        };
+        List<Track> result = new HybridStrategy(source, null, 50, 1, 1, 1).recommend(List.of(new Track("S", "A")), 5);
+        assertEquals(List.of(50), requested);
+        assertEquals("Only", result.get(0).getName());
+    }
+}
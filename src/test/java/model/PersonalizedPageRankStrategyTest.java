@@ -0,0 +1,94 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check multi-seed random walk with restart over the similarity graph
+class PersonalizedPageRankStrategyTest {
+
+    private SimilarityGraph graph;
+    private PersonalizedPageRankStrategy strategy;
+
+    // Stands in for the Last.fm-backed strategy so a fallback is visible
+    private static final RecommendationStrategy FALLBACK = new RecommendationStrategy() {
+        @Override
+        public List<Track> recommend(List<Track> userTracks, int count) {
+            return List.of(new Track("Fallback", "Nobody"));
+        }
+
+        @Override
+        public String getStrategyName() {
+            return "fallback";
+        }
+    };
+
+    private static Track similar(String name, double match) {
+        Track track = new Track(name, "Artist");
+        track.setMatchScore(match);
+        return track;
+    }
+
+    private static List<String> names(List<Track> tracks) {
+        List<String> names = new ArrayList<>();
+        for (Track track : tracks) {
+            names.add(track.getName());
+        }
+        return names;
+    }
+
+    @BeforeEach
+    void setUp() {
+        graph = new SimilarityGraph(1000);
+        graph.addSimilar("A", "Artist", 10, List.of(similar("Shared", 0.5), similar("OnlyA", 0.6)));
+        graph.addSimilar("B", "Artist", 10, List.of(similar("Shared", 0.5), similar("OnlyB", 0.1)));
+        graph.addSimilar("Shared", "Artist", 10, List.of(similar("TwoHops", 1.0)));
+        strategy = new PersonalizedPageRankStrategy(graph, FALLBACK, 0.15f, 50, 1e-6f, 3, 1000);
+    }
+
+    @Test
+    @DisplayName("A track close to several seeds beats a stronger neighbour of just one")
+    void testMultiSeedRanking() {
+        List<Track> tracks = strategy.recommend(List.of(new Track("A", "Artist"), new Track("B", "Artist")), 10);
+
+        assertEquals("Shared", tracks.get(0).getName());
+        assertEquals(1.0, tracks.get(0).getMatchScore(), 0.0001);
+        assertTrue(names(tracks).contains("TwoHops"));
+        assertFalse(names(tracks).contains("A"));
+        assertFalse(names(tracks).contains("B"));
+        assertTrue(names(tracks).indexOf("OnlyA") < names(tracks).indexOf("OnlyB"));
+    }
+
+    @Test
+    @DisplayName("Walk probabilities stay a distribution")
+    void testScoresSumToOne() {
+        SimilarityGraph.Subgraph subgraph = graph.subgraph(List.of(new Track("A", "Artist")), 3, 1000);
+        float[] scores = PersonalizedPageRankStrategy.solve(subgraph, 0.15f, 100, 1e-7f);
+
+        float sum = 0;
+        for (float score : scores) {
+            sum += score;
+        }
+        assertEquals(1.0, sum, 0.001);
+        assertEquals(4, subgraph.size());
+    }
+
+    @Test
+    @DisplayName("Hop and node bounds limit the subgraph")
+    void testBounds() {
+        assertEquals(3, graph.subgraph(List.of(new Track("A", "Artist")), 1, 1000).size());
+        assertEquals(2, graph.subgraph(List.of(new Track("A", "Artist")), 3, 2).size());
+    }
+
+    @Test
+    @DisplayName("Seeds the graph has never seen go to the fallback strategy")
+    void testFallback() {
+        List<Track> tracks = strategy.recommendAsync(List.of(new Track("Unknown", "Artist")), 5).join();
+        assertEquals(List.of("Fallback"), names(tracks));
+    }
+}
@@ -0,0 +1,67 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check random sampling returns distinct copies without touching the seen tracks
+class RandomStrategyTest {
+
+    private static List<Track> seen(int n) {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Track track = new Track("Song " + i, "Artist");
+            track.setMatchScore(0.5);
+            tracks.add(track);
+        }
+        return tracks;
+    }
+
+    @Test
+    @DisplayName("Sample is distinct, sized to count and leaves shared scores alone")
+    void testSample() {
+        List<Track> tracks = seen(1000);
+        List<Track> result = new RandomStrategy(tracks).recommend(List.of(), 20);
+
+        assertEquals(20, result.size());
+        Set<String> names = new HashSet<>();
+        for (Track track : result) {
+            assertTrue(names.add(track.getName()));
+            assertEquals(0.0, track.getMatchScore());
+        }
+        for (Track track : tracks) {
+            assertEquals(0.5, track.getMatchScore());
+        }
+    }
+
+    @Test
+    @DisplayName("Asking for more than was seen returns every track once")
+    void testSmallPool() {
+        List<Track> result = new RandomStrategy(seen(5)).recommend(List.of(), 10);
+        assertEquals(5, result.size());
+        assertEquals(5, new HashSet<>(result.stream().map(Track::getName).toList()).size());
+        assertTrue(new RandomStrategy(new ArrayList<>()).recommend(List.of(), 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Every track is picked with roughly equal probability")
+    void testUniform() {
+        RandomStrategy strategy = new RandomStrategy(seen(10));
+        int[] hits = new int[10];
+        for (int i = 0; i < 20_000; i++) {
+            for (Track track : strategy.recommend(List.of(), 3)) {
+                hits[Integer.parseInt(track.getName().substring(5))]++;
+            }
+        }
+        // Expected 6000 each
+        for (int count : hits) {
+            assertTrue(count > 5400 && count < 6600, "skewed sample: " + count);
+        }
+    }
+}
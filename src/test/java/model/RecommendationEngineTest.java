@@ -0,0 +1,365 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the fallback chain: tier order, budgets, partial results and tier labels
+class RecommendationEngineTest {
+
+    private static RecommendationStrategy fixed(String... names) {
+        return new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                List<Track> tracks = new ArrayList<>();
+                for (String name : names) {
+                    tracks.add(new Track(name, "Artist"));
+                }
+                return tracks;
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Fixed";
+            }
+        };
+    }
+
+    // Never answers, like an upstream that hangs
+    private static RecommendationStrategy hanging() {
+        return new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Hanging";
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("The first tier with enough tracks answers and later tiers are not asked")
+    void testFirstTierAnswers() {
+        RecommendationEngine.Tier random = new RecommendationEngine.Tier("random", fixed("R1", "R2"), 0);
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("cache", fixed(), 0),
+                new RecommendationEngine.Tier("live", fixed("A", "B", "C"), 0),
+                random));
+
+        RecommendationEngine.Result result = engine.recommend(List.of(new Track("Seed", "Artist")), 2).join();
+
+        assertEquals(List.of("A", "B"), result.getTracks().stream().map(Track::getName).toList());
+        assertEquals("live", result.getTier());
+        assertFalse(result.isPartial());
+        assertEquals(0, random.getAnswered());
+    }
+
+    @Test
+    @DisplayName("Later tiers fill the gap without duplicates or seeds")
+    void testFillsGap() {
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("local", fixed("A", "Seed"), 0),
+                new RecommendationEngine.Tier("random", fixed("A", "B", "C"), 0)));
+
+        RecommendationEngine.Result result = engine.recommend(List.of(new Track("Seed", "Artist")), 3).join();
+
+        assertEquals(List.of("A", "B", "C"), result.getTracks().stream().map(Track::getName).toList());
+        assertEquals("local+random", result.getTier());
+    }
+
+    @Test
+    @DisplayName("A tier over its budget is skipped and failures fall through")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBudgetAndFailure() {
+        RecommendationEngine.Tier live = new RecommendationEngine.Tier("live", hanging(), 100);
+        RecommendationEngine.Tier broken = new RecommendationEngine.Tier("broken", new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Broken";
+            }
+        }, 0);
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                live, broken, new RecommendationEngine.Tier("random", fixed("R1"), 0)));
+
+        long start = System.nanoTime();
+        RecommendationEngine.Result result = engine.recommend(List.of(), 3).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals("random", result.getTier());
+        assertTrue(result.isPartial());
+        assertEquals(1, result.getTracks().size());
+        assertEquals(1, live.getTimeouts());
+        assertEquals(1, broken.getFailures());
+    }
+
+    // Computes on the calling thread for longer than any budget
+    private static RecommendationStrategy slow(String name) {
+        return new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of(new Track(name, "Artist"));
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Slow";
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Budgets also cut off strategies that compute on the calling thread")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSyncStrategyBudget() {
+        RecommendationEngine.Tier pageRank = new RecommendationEngine.Tier("pagerank", slow("P"), 100);
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                pageRank, new RecommendationEngine.Tier("random", fixed("R1"), 0)));
+
+        long start = System.nanoTime();
+        RecommendationEngine.Result result = engine.recommend(List.of(), 1).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals("random", result.getTier());
+        assertEquals(1, pageRank.getTimeouts());
+    }
+
+    // fixed(), but declared non-blocking so it never needs a tier thread
+    private static RecommendationStrategy inline(String... names) {
+        RecommendationStrategy tracks = fixed(names);
+        return new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                return tracks.recommend(userTracks, count);
+            }
+
+            @Override
+            public boolean isNonBlocking() {
+                return true;
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Inline";
+            }
+        };
+    }
+
+    // Computes on the calling thread until interrupted
+    private static RecommendationStrategy blocking(CountDownLatch started, CountDownLatch interrupted) {
+        return new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return new ArrayList<>();
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Blocking";
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("A strategy still computing when its budget runs out is interrupted")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testOverBudgetInterrupted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("live", blocking(new CountDownLatch(1), interrupted), 100),
+                new RecommendationEngine.Tier("random", fixed("R1"), 0)));
+
+        assertEquals("random", engine.recommend(List.of(), 1).join().getTier());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("With every tier thread busy a blocking tier is skipped, not queued")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSaturatedExecutor() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        RecommendationEngine.Tier live = new RecommendationEngine.Tier("live", blocking(started, interrupted), 1000);
+        ExecutorService executor = RecommendationEngine.newTierExecutor(1);
+        try {
+            RecommendationEngine engine = new RecommendationEngine(List.of(
+                    live, new RecommendationEngine.Tier("random", inline("R1"), 0)), executor);
+
+            CompletableFuture<RecommendationEngine.Result> first = engine.recommend(List.of(), 1);
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+            RecommendationEngine.Result second = engine.recommend(List.of(), 1).join();
+
+            assertEquals("random", second.getTier());
+            assertEquals(1, live.getRejected());
+            assertEquals("random", first.join().getTier());
+            assertEquals(1, live.getTimeouts());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A fan-out tier over its budget keeps the seeds that did answer")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testPartialTier() {
+        RecommendationStrategy perSeed = new RecommendationStrategy() {
+            @Override
+            public List<Track> recommend(List<Track> userTracks, int count) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+                // The first seed answers at once, the second hangs
+                return userTracks.get(0).getName().equals("Fast")
+                        ? CompletableFuture.completedFuture(List.of(new Track("A", "Artist")))
+                        : new CompletableFuture<>();
+            }
+
+            @Override
+            public boolean isNonBlocking() {
+                return true;
+            }
+
+            @Override
+            public String getStrategyName() {
+                return "Per seed";
+            }
+        };
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("live", new FanOutStrategy(perSeed, 4, 5000), 200)));
+
+        RecommendationEngine.Result result = engine.recommend(
+                List.of(new Track("Fast", "Artist"), new Track("Slow", "Artist")), 3).join();
+
+        assertEquals(List.of("A"), result.getTracks().stream().map(Track::getName).toList());
+        assertEquals("live", result.getTier());
+        assertTrue(result.isPartial());
+    }
+
+    @Test
+    @DisplayName("The chain stops at its deadline even if tiers have budget left")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testDeadline() {
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("local", fixed("A"), 0),
+                new RecommendationEngine.Tier("live", hanging(), 0),
+                new RecommendationEngine.Tier("random", fixed("R1"), 0)));
+        engine.setDeadlineMillis(200);
+
+        long start = System.nanoTime();
+        RecommendationEngine.Result result = engine.recommend(List.of(), 3).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals(List.of("A"), result.getTracks().stream().map(Track::getName).toList());
+        assertTrue(result.isPartial());
+    }
+
+    @Test
+    @DisplayName("A last-resort tier only answers when nothing else did")
+    void testLastResort() {
+        RecommendationEngine.Tier random = new RecommendationEngine.Tier("random", fixed("R1", "R2"), 0, true);
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("live", fixed("A"), 0), random));
+        RecommendationEngine.Result result = engine.recommend(List.of(), 3).join();
+        assertEquals("live", result.getTier());
+        assertEquals(1, result.getTracks().size());
+
+        engine.setTiers(List.of(new RecommendationEngine.Tier("live", fixed(), 0), random));
+        result = engine.recommend(List.of(), 3).join();
+        assertEquals("random", result.getTier());
+        assertEquals(1, random.getAnswered());
+    }
+
+    @Test
+    @DisplayName("Each tier's tracks are handed on as soon as it answers, in final order")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testTracksAsTiersAnswer() throws InterruptedException {
+        CompletableFuture<List<Track>> live = new CompletableFuture<>();
+        RecommendationEngine engine = new RecommendationEngine(List.of(
+                new RecommendationEngine.Tier("local", fixed("A"), 0),
+                new RecommendationEngine.Tier("live", new RecommendationStrategy() {
+                    @Override
+                    public List<Track> recommend(List<Track> userTracks, int count) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public CompletableFuture<List<Track>> recommendAsync(List<Track> userTracks, int count) {
+                        return live;
+                    }
+
+                    @Override
+                    public boolean isNonBlocking() {
+                        return true;
+                    }
+
+                    @Override
+                    public String getStrategyName() {
+                        return "Live";
+                    }
+                }, 0)));
+
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CompletableFuture<RecommendationEngine.Result> result = engine.recommend(List.of(), 3, tracks -> {
+            batches.add(tracks.stream().map(Track::getName).toList());
+            firstBatch.countDown();
+        });
+
+        // The local tier's track is out while the live tier is still working
+        assertTrue(firstBatch.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("A")), batches);
+        live.complete(List.of(new Track("A", "Artist"), new Track("B", "Artist"),
+                new Track("C", "Artist"), new Track("D", "Artist")));
+
+        assertEquals(List.of("A", "B", "C"), result.join().getTracks().stream().map(Track::getName).toList());
+        assertEquals(List.of(List.of("A"), List.of("B", "C")), batches);
+    }
+
+    @Test
+    @DisplayName("Nothing found anywhere is reported as tier none")
+    void testNothing() {
+        RecommendationEngine engine = new RecommendationEngine(fixed());
+        RecommendationEngine.Result result = engine.recommend(List.of(), 5).join();
+        assertTrue(result.getTracks().isEmpty());
+        assertEquals("none", result.getTier());
+        assertTrue(result.isPartial());
+    }
+}
@@ -0,0 +1,145 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check how the similarity graph records and answers getSimilarTracks results
+class SimilarityGraphTest {
+
+    private SimilarityGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new SimilarityGraph(100);
+    }
+
+    private static Track similar(String name, double match) {
+        Track track = new Track(name, "Owl City");
+        track.setMatchScore(match);
+        track.setUrl("https://www.last.fm/music/Owl+City/_/" + name);
+        return track;
+    }
+
+    private static List<String> names(List<Track> tracks) {
+        List<String> names = new ArrayList<>();
+        for (Track track : tracks) {
+            names.add(track.getName());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("Neighbours come back strongest first with their edge weight")
+    void testTopNeighbours() {
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(
+                similar("Hello Seattle", 0.5), similar("Vanilla Twilight", 0.9), similar("Umbrella Beach", 0.7)));
+
+        List<Track> tracks = graph.recommend("fireflies", " owl city", 2);
+
+        assertEquals(List.of("Vanilla Twilight", "Umbrella Beach"), names(tracks));
+        assertEquals(0.9, tracks.get(0).getMatchScore(), 0.001);
+        assertEquals("https://www.last.fm/music/Owl+City/_/Vanilla Twilight", tracks.get(0).getUrl());
+        assertEquals(3, graph.getEdgeCount());
+    }
+
+    @Test
+    @DisplayName("Seeds that were never expanded, or expanded with a smaller limit, are not answered")
+    void testUnknownSeed() {
+        graph.addSimilar("Fireflies", "Owl City", 5, List.of(similar("Hello Seattle", 0.5)));
+
+        assertNull(graph.recommend("Hello Seattle", "Owl City", 5));
+        assertNull(graph.recommend("Fireflies", "Owl City", 10));
+        assertEquals(1, graph.recommend("Fireflies", "Owl City", 5).size());
+        assertTrue(graph.isKnown("Fireflies", "Owl City"));
+        assertFalse(graph.isKnown("Hello Seattle", "Owl City"));
+    }
+
+    @Test
+    @DisplayName("A repeated response updates edge weights instead of duplicating edges")
+    void testEdgeUpdate() {
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Hello Seattle", 0.5)));
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Hello Seattle", 0.8)));
+
+        assertEquals(1, graph.getEdgeCount());
+        assertEquals(0.8, graph.recommend("Fireflies", "Owl City", 10).get(0).getMatchScore(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Returned tracks are copies")
+    void testCopies() {
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Hello Seattle", 0.5)));
+
+        graph.recommend("Fireflies", "Owl City", 1).get(0).setMatchScore(0.0);
+        assertEquals(0.5, graph.recommend("Fireflies", "Owl City", 1).get(0).getMatchScore(), 0.001);
+    }
+
+    @Test
+    @DisplayName("A response that does not fit is kept but the seed is not marked as expanded")
+    void testIncompleteExpansion() {
+        List<Track> many = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            many.add(similar("Song " + i, i / 200.0));
+        }
+        graph.addSimilar("Fireflies", "Owl City", 200, many);
+
+        assertEquals(100, graph.getNodeCount());
+        assertNull(graph.recommend("Fireflies", "Owl City", 10));
+        assertFalse(graph.isKnown("Fireflies", "Owl City"));
+    }
+
+    @Test
+    @DisplayName("Expansions expire with the response they came from")
+    void testExpiry() {
+        long[] now = {0};
+        graph = new SimilarityGraph(100, 1000, () -> now[0]);
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Hello Seattle", 0.5)));
+        assertNotNull(graph.recommend("Fireflies", "Owl City", 10));
+
+        now[0] = 1000;
+        assertNull(graph.recommend("Fireflies", "Owl City", 10));
+        assertFalse(graph.isKnown("Fireflies", "Owl City"));
+
+        // A fresh response replaces the old edges instead of adding to them
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Vanilla Twilight", 0.9)));
+        assertEquals(List.of("Vanilla Twilight"), names(graph.recommend("Fireflies", "Owl City", 10)));
+        assertEquals(1, graph.getEdgeCount());
+    }
+
+    @Test
+    @DisplayName("A full graph evicts the oldest expansions and keeps learning new seeds")
+    void testCompaction() {
+        long[] now = {0};
+        graph = new SimilarityGraph(20, 60_000, () -> now[0]);
+        for (int seed = 0; seed < 10; seed++) {
+            now[0] = seed;
+            List<Track> similar = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                similar.add(new Track("Song " + seed + "-" + i, "Artist " + seed));
+            }
+            graph.addSimilar("Seed " + seed, "Artist " + seed, 4, similar);
+        }
+
+        assertTrue(graph.getNodeCount() <= 20);
+        assertTrue(graph.getCompactions() > 0);
+        assertNull(graph.recommend("Seed 0", "Artist 0", 4));
+        List<Track> latest = graph.recommend("Seed 9", "Artist 9", 4);
+        assertEquals(4, latest.size());
+        assertTrue(names(latest).contains("Song 9-0"));
+        assertEquals(graph.getNodeCount() + graph.getEvictedNodes(), 50);
+    }
+
+    @Test
+    @DisplayName("A zero or negative count is answered with no tracks")
+    void testNonPositiveCount() {
+        graph.addSimilar("Fireflies", "Owl City", 10, List.of(similar("Hello Seattle", 0.5)));
+
+        assertTrue(graph.recommend("Fireflies", "Owl City", 0).isEmpty());
+        assertTrue(graph.recommend("Fireflies", "Owl City", -1).isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check compact tracks round-trip and the interner shares them
+class TrackInternerTest {
+
+    private static Track fireflies() {
+        Track track = new Track("Fireflies", "Owl City");
+        track.setMbid("7b4fd8a9-4f1c-4f0b-8ad6-0f41e4c5e1a2");
+        track.setUrl("https://www.last.fm/music/Owl+City/_/Fireflies");
+        track.setImageUrl("https://lastfm.freetls.fastly.net/i/u/64s/2a96cbd8b46e442fc41c2b86b821562f.png");
+        track.setListeners(5000000);
+        track.setMatchScore(0.9);
+        return track;
+    }
+
+    @Test
+    @DisplayName("Compact form gives back the same metadata")
+    void testRoundTrip() {
+        TrackInterner interner = new TrackInterner(10);
+        Track original = fireflies();
+        Track restored = interner.intern(original).toTrack(0.5);
+
+        assertEquals(original.getName(), restored.getName());
+        assertEquals(original.getArtist(), restored.getArtist());
+        assertEquals(original.getMbid(), restored.getMbid());
+        assertEquals(original.getUrl(), restored.getUrl());
+        assertEquals(original.getImageUrl(), restored.getImageUrl());
+        assertEquals(original.getListeners(), restored.getListeners());
+        assertEquals(0.5, restored.getMatchScore());
+    }
+
+    @Test
+    @DisplayName("URLs that do not follow the usual shape are kept as they are")
+    void testIrregularUrls() {
+        TrackInterner interner = new TrackInterner(10);
+        Track odd = new Track("Café & Co", "Sigur Rós");
+        odd.setMbid("not-a-uuid");
+        odd.setUrl("https://www.last.fm/music/Sigur+R%C3%B3s/_/Caf%C3%A9+%26+Co");
+        odd.setImageUrl("https://example.com/covers/cover.jpg");
+        Track restored = interner.intern(odd).toTrack(0);
+
+        assertEquals(odd.getMbid(), restored.getMbid());
+        assertEquals(odd.getUrl(), restored.getUrl());
+        assertEquals(odd.getImageUrl(), restored.getImageUrl());
+
+        Track bare = interner.intern(new Track("Alone", "Nobody")).toTrack(0);
+        assertNull(bare.getUrl());
+        assertNull(bare.getImageUrl());
+        assertNull(bare.getMbid());
+    }
+
+    @Test
+    @DisplayName("The same track is interned once and strings are shared")
+    void testShared() {
+        TrackInterner interner = new TrackInterner(10);
+        CompactTrack first = interner.intern(fireflies());
+        Track again = fireflies();
+        again.setMatchScore(0.1);
+        assertSame(first, interner.intern(again));
+
+        Track other = new Track("Vanilla Twilight", new String("Owl City"));
+        assertSame(first.getArtist(), interner.intern(other).getArtist());
+        assertEquals(1, interner.getHits());
+
+        Track updated = fireflies();
+        updated.setListeners(6000000);
+        assertEquals(6000000, interner.intern(updated).getListeners());
+        assertEquals(2, interner.getSize());
+    }
+
+    @Test
+    @DisplayName("Track table is bounded")
+    void testBounded() {
+        TrackInterner interner = new TrackInterner(3);
+        for (int i = 0; i < 10; i++) {
+            interner.intern(new Track("Song " + i, "Artist"));
+        }
+        assertEquals(3, interner.getSize());
+        assertTrue(interner.getBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("TrackId prefers the mbid and otherwise ignores case and spacing")
+    void testTrackId() {
+        assertEquals(TrackId.of(new Track(" fireflies", "OWL CITY ")), TrackId.of(new Track("Fireflies", "Owl City")));
+        assertEquals(TrackId.of(fireflies()), TrackId.of("Fireflies (Live)", "Owl City", fireflies().getMbid()));
+        assertNotEquals(TrackId.of(fireflies()), TrackId.of(new Track("Fireflies", "Owl City")));
+    }
+}
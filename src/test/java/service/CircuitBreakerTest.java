@@ -0,0 +1,81 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the breaker's state changes against a fake clock
+class CircuitBreakerTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    // Window of 10, decides after 4 calls, opens at 50% failed or 50% slow (>= 100 ms), 2 probes
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 0.5, 100, 1000, 2, now::get);
+
+    private void call(boolean fail, long millis) {
+        assertTrue(breaker.tryAcquire());
+        if (fail) {
+            breaker.onFailure(millis * MILLIS);
+        } else {
+            breaker.onSuccess(millis * MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("Opens once enough of the window has failed and refuses calls while open")
+    void testOpensOnFailures() {
+        call(false, 5);
+        call(false, 5);
+        call(false, 5);
+        call(true, 5);
+        call(true, 5);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(true, 5);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejected());
+        assertEquals(1, breaker.getOpened());
+    }
+
+    @Test
+    @DisplayName("Slow calls open the breaker even when they succeed")
+    void testOpensOnLatency() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 150);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(4, breaker.getSlowCalls());
+    }
+
+    @Test
+    @DisplayName("Half-open probes close the breaker, a failed probe opens it again")
+    void testHalfOpenProbes() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 5);
+        }
+        now.addAndGet(999 * MILLIS);
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(MILLIS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        call(false, 5);
+        call(true, 5);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(1000 * MILLIS);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.release();
+        breaker.onSuccess(MILLIS);
+        call(false, 5);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
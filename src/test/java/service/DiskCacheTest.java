@@ -0,0 +1,173 @@
+package service;
+
+import model.Track;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check persistence across restarts, expiry, torn writes, compaction and the byte limit
+class DiskCacheTest {
+    @TempDir
+    Path directory;
+
+    private long now;
+    private DiskCache disk;
+
+    @BeforeEach
+    void setUp() {
+        now = 1000;
+        disk = new DiskCache(directory, 4096, () -> now);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        disk.close();
+    }
+
+    private DiskCache reopen() throws IOException {
+        disk.close();
+        disk = new DiskCache(directory, 4096, () -> now);
+        return disk;
+    }
+
+    private static List<Track> tracks(String name) {
+        Track track = new Track(name, "Owl City");
+        track.setUrl("https://www.last.fm/music/Owl+City/_/" + name);
+        track.setListeners(1234);
+        track.setMatchScore(0.75);
+        return List.of(track);
+    }
+
+    @Test
+    @DisplayName("Entries survive a restart and the newest record for a key wins")
+    void testWarmRestart() throws IOException {
+        disk.put("track.search|fireflies|10", tracks("Old"), now + 500);
+        disk.put("track.search|fireflies|10", tracks("Fireflies"), now + 500);
+        disk.put("track.getsimilar|owl city|fireflies|10", tracks("Vanilla Twilight"), now + 500);
+
+        DiskCache.Stored stored = reopen().get("track.search|fireflies|10");
+
+        assertNotNull(stored);
+        Track track = stored.tracks.get(0);
+        assertEquals("Fireflies", track.getName());
+        assertEquals("https://www.last.fm/music/Owl+City/_/Fireflies", track.getUrl());
+        assertEquals(1234, track.getListeners());
+        assertEquals(0.75, track.getMatchScore(), 0.0);
+        assertNull(track.getMbid());
+        assertEquals(now + 500, stored.expiresAt);
+        assertEquals(2, disk.getSize());
+    }
+
+    @Test
+    @DisplayName("Expired entries are misses and are not indexed on reload")
+    void testExpiry() throws IOException {
+        disk.put("a", tracks("A"), now + 100);
+        now += 101;
+
+        assertNull(disk.get("a"));
+        assertNull(reopen().get("a"));
+        assertEquals(0, disk.getSize());
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is dropped, earlier ones are kept")
+    void testTornTail() throws IOException {
+        disk.put("a", tracks("A"), now + 500);
+        disk.put("b", tracks("B"), now + 500);
+        disk.close();
+
+        Path segment = directory.resolve("segment-0.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        reopen();
+        assertNotNull(disk.get("a"));
+        assertNull(disk.get("b"));
+
+        disk.put("c", tracks("C"), now + 500);
+        assertNotNull(reopen().get("c"));
+    }
+
+    @Test
+    @DisplayName("Compaction drops overwritten and expired records and keeps live ones")
+    void testCompaction() throws IOException {
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 5; key++) {
+                disk.put("key" + key, tracks("Song " + round), now + (key == 0 ? 50 : 500));
+            }
+        }
+        assertTrue(disk.getSegmentCount() > 2);
+        long before = disk.getDiskBytes();
+
+        now += 100; // key0 has expired
+        disk.compact();
+
+        assertEquals(1, disk.getCompactions());
+        assertEquals(2, disk.getSegmentCount());
+        assertTrue(disk.getDiskBytes() < before / 2);
+        assertNull(disk.get("key0"));
+        for (int key = 1; key < 5; key++) {
+            assertEquals("Song 19", disk.get("key" + key).tracks.get(0).getName());
+        }
+
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        reopen();
+        assertEquals("Song 19", disk.get("key3").tracks.get(0).getName());
+        assertEquals(4, disk.getSize());
+    }
+
+    @Test
+    @DisplayName("Compaction drops the oldest records to get back under the byte limit")
+    void testByteLimit() throws IOException {
+        disk.close();
+        disk = new DiskCache(directory, 1024, 4096, () -> now);
+        for (int key = 0; key < 200; key++) {
+            disk.put("key" + key, tracks("Song " + key), now + 500);
+        }
+        assertTrue(disk.getDiskBytes() > 4096);
+
+        disk.compact();
+
+        assertTrue(disk.getDiskBytes() <= 4096);
+        assertTrue(disk.getSize() < 200);
+        assertNull(disk.get("key0"));
+        assertEquals("Song 199", disk.get("key199").tracks.get(0).getName());
+        assertEquals("Song 199", reopen().get("key199").tracks.get(0).getName());
+        assertNull(disk.get("key0"));
+    }
+
+    @Test
+    @DisplayName("Response cache misses fall through to disk and are promoted to memory")
+    void testResponseCacheTier() {
+        ResponseCache cache = new ResponseCache(1024 * 1024, () -> now);
+        cache.setTtl("track.search", 500);
+        cache.setDiskTier(disk);
+        String key = ResponseCache.key("track.search", "fireflies", 10);
+        cache.put(key, tracks("Fireflies"));
+
+        // A fresh memory tier, as after a restart
+        ResponseCache restarted = new ResponseCache(1024 * 1024, () -> now);
+        restarted.setTtl("track.search", 500);
+        restarted.setDiskTier(disk);
+
+        assertEquals("Fireflies", restarted.get(key).get(0).getName());
+        assertEquals(1, disk.getHits());
+        assertEquals("Fireflies", restarted.get(key).get(0).getName());
+        assertEquals(1, disk.getHits());
+        assertEquals(1, restarted.getHits());
+    }
+}
@@ -0,0 +1,365 @@
+package service;
+
+import com.sun.net.httpserver.HttpServer;
+import model.FanOutStrategy;
+import model.GraphSimilarityStrategy;
+import model.HybridStrategy;
+import model.Track;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests run the client against a local stub of the Last.fm endpoint
+class LastFmAPIClientTest {
+    private static final String SEARCH_RESPONSE = "{\"results\":{\"trackmatches\":{\"track\":["
+            + "{\"name\":\"Fireflies\",\"artist\":\"Owl City\",\"url\":\"https://www.last.fm/music/Owl+City/_/Fireflies\","
+            + "\"listeners\":\"1234\",\"mbid\":\"\",\"image\":[{\"#text\":\"\",\"size\":\"small\"},"
+            + "{\"#text\":\"https://example.com/m.png\",\"size\":\"medium\"}]}]}}}";
+    private static final String SIMILAR_RESPONSE = "{\"similartracks\":{\"track\":["
+            + "{\"name\":\"Vanilla Twilight\",\"artist\":{\"name\":\"Owl City\"},\"match\":\"0.87\",\"mbid\":\"abc\"},"
+            + "{\"name\":\"Hello Seattle\",\"artist\":{\"name\":\"Owl City\"},\"match\":0.5}]}}";
+    private static final String INFO_RESPONSE = "{\"track\":{\"name\":\"Fireflies\",\"artist\":{\"name\":\"Owl City\"},"
+            + "\"listeners\":\"999\",\"url\":\"https://www.last.fm/music/Owl+City/_/Fireflies\"}}";
+
+    private HttpServer stub;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String errorResponse;
+    private final CountDownLatch firstBytesRead = new CountDownLatch(1);
+    private LastFmAPIClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/2.0/", exchange -> {
+            requests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            String body;
+            if (errorResponse != null) {
+                body = errorResponse;
+            } else if (query.contains("method=track.search")) {
+                body = SEARCH_RESPONSE;
+            } else if (query.contains("method=track.getSimilar")) {
+                body = SIMILAR_RESPONSE;
+            } else {
+                body = INFO_RESPONSE;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        // Sends half a body, then waits until the client has started reading it
+        stub.createContext("/stream/", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write("{\"first\":1,".getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                awaitQuietly(firstBytesRead);
+                os.write("\"second\":2}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        stub.start();
+
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+        client = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        stub.stop(0);
+    }
+
+    @Test
+    @DisplayName("Search results are parsed into tracks")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSearchTracks() throws IOException {
+        List<Track> tracks = client.searchTracks("fireflies", 10);
+
+        assertEquals(1, tracks.size());
+        Track track = tracks.get(0);
+        assertEquals("Fireflies", track.getName());
+        assertEquals("Owl City", track.getArtist());
+        assertEquals(1234, track.getListeners());
+        assertNull(track.getMbid());
+        assertEquals("https://example.com/m.png", track.getImageUrl());
+    }
+
+    @Test
+    @DisplayName("Similar tracks are parsed with their match scores")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSimilarTracks() throws Exception {
+        List<Track> tracks = client.getSimilarTracks("Fireflies", "Owl City", 10);
+
+        assertEquals(2, tracks.size());
+        assertEquals("Vanilla Twilight", tracks.get(0).getName());
+        assertEquals(0.87, tracks.get(0).getMatchScore(), 0.001);
+        assertEquals("abc", tracks.get(0).getMbid());
+        assertEquals(0.5, tracks.get(1).getMatchScore(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Repeated lookups are served from the cache")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testRepeatedLookupUsesCache() throws IOException {
+        Track first = client.getTrackInfo("Fireflies", "Owl City");
+        Track second = client.getTrackInfo("fireflies", "owl city");
+
+        assertEquals(999, first.getListeners());
+        assertEquals(999, second.getListeners());
+        assertEquals(1, requests.get());
+        assertEquals(1, client.getCache().getHits());
+    }
+
+    @Test
+    @DisplayName("Connections are returned to the pool after each request")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testConnectionsReleased() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            client.searchTracks("query " + i, 10);
+        }
+        assertEquals(0, client.getTransport().getPoolStats().getLeased());
+        assertEquals(5, requests.get());
+    }
+
+    @Test
+    @DisplayName("Async HTTP/2-capable transport falls back to HTTP/1.1 on a plain endpoint")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAsyncTransport() throws IOException {
+        TransportSettings settings = new TransportSettings();
+        settings.setHttp2Async(true);
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+
+        LastFmAPIClient asyncClient = new LastFmAPIClient(new HttpTransport(settings), baseUrl);
+        try {
+            assertTrue(asyncClient.getTransport().isHttp2Async());
+            assertEquals("Fireflies", asyncClient.searchTracks("fireflies", 10).get(0).getName());
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent async calls share a bounded set of parser threads")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBoundedParsers() throws IOException {
+        TransportSettings settings = new TransportSettings();
+        settings.setParserThreads(2);
+        String url = "http://localhost:" + stub.getAddress().getPort() + "/2.0/?method=track.search";
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger parsing = new AtomicInteger();
+        AtomicInteger maxParsing = new AtomicInteger();
+
+        try (HttpTransport transport = new HttpTransport(settings)) {
+            List<CompletableFuture<List<Track>>> calls = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                calls.add(transport.getAsync(url, body -> {
+                    threads.add(Thread.currentThread());
+                    maxParsing.accumulateAndGet(parsing.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                        return LastFmResponseParser.parseSearch(body);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    } finally {
+                        parsing.decrementAndGet();
+                    }
+                }));
+            }
+            for (CompletableFuture<List<Track>> call : calls) {
+                assertEquals("Fireflies", call.join().get(0).getName());
+            }
+        }
+
+        assertTrue(maxParsing.get() <= 2, "parsing at once: " + maxParsing.get());
+        assertTrue(threads.size() <= 2, "parser threads: " + threads.size());
+    }
+
+    @Test
+    @DisplayName("A body that parses to null completes with null after a single parse")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAsyncNullResult() {
+        AtomicInteger parses = new AtomicInteger();
+        String url = "http://localhost:" + stub.getAddress().getPort() + "/2.0/?method=track.getInfo";
+
+        Object result = client.getTransport().getAsync(url, body -> {
+            parses.incrementAndGet();
+            body.readAllBytes();
+            return null;
+        }).join();
+
+        assertNull(result);
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    @DisplayName("Async lookups compose without blocking and share one upstream request")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAsyncLookups() {
+        CompletableFuture<List<Track>> first = client.getSimilarTracksAsync("Fireflies", "Owl City", 10);
+        CompletableFuture<List<Track>> second = client.getSimilarTracksAsync("Fireflies", "Owl City", 10);
+        CompletableFuture<Track> info = client.getTrackInfoAsync("Fireflies", "Owl City");
+
+        CompletableFuture<Integer> total = first.thenCombine(second, (a, b) -> a.size() + b.size());
+        assertEquals(4, total.join());
+        assertEquals(999, info.join().getListeners());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Async bodies are parsed as they arrive, off the I/O reactor")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAsyncStreamingParse() {
+        String url = "http://localhost:" + stub.getAddress().getPort() + "/stream/";
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch chained = new CountDownLatch(1);
+        CompletableFuture<String> body = client.getTransport().getAsync(url, in -> {
+            threads.add(Thread.currentThread().getName());
+            StringBuilder text = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                text.append((char) c);
+                if (c == ',') {
+                    // The stub only sends the rest once it sees this
+                    firstBytesRead.countDown();
+                }
+            }
+            // Finish only after the continuation below is attached, so it runs where the future completes
+            awaitQuietly(chained);
+            return text.toString();
+        });
+        CompletableFuture<String> continued = body.thenApply(text -> {
+            threads.add(Thread.currentThread().getName());
+            return text;
+        });
+        chained.countDown();
+        String result = continued.join();
+
+        assertEquals("{\"first\":1,\"second\":2}", result);
+        assertEquals(List.of("lastfm-parser", "lastfm-parser"), threads);
+    }
+
+    @Test
+    @DisplayName("Fetched similar tracks feed the graph, which then answers without Last.fm")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testGraphStrategyAnswersLocally() throws Exception {
+        client.getSimilarTracks("Fireflies", "Owl City", 10);
+        client.getCache().clear();
+        assertEquals(1, requests.get());
+
+        GraphSimilarityStrategy strategy = new GraphSimilarityStrategy(client.getSimilarityGraph(), client);
+        List<Track> tracks = strategy.recommend(List.of(new Track("fireflies", "owl city")), 5);
+
+        assertEquals(1, requests.get());
+        assertEquals(List.of("Vanilla Twilight", "Hello Seattle"), tracks.stream().map(Track::getName).toList());
+        assertEquals(0.87, tracks.get(0).getMatchScore(), 0.001);
+
+        // Unknown seed: falls back to Last.fm once, then it is known too
+        strategy.recommendAsync(List.of(new Track("Hello Seattle", "Owl City")), 10).join();
+        strategy.recommendAsync(List.of(new Track("Hello Seattle", "Owl City")), 10).join();
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Every count and strategy shares one similar-tracks fetch per seed, hybrid pools included")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSharedSimilarFetch() throws Exception {
+        assertEquals(1, client.getSimilarTracks("Fireflies", "Owl City", 1).size());
+        assertEquals(2, client.getSimilarTracks("Fireflies", "Owl City", 10).size());
+        assertEquals(2, client.getCachedSimilarTracks("Fireflies", "Owl City", 5).size());
+        assertEquals(1, requests.get());
+
+        HybridStrategy hybrid = new HybridStrategy(
+                new FanOutStrategy(new GraphSimilarityStrategy(client.getSimilarityGraph(), client)),
+                client.getAudioFeatureStore());
+        client.getCache().clear();
+        assertEquals(2, hybrid.recommend(List.of(new Track("Fireflies", "Owl City")), 5).size());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("A truncated body fails the call and is neither cached nor fed to the graph")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testTruncatedBody() {
+        errorResponse = SIMILAR_RESPONSE.substring(0, SIMILAR_RESPONSE.indexOf("Hello Seattle"));
+
+        assertThrows(IOException.class, () -> client.getSimilarTracks("Fireflies", "Owl City", 10));
+        assertThrows(CompletionException.class,
+                () -> client.getSimilarTracksAsync("Fireflies", "Owl City", 10).join());
+
+        assertEquals(2, client.getCircuitBreaker().getFailures());
+        assertNull(client.getCachedSimilarTracks("Fireflies", "Owl City", 10));
+        assertFalse(client.getSimilarityGraph().isKnown("Fireflies", "Owl City"));
+    }
+
+    @Test
+    @DisplayName("Rate limit errors fail the call and slow the client down")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testRateLimitErrorThrottles() {
+        errorResponse = "{\"error\":29,\"message\":\"Rate Limit Exceeded\"}";
+        double rate = client.getRateLimiter().getRate();
+
+        LastFmApiException e = assertThrows(LastFmApiException.class,
+                () -> client.getSimilarTracks("Fireflies", "Owl City", 10));
+
+        assertTrue(e.isRateLimited());
+        assertEquals(1, client.getRateLimiter().getDecreases());
+        assertTrue(client.getRateLimiter().getRate() < rate);
+        assertNull(client.getCachedSimilarTracks("Fireflies", "Owl City", 10));
+    }
+
+    @Test
+    @DisplayName("An unhealthy upstream opens the breaker and later calls fail fast without reaching it")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBreakerFailsFast() throws IOException {
+        errorResponse = "{\"error\":16,\"message\":\"There was a temporary error processing your request\"}";
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 1.0, 5000, 60_000, 1, System::nanoTime);
+        LastFmAPIClient guarded = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl,
+                new RateLimiter(), breaker);
+        try {
+            for (int i = 0; i < 4; i++) {
+                String query = "query " + i;
+                assertThrows(LastFmApiException.class, () -> guarded.searchTracks(query, 10));
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            assertThrows(CallNotPermittedException.class, () -> guarded.searchTracks("another", 10));
+            CompletionException async = assertThrows(CompletionException.class,
+                    () -> guarded.getSimilarTracksAsync("Fireflies", "Owl City", 10).join());
+            assertInstanceOf(CallNotPermittedException.class, async.getCause());
+            assertEquals(4, requests.get());
+            assertEquals(2, breaker.getRejected());
+        } finally {
+            guarded.close();
+        }
+    }
+}
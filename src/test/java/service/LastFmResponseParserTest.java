@@ -0,0 +1,105 @@
+package service;
+
+import model.Track;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the streaming parser against trimmed Last.fm payloads
+class LastFmResponseParserTest {
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Unused fields and image sizes are skipped")
+    void testSkipsUnusedFields() {
+        String json = "{\"similartracks\":{\"track\":[{\"name\":\"Vanilla Twilight\",\"playcount\":12,"
+                + "\"mbid\":\"\",\"match\":1.0,\"url\":\"u\",\"streamable\":{\"#text\":\"0\",\"fulltrack\":\"0\"},"
+                + "\"duration\":230,\"artist\":{\"name\":\"Owl City\",\"mbid\":\"x\",\"url\":\"a\"},"
+                + "\"image\":[{\"#text\":\"s.png\",\"size\":\"small\"},{\"#text\":\"\",\"size\":\"medium\"},"
+                + "{\"#text\":\"l.png\",\"size\":\"large\"},{\"#text\":\"xl.png\",\"size\":\"extralarge\"}]}],"
+                + "\"@attr\":{\"artist\":\"Owl City\"}}}";
+
+        List<Track> tracks = LastFmResponseParser.parseSimilar(body(json));
+
+        assertEquals(1, tracks.size());
+        Track track = tracks.get(0);
+        assertEquals("Vanilla Twilight", track.getName());
+        assertEquals("Owl City", track.getArtist());
+        assertEquals(1.0, track.getMatchScore(), 0.001);
+        assertNull(track.getMbid());
+        assertEquals("l.png", track.getImageUrl());
+    }
+
+    @Test
+    @DisplayName("A single search match given as an object is still parsed")
+    void testSingleObjectResult() {
+        String json = "{\"results\":{\"opensearch:totalResults\":\"1\",\"trackmatches\":{\"track\":"
+                + "{\"name\":\"Fireflies\",\"artist\":\"Owl City\",\"listeners\":\"not a number\"}}}}";
+
+        List<Track> tracks = LastFmResponseParser.parseSearch(body(json));
+
+        assertEquals(1, tracks.size());
+        assertEquals(0, tracks.get(0).getListeners());
+    }
+
+    @Test
+    @DisplayName("API error responses produce no tracks")
+    void testErrorResponse() {
+        String json = "{\"error\":6,\"message\":\"Track not found\",\"links\":[]}";
+
+        assertTrue(LastFmResponseParser.parseSimilar(body(json)).isEmpty());
+        assertNull(LastFmResponseParser.parseTrackInfo(body(json)));
+    }
+
+    @Test
+    @DisplayName("Rate limit errors are raised so the client can back off")
+    void testRateLimitError() {
+        String json = "{\"error\":29,\"message\":\"Rate Limit Exceeded\"}";
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                () -> LastFmResponseParser.parseSimilar(body(json)));
+        LastFmApiException cause = assertInstanceOf(LastFmApiException.class, e.getCause());
+        assertEquals(29, cause.getCode());
+        assertTrue(cause.isRateLimited());
+    }
+
+    @Test
+    @DisplayName("Truncated or malformed input fails instead of returning the tracks read so far")
+    void testTruncatedInput() {
+        String truncated = "{\"similartracks\":{\"track\":[{\"name\":\"A\",\"artist\":\"B\"},{\"name\":";
+        String malformed = "{\"similartracks\":{\"track\":[{\"name\":\"A\",\"artist\":\"B\"} {\"name\":\"C\"}]}}";
+
+        assertThrows(UncheckedIOException.class, () -> LastFmResponseParser.parseSimilar(body(truncated)));
+        assertThrows(UncheckedIOException.class, () -> LastFmResponseParser.parseSimilar(body(malformed)));
+        assertThrows(UncheckedIOException.class, () -> LastFmResponseParser.parseSearch(body("")));
+        assertThrows(UncheckedIOException.class, () -> LastFmResponseParser.parseTrackInfo(body("{\"track\":{\"name\"")));
+    }
+
+    @Test
+    @DisplayName("A read that times out mid-body fails the call")
+    void testReadTimeout() {
+        byte[] start = "{\"similartracks\":{\"track\":[{\"name\":\"A\",\"artist\":\"B\"},".getBytes(StandardCharsets.UTF_8);
+        InputStream stalled = new SequenceInputStream(new ByteArrayInputStream(start), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        });
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> LastFmResponseParser.parseSimilar(stalled));
+        assertInstanceOf(SocketTimeoutException.class, e.getCause());
+    }
+}
@@ -0,0 +1,65 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check bucket layout and percentile precision of the latency histogram
+class LatencyHistogramTest {
+    @Test
+    @DisplayName("Buckets are contiguous and every value falls inside its own bucket")
+    void testBuckets() {
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(LatencyHistogram.highestValue(i) + 1, LatencyHistogram.lowestValue(i + 1), "bucket " + i);
+        }
+        long[] values = {0, 1, 127, 128, 129, 1000, 65_535, 1_000_000, 3_600_000_000L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.lowestValue(index) <= value, "value " + value);
+            assertTrue(LatencyHistogram.highestValue(index) >= value, "value " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles are within the bucket precision")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+
+        double[] percentiles = {50, 90, 99, 99.9};
+        for (double percentile : percentiles) {
+            double expected = percentile * 1000;
+            long actual = histogram.valueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected * (1 + 1.0 / 64), percentile + " -> " + actual);
+        }
+        assertEquals(100_000, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Adding histograms combines counts and extremes")
+    void testAdd() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            fast.record(10);
+        }
+        slow.record(5000);
+
+        LatencyHistogram total = new LatencyHistogram();
+        total.add(fast);
+        total.add(slow);
+        assertEquals(100, total.getCount());
+        assertEquals(10, total.getMin());
+        assertEquals(5000, total.getMax());
+        assertEquals(10, total.valueAtPercentile(99));
+        assertEquals(5000, total.valueAtPercentile(99.5));
+        assertEquals(0, new LatencyHistogram().valueAtPercentile(99));
+    }
+}
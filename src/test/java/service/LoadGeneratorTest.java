@@ -0,0 +1,146 @@
+package service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests drive a real server (backed by a stub Last.fm endpoint) with the load generator
+class LoadGeneratorTest {
+    private static final int PORT = 8892;
+    private static final List<String[]> CORPUS = List.of(
+            new String[]{"Fireflies", "Owl City"},
+            new String[]{"Yellow", "Coldplay"});
+
+    private HttpServer stub;
+    private MusicRecommendationServer server;
+    private volatile long similarDelayMillis;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/2.0/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            if (query.contains("method=track.getSimilar") && similarDelayMillis > 0) {
+                try {
+                    Thread.sleep(similarDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String body = query.contains("method=track.getSimilar")
+                    ? "{\"similartracks\":{\"track\":[{\"name\":\"Similar Song\",\"artist\":{\"name\":\"Stub\"},\"match\":0.9}]}}"
+                    : "{\"results\":{\"trackmatches\":{\"track\":[{\"name\":\"Fast Song\",\"artist\":\"Stub\"}]}}}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        stub.start();
+
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+        LastFmAPIClient apiClient = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl);
+        server = new MusicRecommendationServer(PORT, MusicRecommendationServer.MODE_NIO, apiClient);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.shutdown();
+        stub.stop(0);
+    }
+
+    private LoadSettings settings(String mode) {
+        LoadSettings settings = new LoadSettings();
+        settings.setPort(PORT);
+        settings.setMode(mode);
+        settings.setClients(4);
+        settings.setWarmupMillis(200);
+        settings.setDurationMillis(1000);
+        settings.setMix("search:60,recommend:40");
+        return settings;
+    }
+
+    @Test
+    @DisplayName("Closed loop keeps every client busy and every request answered")
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testClosedLoop() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator(settings(LoadGenerator.MODE_CLOSED), CORPUS).run();
+
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getLatencies(LoadGenerator.Operation.SEARCH).getCount() > 0);
+        assertTrue(report.getLatencies(LoadGenerator.Operation.RECOMMEND).getCount() > 0);
+        assertEquals(0, report.getLatencies(LoadGenerator.Operation.SET_STRATEGY).getCount());
+        assertTrue(report.getThroughput() > 0);
+        LatencyHistogram latencies = report.getLatencies();
+        assertTrue(latencies.valueAtPercentile(50) <= latencies.valueAtPercentile(99));
+        assertTrue(latencies.valueAtPercentile(99) <= latencies.getMax());
+    }
+
+    @Test
+    @DisplayName("Open loop sends exactly the scheduled number of requests")
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testOpenLoop() throws Exception {
+        LoadSettings settings = settings(LoadGenerator.MODE_OPEN);
+        settings.setRatePerSecond(200);
+        settings.setMix("search:50,recommend:40,set_strategy:10");
+        LoadGenerator.Report report = new LoadGenerator(settings, CORPUS).run();
+
+        // 1 s measured at 200/s, the warmup requests are not counted
+        assertEquals(200, report.getLatencies().getCount());
+        assertEquals(0, report.getErrors(LoadGenerator.Operation.SEARCH));
+        assertTrue(report.getLatencies(LoadGenerator.Operation.SET_STRATEGY).getCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Open loop records timed-out requests in the latency histograms, not just as errors")
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testOpenLoopTimeouts() throws Exception {
+        similarDelayMillis = 2000;
+        LoadSettings settings = settings(LoadGenerator.MODE_OPEN);
+        settings.setRatePerSecond(20);
+        settings.setMix("recommend:1");
+        settings.setRequestTimeoutMillis(300);
+        LoadGenerator.Report report = new LoadGenerator(settings, CORPUS).run();
+
+        LatencyHistogram latencies = report.getLatencies(LoadGenerator.Operation.RECOMMEND);
+        assertEquals(20, latencies.getCount());
+        assertEquals(20, report.getErrors(LoadGenerator.Operation.RECOMMEND));
+        assertTrue(latencies.valueAtPercentile(50) >= 300_000, "p50 " + latencies.valueAtPercentile(50));
+        assertEquals(0, report.getThroughput());
+    }
+
+    @Test
+    @DisplayName("Mixes parse into weights and reject nonsense")
+    void testParseMix() {
+        Map<LoadGenerator.Operation, Integer> mix = LoadGenerator.parseMix("search:60, recommend:35,set_strategy:5,search:0");
+        assertEquals(Map.of(LoadGenerator.Operation.SEARCH, 60, LoadGenerator.Operation.RECOMMEND, 35,
+                LoadGenerator.Operation.SET_STRATEGY, 5), mix);
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("search"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("search:0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("browse:10"));
+    }
+}
@@ -58,4 +58,46 @@ class MusicRecommendationServerTest {
             }));
         }
     }
-}
\ No newline at end of file
+
+    //Load test: many idle connections must not starve an active client
+    @Test
+    @DisplayName("NIO mode serves an active client while hundreds of connections sit idle")
+    @Timeout(value = 20, unit = TimeUnit.SECONDS)
+    void testIdleConnectionsDoNotStarveActiveOnes() throws Exception {
+        int port = 8890;
+        MusicRecommendationServer server = new MusicRecommendationServer(port, MusicRecommendationServer.MODE_NIO);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(1000);
+
+        List<Socket> idleClients = new ArrayList<>();
+        try {
+            // Far more idle clients than the old fixed pool of 10 threads
+            for (int i = 0; i < 300; i++) {
+                idleClients.add(new Socket("localhost", port));
+            }
+
+            for (int i = 0; i < 5; i++) {
+                try (Socket socket = new Socket("localhost", port);
+                     PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                     BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                    out.println("{\"action\":\"SET_STRATEGY\",\"strategy\":\"random\"}");
+                    String response = in.readLine();
+                    assertNotNull(response);
+                    assertTrue(response.contains("\"status\":\"success\""));
+                }
+            }
+        } finally {
+            for (Socket socket : idleClients) {
+                socket.close();
+            }
+            server.shutdown();
+        }
+    }
+}
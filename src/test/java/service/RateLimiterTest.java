@@ -0,0 +1,63 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the token bucket and its AIMD rate against a fake clock
+class RateLimiterTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    // 10 requests/second between 1 and 20, burst of 5, +1/s per second, halved on throttle
+    private RateLimiter limiter(long maxWaitMillis) {
+        return new RateLimiter(10, 1, 20, 5, 1, 0.5, 1000, maxWaitMillis, now::get);
+    }
+
+    @Test
+    @DisplayName("A burst is served at once, then callers wait for the refill or are refused")
+    void testBurstThenWait() {
+        RateLimiter limiter = limiter(150);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.reserve());
+        }
+
+        assertEquals(100, limiter.reserve());
+        assertEquals(-1, limiter.reserve());
+        assertEquals(1, limiter.getDelayed());
+        assertEquals(1, limiter.getRejected());
+
+        now.addAndGet(200 * MILLIS);
+        assertEquals(0, limiter.reserve());
+    }
+
+    @Test
+    @DisplayName("Throttling halves the rate once per cooldown, successes win it back slowly")
+    void testAdaptiveRate() {
+        RateLimiter limiter = limiter(0);
+
+        limiter.onThrottle();
+        limiter.onThrottle();
+        assertEquals(5.0, limiter.getRate(), 1e-9);
+        assertEquals(1, limiter.getDecreases());
+        assertEquals(-1, limiter.reserve());
+
+        now.addAndGet(1000 * MILLIS);
+        limiter.onThrottle();
+        assertEquals(2.5, limiter.getRate(), 1e-9);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        assertTrue(limiter.getRate() > 2.5 && limiter.getRate() < 20);
+
+        for (int i = 0; i < 100_000; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(20, limiter.getRate(), 1e-9);
+    }
+}
@@ -0,0 +1,87 @@
+package service;
+
+import model.Track;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check cache hits, TTL expiry and LRU eviction
+class ResponseCacheTest {
+    private long now;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        now = 1000;
+        cache = new ResponseCache(1024 * 1024, () -> now);
+        cache.setTtl("track.search", 100);
+    }
+
+    @Test
+    @DisplayName("Keys are normalized so differently cased queries share an entry")
+    void testKeyNormalization() {
+        assertEquals(ResponseCache.key("track.search", "Owl City", 10),
+                ResponseCache.key("track.search", "  owl city ", 10));
+    }
+
+    @Test
+    @DisplayName("Cached tracks are returned as copies and counted as hits")
+    void testHitReturnsCopies() {
+        String key = ResponseCache.key("track.search", "fireflies", 10);
+        cache.put(key, List.of(new Track("Fireflies", "Owl City")));
+
+        List<Track> first = cache.get(key);
+        first.get(0).setMatchScore(0.5);
+        List<Track> second = cache.get(key);
+
+        assertEquals("Fireflies", second.get(0).getName());
+        assertEquals(0.0, second.get(0).getMatchScore(), 0.001);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Entries expire after the method TTL")
+    void testExpiry() {
+        String key = ResponseCache.key("track.search", "fireflies", 10);
+        cache.put(key, List.of(new Track("Fireflies", "Owl City")));
+
+        now += 101;
+        assertNull(cache.get(key));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    @Test
+    @DisplayName("Methods without a TTL are never cached")
+    void testNoTtlNotCached() {
+        String key = ResponseCache.key("track.getInfo", "owl city", "fireflies");
+        cache.put(key, List.of(new Track("Fireflies", "Owl City")));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted when over the byte budget")
+    void testLruEviction() {
+        List<Track> tracks = List.of(new Track("Fireflies", "Owl City"));
+        long entryBytes = ResponseCache.estimateBytes(ResponseCache.key("track.search", "a", 10), tracks);
+        ResponseCache small = new ResponseCache(entryBytes * 2, () -> now);
+        small.setTtl("track.search", 100);
+
+        String a = ResponseCache.key("track.search", "a", 10);
+        String b = ResponseCache.key("track.search", "b", 10);
+        String c = ResponseCache.key("track.search", "c", 10);
+        small.put(a, tracks);
+        small.put(b, tracks);
+        small.get(a); // touch a so b is the eldest
+        small.put(c, tracks);
+
+        assertNotNull(small.get(a));
+        assertNull(small.get(b));
+        assertNotNull(small.get(c));
+        assertEquals(1, small.getEvictions());
+    }
+}
@@ -0,0 +1,247 @@
+package service;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import model.Track;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests run ServerConnection against a real server backed by a stub Last.fm endpoint
+class ServerConnectionTest {
+    private static final int PORT = 8891;
+
+    private HttpServer stub;
+    private MusicRecommendationServer server;
+    private ServerConnection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Searches for "slow" take half a second, "many" returns 25 tracks, everything else answers at once.
+        // Similar-track lookups always find the same single track
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        stub.createContext("/2.0/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            if (query.contains("method=track.getSimilar")) {
+                byte[] bytes = "{\"similartracks\":{\"track\":[{\"name\":\"Similar Song\",\"artist\":{\"name\":\"Stub\"},\"match\":0.9}]}}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes);
+                }
+                return;
+            }
+            if (query.contains("track=slow")) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String name = query.contains("track=slow") ? "Slow Song" : "Fast Song";
+            StringBuilder tracks = new StringBuilder();
+            int count = query.contains("track=many") ? 25 : 1;
+            for (int i = 0; i < count; i++) {
+                tracks.append(i == 0 ? "" : ",").append("{\"name\":\"").append(count == 1 ? name : "Song " + i)
+                        .append("\",\"artist\":\"Stub\"}");
+            }
+            byte[] bytes = ("{\"results\":{\"trackmatches\":{\"track\":[" + tracks + "]}}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        stub.start();
+
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+        LastFmAPIClient apiClient = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl);
+        server = new MusicRecommendationServer(PORT, MusicRecommendationServer.MODE_NIO, apiClient);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+
+        connection = new ServerConnection("localhost", PORT);
+        connection.connect();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connection.disconnect();
+        server.shutdown();
+        stub.stop(0);
+    }
+
+    @Test
+    @DisplayName("Legacy requests still get one response per request")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testLegacyProtocol() throws IOException {
+        List<Track> tracks = connection.searchTracks("fast");
+        assertEquals("Fast Song", tracks.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Pipelined responses come back out of order and are matched by requestId")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testPipelinedOutOfOrder() {
+        connection.enablePipelining();
+
+        CompletableFuture<List<Track>> slow = connection.searchTracksAsync("slow");
+        CompletableFuture<List<Track>> fast = connection.searchTracksAsync("fast");
+
+        assertEquals("Fast Song", fast.join().get(0).getName());
+        assertFalse(slow.isDone());
+        assertEquals("Slow Song", slow.join().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("After SET_FORMAT responses arrive as binary frames, pipelined or not")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBinaryFormat() throws IOException {
+        connection.useBinaryFormat();
+        assertTrue(connection.isBinaryFormat());
+        assertEquals("Fast Song", connection.searchTracks("fast").get(0).getName());
+
+        connection.enablePipelining();
+        CompletableFuture<List<Track>> slow = connection.searchTracksAsync("slow");
+        CompletableFuture<List<Track>> fast = connection.searchTracksAsync("fast");
+        assertEquals("Fast Song", fast.join().get(0).getName());
+        assertEquals("Slow Song", slow.join().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Streamed responses arrive in chunks and end with the total count")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testStreamedResponse() throws IOException {
+        connection.enablePipelining();
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "SEARCH");
+        request.addProperty("query", "many");
+        request.addProperty("limit", 25);
+        request.addProperty("chunkSize", 10);
+
+        List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+        int count = connection.streamAsync(request, tracks -> chunkSizes.add(tracks.size())).join();
+
+        assertEquals(25, count);
+        assertEquals(List.of(10, 10, 5), chunkSizes);
+
+        // Same through the iterator, over binary frames
+        connection.useBinaryFormat();
+        TrackStream stream = connection.searchTracksStreaming("many");
+        List<String> names = new ArrayList<>();
+        stream.forEachRemaining(track -> names.add(track.getName()));
+        assertEquals(25, names.size());
+        assertEquals("Song 0", names.get(0));
+        assertEquals("Song 24", names.get(24));
+    }
+
+    @Test
+    @DisplayName("A RECOMMEND with a non-positive count is answered with an error")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testInvalidRecommendCount() {
+        connection.enablePipelining();
+        for (int count : new int[]{0, -3}) {
+            JsonObject request = new JsonObject();
+            request.addProperty("action", "RECOMMEND");
+            request.addProperty("trackName", "Fireflies");
+            request.addProperty("artistName", "Owl City");
+            request.addProperty("count", count);
+
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> connection.sendAsync(request).join());
+            assertTrue(error.getCause().getMessage().contains("count"));
+        }
+        // The connection is still usable afterwards
+        assertEquals("Fast Song", connection.searchTracksAsync("fast").join().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("An error answer does not reconnect, a reconnect fails what was pending on the old socket")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testReconnect() throws IOException {
+        connection.enablePipelining();
+        connection.useBinaryFormat();
+        CompletableFuture<List<Track>> slow = connection.searchTracksAsync("slow");
+
+        // Answered with status:error over a healthy socket, the slow request is untouched
+        assertThrows(ServerErrorException.class,
+                () -> connection.getRecommendations(List.of(new Track("Fireflies", "Owl City")), 0));
+        assertFalse(slow.isCompletedExceptionally());
+
+        connection.retryConnect();
+        CompletionException error = assertThrows(CompletionException.class, slow::join);
+        assertTrue(error.getCause() instanceof IOException);
+
+        // The new socket negotiates its own format
+        assertTrue(connection.isBinaryFormat());
+        assertEquals("Fast Song", connection.searchTracksAsync("fast").join().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("A short similarity answer is not padded with random tracks")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testNoRandomPadding() throws IOException {
+        // Plenty of seen tracks for the random tier to pick from
+        assertEquals(25, connection.searchTracks("many").size());
+
+        List<Track> tracks = connection.getRecommendations(List.of(new Track("Fireflies", "Owl City")), 5);
+        assertEquals(List.of("Similar Song"), tracks.stream().map(Track::getName).toList());
+    }
+
+    @Test
+    @DisplayName("Malformed streaming options are answered with an error and keep the connection")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testInvalidStreamOptions() {
+        connection.enablePipelining();
+        JsonObject badStream = new JsonObject();
+        badStream.addProperty("action", "SEARCH");
+        badStream.addProperty("query", "fast");
+        badStream.addProperty("stream", "yes");
+        JsonObject badChunkSize = new JsonObject();
+        badChunkSize.addProperty("action", "SEARCH");
+        badChunkSize.addProperty("query", "fast");
+        badChunkSize.addProperty("stream", true);
+        badChunkSize.addProperty("chunkSize", "ten");
+
+        CompletionException error = assertThrows(CompletionException.class, () -> connection.sendAsync(badStream).join());
+        assertTrue(error.getCause().getMessage().contains("stream"));
+        error = assertThrows(CompletionException.class, () -> connection.sendAsync(badChunkSize).join());
+        assertTrue(error.getCause().getMessage().contains("chunkSize"));
+
+        assertEquals("Fast Song", connection.searchTracksAsync("fast").join().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("A streamed RECOMMEND sends its tracks in chunks and ends with the count")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testStreamedRecommend() {
+        connection.enablePipelining();
+        TrackStream stream = connection.getRecommendationsStreaming("Fireflies", "Owl City");
+        List<String> names = new ArrayList<>();
+        stream.forEachRemaining(track -> names.add(track.getName()));
+        assertEquals(List.of("Similar Song"), names);
+    }
+}
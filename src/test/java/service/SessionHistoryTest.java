@@ -0,0 +1,61 @@
+package service;
+
+import model.Track;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check the per-session history stays bounded, ordered and free of duplicates
+class SessionHistoryTest {
+
+    @Test
+    @DisplayName("Oldest tracks are dropped once the cap is reached")
+    void testBounded() {
+        SessionHistory history = new SessionHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.add(new Track("Song " + i, "Artist"));
+        }
+
+        assertEquals(3, history.size());
+        assertEquals("Song 2", history.get(0).getName());
+        assertEquals("Song 4", history.get(2).getName());
+        assertEquals(2, history.getEvictions());
+        assertFalse(history.contains(new Track("Song 0", "Artist")));
+        assertTrue(history.contains(new Track("song 3", "ARTIST")));
+    }
+
+    @Test
+    @DisplayName("Re-adding a track keeps its place and refreshes its metadata")
+    void testDeduplicated() {
+        SessionHistory history = new SessionHistory(10);
+        Track first = new Track("Fireflies", "Owl City");
+        Track again = new Track("Fireflies", "Owl City");
+        again.setListeners(5000000);
+
+        history.addAll(List.of(first, new Track("Vanilla Twilight", "Owl City"), again));
+
+        assertEquals(2, history.size());
+        assertEquals(1, history.getDuplicates());
+        assertEquals("Fireflies", history.get(0).getName());
+        assertEquals(5000000, history.get(0).getListeners());
+    }
+
+    @Test
+    @DisplayName("Byte estimate follows adds and evictions")
+    void testBytes() {
+        SessionHistory history = new SessionHistory(2);
+        assertEquals(0, history.getBytes());
+        history.add(new Track("A", "X"));
+        long one = history.getBytes();
+        assertTrue(one > 0);
+        history.add(new Track("B", "X"));
+        history.add(new Track("C", "X"));
+        assertEquals(2 * one, history.getBytes());
+        history.clear();
+        assertEquals(0, history.getBytes());
+        assertTrue(history.isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check that identical concurrent calls share a single load
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Concurrent identical calls run the loader once")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testCollapsesConcurrentCalls() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(pool.submit(() -> flight.execute("fireflies", () -> {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return "result";
+            })));
+        }
+
+        // Wait until every caller has joined the flight before letting the leader finish
+        while (flight.getCollapsed() < callers - 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            assertEquals("result", future.get());
+        }
+        pool.shutdown();
+
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, flight.getCollapsed());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Loader failures are rethrown and the key can be retried")
+    void testFailureIsNotRemembered() throws IOException {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertThrows(IOException.class, () -> flight.execute("key", () -> {
+            throw new IOException("upstream down");
+        }));
+        assertEquals("ok", flight.execute("key", () -> "ok"));
+    }
+}
@@ -0,0 +1,150 @@
+package service;
+
+import com.sun.net.httpserver.HttpServer;
+import model.Track;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.apache.hc.core5.http.ParseException;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests record responses from a fake Last.fm and replay them through the stub server
+class StubLastFmServerTest {
+    private static final String SEARCH_RESPONSE = "{\"results\":{\"trackmatches\":{\"track\":["
+            + "{\"name\":\"Fireflies\",\"artist\":\"Owl City\",\"listeners\":\"1234\"}]}}}";
+    private static final String SIMILAR_RESPONSE = "{\"similartracks\":{\"track\":["
+            + "{\"name\":\"Vanilla Twilight\",\"artist\":{\"name\":\"Owl City\"},\"match\":\"0.87\"}]}}";
+
+    @TempDir
+    Path recordings;
+
+    private HttpServer upstream;
+    private StubLastFmServer stub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/2.0/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String body = query.contains("method=track.search") ? SEARCH_RESPONSE : SIMILAR_RESPONSE;
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        upstream.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    private void record() throws IOException, ParseException {
+        String baseUrl = "http://localhost:" + upstream.getAddress().getPort() + "/2.0/";
+        LastFmAPIClient recording = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl);
+        try {
+            recording.setRecorder(new ResponseRecorder(recordings));
+            recording.searchTracks("Fireflies", 10);
+            recording.getSimilarTracks("Fireflies", "Owl City", 10);
+            assertEquals(2, recording.getRecorder().getRecorded());
+        } finally {
+            recording.close();
+        }
+    }
+
+    private LastFmAPIClient replayClient() {
+        return new LastFmAPIClient(new HttpTransport(new TransportSettings()), stub.getBaseUrl());
+    }
+
+    @Test
+    @DisplayName("Recorded responses replay without the upstream")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testRecordAndReplay() throws IOException, ParseException {
+        record();
+        assertTrue(Files.exists(recordings.resolve(ResponseRecorder.INDEX_FILE)));
+        upstream.stop(0);
+
+        stub = new StubLastFmServer(0, recordings);
+        stub.start();
+        LastFmAPIClient client = replayClient();
+        try {
+            // Case differs from the recording, the key is normalized
+            List<Track> search = client.searchTracks("fireflies", 10);
+            assertEquals(1, search.size());
+            assertEquals("Fireflies", search.get(0).getName());
+
+            List<Track> similar = client.getSimilarTracks("Fireflies", "Owl City", 10);
+            assertEquals("Vanilla Twilight", similar.get(0).getName());
+
+            assertTrue(client.searchTracks("never recorded", 10).isEmpty());
+        } finally {
+            client.close();
+        }
+        assertEquals(2, stub.getReplayed());
+        assertEquals(1, stub.getMissing());
+    }
+
+    @Test
+    @DisplayName("Injected rate-limit errors reach the client as Last.fm errors")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testInjectedErrors() throws IOException, ParseException {
+        record();
+        stub = new StubLastFmServer(0, recordings, StubLastFmServer.Latency.parse("fixed:20"), 1.0,
+                new int[]{LastFmApiException.RATE_LIMIT_EXCEEDED}, 42);
+        stub.start();
+        LastFmAPIClient client = replayClient();
+        try {
+            LastFmApiException error = assertThrows(LastFmApiException.class,
+                    () -> client.searchTracks("fireflies", 10));
+            assertTrue(error.isRateLimited());
+        } finally {
+            client.close();
+        }
+        assertEquals(1, stub.getInjectedErrors());
+        assertEquals(stub.getRequests(), stub.getInjectedErrors());
+    }
+
+    @Test
+    @DisplayName("Latency specs parse into the expected distributions")
+    void testLatencyParse() {
+        Random random = new Random(7);
+        assertEquals(0, StubLastFmServer.Latency.parse("none").sampleMillis(random));
+        assertEquals(35, StubLastFmServer.Latency.parse("fixed:35").sampleMillis(random));
+
+        StubLastFmServer.Latency uniform = StubLastFmServer.Latency.parse("uniform:10:20");
+        StubLastFmServer.Latency lognormal = StubLastFmServer.Latency.parse("lognormal:80:0.5");
+        long[] samples = new long[1001];
+        for (int i = 0; i < samples.length; i++) {
+            long sample = uniform.sampleMillis(random);
+            assertTrue(sample >= 10 && sample <= 20, "uniform sample " + sample);
+            samples[i] = lognormal.sampleMillis(random);
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        assertTrue(median > 70 && median < 90, "lognormal median " + median);
+
+        assertThrows(IllegalArgumentException.class, () -> StubLastFmServer.Latency.parse("gaussian:5"));
+        assertThrows(IllegalArgumentException.class, () -> StubLastFmServer.Latency.parse("uniform:10"));
+        assertArrayEquals(new int[]{29, 16}, StubLastFmServer.parseErrorCodes("29, 16"));
+    }
+}
@@ -0,0 +1,170 @@
+package service;
+
+import com.sun.net.httpserver.HttpServer;
+import model.Track;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check bulk enrichment against a slow local stub of track.getInfo
+class TrackEnricherTest {
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private LastFmAPIClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stubThreads = Executors.newFixedThreadPool(16);
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(stubThreads);
+        stub.createContext("/2.0/", exchange -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String name = param(exchange.getRequestURI().getRawQuery(), "track");
+            String body = "{\"track\":{\"name\":\"" + name + "\",\"artist\":{\"name\":\"Owl City\"},"
+                    + "\"listeners\":\"999\",\"mbid\":\"mbid-" + name + "\","
+                    + "\"image\":[{\"#text\":\"https://example.com/" + name + ".png\",\"size\":\"medium\"}]}}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            inFlight.decrementAndGet();
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        stub.start();
+
+        String baseUrl = "http://localhost:" + stub.getAddress().getPort() + "/2.0/";
+        RateLimiter unlimited = new RateLimiter(1000, 1, 1000, 1000, 0, 0.5, 1000, 0, System::nanoTime);
+        client = new LastFmAPIClient(new HttpTransport(new TransportSettings()), baseUrl, unlimited, new CircuitBreaker());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    private static String param(String query, String name) {
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return URLDecoder.decode(pair.substring(name.length() + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    private static List<Track> page(int size) {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            tracks.add(new Track("Song " + i, "Owl City"));
+        }
+        return tracks;
+    }
+
+    @Test
+    @DisplayName("Duplicates are fetched once and lookups stay within the parallelism bound")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBoundedAndDeduplicated() {
+        List<Track> tracks = page(20);
+        tracks.add(new Track("song 3", "OWL CITY"));
+
+        List<Track> enriched = new TrackEnricher(client, 4).enrichAll(tracks).join();
+
+        assertEquals(20, enriched.size());
+        assertEquals(20, requests.get());
+        assertTrue(maxInFlight.get() <= 4, "max in flight " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "lookups ran one at a time");
+        assertEquals("Song 0", enriched.get(0).getName());
+        assertEquals("mbid-Song 0", enriched.get(0).getMbid());
+        assertEquals("https://example.com/Song 19.png", enriched.get(19).getImageUrl());
+        assertEquals(999, enriched.get(19).getListeners());
+    }
+
+    @Test
+    @DisplayName("Cached tracks are emitted before any lookup and never refetched")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testCacheHitsFirst() throws IOException {
+        client.getTrackInfo("Song 1", "Owl City");
+        requests.set(0);
+
+        List<Track> emitted = Collections.synchronizedList(new ArrayList<>());
+        int count = new TrackEnricher(client, 4).enrich(page(3), emitted::add).join();
+
+        assertEquals(3, count);
+        assertEquals(3, emitted.size());
+        assertEquals("Song 1", emitted.get(0).getName());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("The publisher only sends what the subscriber asked for, then completes")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testPublisherDemand() throws InterruptedException {
+        List<Track> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+
+        new TrackEnricher(client, 8).publish(page(10)).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(3);
+            }
+
+            @Override
+            public void onNext(Track track) {
+                received.add(track);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                completed.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        });
+
+        // Every lookup finishes, but only the requested tracks are delivered
+        while (requests.get() < 10 || inFlight.get() > 0) {
+            Thread.sleep(5);
+        }
+        assertFalse(completed.isDone());
+        assertEquals(3, received.size());
+
+        subscription[0].request(Long.MAX_VALUE);
+        completed.join();
+        assertEquals(10, received.size());
+        assertTrue(received.stream().allMatch(track -> track.getMbid() != null));
+    }
+}
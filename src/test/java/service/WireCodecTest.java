@@ -0,0 +1,117 @@
+package service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import model.Track;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Tests check that binary frames decode to the same response the JSON protocol sends
+class WireCodecTest {
+    private final Gson gson = new Gson();
+
+    static List<Track> sampleTracks(int count) {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Track track = new Track("Song " + i, "Artist " + (i % 5));
+            track.setUrl("https://www.last.fm/music/Artist+" + (i % 5) + "/_/Song+" + i);
+            track.setImageUrl("https://lastfm.freetls.fastly.net/i/u/174s/" + Integer.toHexString(i * 7919) + ".png");
+            track.setListeners(1000 * i);
+            track.setMatchScore(1.0 / (i + 1));
+            if (i % 2 == 0) {
+                track.setMbid("mbid-" + i);
+            }
+            tracks.add(track);
+        }
+        return tracks;
+    }
+
+    private static JsonObject fields(String action) {
+        JsonObject fields = new JsonObject();
+        fields.addProperty("status", "success");
+        fields.addProperty("action", action);
+        return fields;
+    }
+
+    private static JsonObject readOne(byte[] frame) throws IOException {
+        return WireCodec.readFrame(new DataInputStream(new ByteArrayInputStream(frame)));
+    }
+
+    @Test
+    @DisplayName("Tracks and top-level fields survive a round trip")
+    void testRoundTrip() throws IOException {
+        List<Track> tracks = sampleTracks(3);
+        JsonObject fields = fields("RECOMMEND");
+        fields.addProperty("requestId", 42L);
+        fields.addProperty("version", 2);
+
+        JsonObject decoded = readOne(WireCodec.encode(fields, tracks));
+
+        assertEquals("success", decoded.get("status").getAsString());
+        assertEquals("RECOMMEND", decoded.get("action").getAsString());
+        assertEquals(42L, decoded.get("requestId").getAsLong());
+        assertEquals(2, decoded.get("version").getAsInt());
+
+        Track[] back = gson.fromJson(decoded.get("data"), Track[].class);
+        assertEquals(3, back.length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(tracks.get(i).getName(), back[i].getName());
+            assertEquals(tracks.get(i).getArtist(), back[i].getArtist());
+            assertEquals(tracks.get(i).getMbid(), back[i].getMbid());
+            assertEquals(tracks.get(i).getUrl(), back[i].getUrl());
+            assertEquals(tracks.get(i).getImageUrl(), back[i].getImageUrl());
+            assertEquals(tracks.get(i).getListeners(), back[i].getListeners());
+            assertEquals(tracks.get(i).getMatchScore(), back[i].getMatchScore(), 1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("Responses without tracks keep their other fields")
+    void testNoTrackPayload() throws IOException {
+        JsonObject fields = new JsonObject();
+        fields.addProperty("status", "error");
+        fields.addProperty("message", "Unknown action: NOPE");
+
+        JsonObject decoded = readOne(WireCodec.encode(fields, null));
+
+        assertEquals("error", decoded.get("status").getAsString());
+        assertEquals("Unknown action: NOPE", decoded.get("message").getAsString());
+        assertFalse(decoded.has("data"));
+        assertFalse(decoded.has("requestId"));
+    }
+
+    @Test
+    @DisplayName("Large lists are compressed and much smaller than the JSON line")
+    void testLargePayloadIsSmaller() throws IOException {
+        List<Track> tracks = sampleTracks(200);
+        JsonObject json = fields("RECOMMEND");
+        json.add("data", gson.toJsonTree(tracks));
+        int jsonBytes = (gson.toJson(json) + "\n").getBytes(StandardCharsets.UTF_8).length;
+
+        byte[] frame = WireCodec.encode(fields("RECOMMEND"), tracks);
+
+        assertEquals(WireCodec.FLAG_DEFLATED, frame[4] & WireCodec.FLAG_DEFLATED);
+        assertTrue(frame.length * 3 < jsonBytes, "binary " + frame.length + " vs json " + jsonBytes);
+        assertEquals(200, readOne(frame).getAsJsonArray("data").size());
+    }
+
+    @Test
+    @DisplayName("End of stream between frames is not an error, a truncated frame is")
+    void testEndOfStream() throws IOException {
+        assertNull(readOne(new byte[0]));
+
+        byte[] frame = WireCodec.encode(fields("SEARCH"), sampleTracks(2));
+        byte[] truncated = new byte[frame.length - 3];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> readOne(truncated));
+    }
+}